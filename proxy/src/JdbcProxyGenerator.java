@@ -218,6 +218,8 @@ public abstract class JdbcProxyGenerator extends DelegatorGenerator
             if ( ResultSet.class.isAssignableFrom( retType ) )
             {
                 iw.println("ResultSet innerResultSet = inner." + CodegenUtils.methodCall( method ) + ";");
+                if ( mname.startsWith("execute") )
+                    iw.println("parentPooledConnection.markLive();");
                 iw.println("if (innerResultSet == null) return null;");
                 iw.println("parentPooledConnection.markActiveResultSetForStatement( inner, innerResultSet );");
                 iw.println("NewProxyResultSet out = new NewProxyResultSet( innerResultSet, parentPooledConnection, inner, this );"); 
@@ -307,6 +309,21 @@ public abstract class JdbcProxyGenerator extends DelegatorGenerator
             {
                 iw.println( "return this.isDetached();" );
             }
+            else if ( mname.startsWith("execute") )
+            {
+                // a successful execution proves the Connection live, see validationElisionWindow
+                if ( retType == void.class )
+                {
+                    iw.println("inner." + CodegenUtils.methodCall( method ) + ";");
+                    iw.println("parentPooledConnection.markLive();");
+                }
+                else
+                {
+                    iw.println(CodegenUtils.simpleClassName( retType ) + " out = inner." + CodegenUtils.methodCall( method ) + ";");
+                    iw.println("parentPooledConnection.markLive();");
+                    iw.println("return out;");
+                }
+            }
             else
                 super.generateDelegateCode( intfcl, genclass, method, iw );
         }
@@ -494,8 +511,7 @@ public abstract class JdbcProxyGenerator extends DelegatorGenerator
                 iw.println("{");
                 iw.upIndent();
 
-                generateFindMethodAndArgs( method, iw );
-                iw.println("innerStmt = (PreparedStatement) parentPooledConnection.checkoutStatement( method, args );");
+                generateStatementCheckout( method, "PreparedStatement", iw );
                 iw.println("return new NewProxyPreparedStatement( innerStmt, parentPooledConnection, true, this );");
 
                 iw.downIndent();
@@ -548,8 +564,7 @@ public abstract class JdbcProxyGenerator extends DelegatorGenerator
                 iw.println("{");
                 iw.upIndent();
 
-                generateFindMethodAndArgs( method, iw );
-                iw.println("innerStmt = (CallableStatement) parentPooledConnection.checkoutStatement( method, args );");
+                generateStatementCheckout( method, "CallableStatement", iw );
                 iw.println("return new NewProxyCallableStatement( innerStmt, parentPooledConnection, true, this );");
 
                 iw.downIndent();
@@ -843,6 +858,60 @@ public abstract class JdbcProxyGenerator extends DelegatorGenerator
             super.generateExtraDeclarations( intfcl, genclass, iw );
         }
 
+        // the typed checkout spares every cached prepareStatement( ... ) or prepareCall( ... ) a reflective
+        // Method lookup, and arrays of argument types and arguments. for any signature it does not
+        // know, we fall back to finding the method and args reflectively.
+        void generateStatementCheckout( Method method, String stmtType, IndentedWriter iw ) throws IOException
+        {
+            boolean is_callable = method.getName().equals("prepareCall");
+            Class[] argTypes = method.getParameterTypes();
+            int len = argTypes.length;
+
+            String rsType        = "ResultSet.TYPE_FORWARD_ONLY";
+            String rsConcurrency = "ResultSet.CONCUR_READ_ONLY";
+            String rsHoldability = "GooGooStatementCache.DRIVER_DEFAULT";
+            String autoGenKeys   = "GooGooStatementCache.DRIVER_DEFAULT";
+            String colIndexes    = "null";
+            String colNames      = "null";
+
+            boolean known = (len >= 1 && len <= 4 && argTypes[0] == String.class);
+            if (known && len == 2)
+            {
+                String arg = CodegenUtils.generatedArgumentName( 1 );
+                if (is_callable)
+                    known = false;
+                else if (argTypes[1] == int.class)
+                    autoGenKeys = arg;
+                else if (argTypes[1] == int[].class)
+                    colIndexes = arg;
+                else if (argTypes[1] == String[].class)
+                    colNames = arg;
+                else
+                    known = false;
+            }
+            else if (known && len >= 3)
+            {
+                for (int i = 1; i < len; ++i)
+                    known = known && (argTypes[i] == int.class);
+                rsType        = CodegenUtils.generatedArgumentName( 1 );
+                rsConcurrency = CodegenUtils.generatedArgumentName( 2 );
+                if (len == 4)
+                    rsHoldability = CodegenUtils.generatedArgumentName( 3 );
+            }
+
+            if (known)
+            {
+                iw.println("innerStmt = (" + stmtType + ") parentPooledConnection.checkoutStatement( " + is_callable + ", " +
+                           CodegenUtils.generatedArgumentName( 0 ) + ", " + rsType + ", " + rsConcurrency + ", " + 
+                           rsHoldability + ", " + autoGenKeys + ", " + colIndexes + ", " + colNames + " );");
+            }
+            else
+            {
+                generateFindMethodAndArgs( method, iw );
+                iw.println("innerStmt = (" + stmtType + ") parentPooledConnection.checkoutStatement( method, args );");
+            }
+        }
+
         void generateFindMethodAndArgs( Method method, IndentedWriter iw ) throws IOException
         {
             iw.println("Class[] argTypes = ");
@@ -901,6 +970,7 @@ public abstract class JdbcProxyGenerator extends DelegatorGenerator
             super.generateExtraImports( iw );
             iw.println("import java.lang.reflect.InvocationTargetException;");
             iw.println("import com.mchange.v2.util.ResourceClosedException;");
+            iw.println("import com.mchange.v2.c3p0.stmt.GooGooStatementCache;");
         }
 
 	protected void generatePreDelegateCode( Class intfcl, String genclass, Method method, IndentedWriter iw ) throws IOException 
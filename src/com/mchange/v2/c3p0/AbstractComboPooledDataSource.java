@@ -28,6 +28,7 @@ public abstract class AbstractComboPooledDataSource extends AbstractPoolBackedDa
                     "lastCheckoutFailureDefaultUser",
                     "lastConnectionTestFailureDefaultUser",
                     "lastIdleTestFailureDefaultUser",
+                    "lastIdleTestSweepMillisDefaultUser",
                     "logWriter",
                     "loginTimeout",
                     "numBusyConnections",
@@ -56,6 +57,16 @@ public abstract class AbstractComboPooledDataSource extends AbstractPoolBackedDa
                     "statementCacheNumConnectionsWithCachedStatementsDefaultUser",
                     "statementCacheNumStatementsAllUsers",
                     "statementCacheNumStatementsDefaultUser",
+                    "statementCacheNumHitsAllUsers",
+                    "statementCacheNumHitsDefaultUser",
+                    "statementCacheNumMissesAllUsers",
+                    "statementCacheNumMissesDefaultUser",
+                    "statementCacheNumEvictionsAllUsers",
+                    "statementCacheNumEvictionsDefaultUser",
+                    "statementCacheNumOverloadStatementsAllUsers",
+                    "statementCacheNumOverloadStatementsDefaultUser",
+                    "statementCacheNumDeferredClosesAllUsers",
+                    "statementCacheNumDeferredClosesDefaultUser",
 		    "statementDestroyerNumConnectionsInUseAllUsers",
 		    "statementDestroyerNumConnectionsWithDeferredDestroyStatementsAllUsers",
 		    "statementDestroyerNumDeferredDestroyStatementsAllUsers",
@@ -78,6 +89,8 @@ public abstract class AbstractComboPooledDataSource extends AbstractPoolBackedDa
                     "reference",
                     "upTimeMillisDefaultUser",
                     "user",
+                    "warmDefaultUser",
+                    "warmupFutureDefaultUser",
                     "userOverridesAsString",
                     "allUsers",
                     "connectionPoolDataSource",
@@ -696,6 +709,258 @@ public abstract class AbstractComboPooledDataSource extends AbstractPoolBackedDa
 	}
     }
 
+    public boolean isLockFreeCheckouts()
+    { return wcpds.isLockFreeCheckouts(); }
+
+    public void setLockFreeCheckouts( boolean lockFreeCheckouts )
+    {
+	if ( diff( wcpds.isLockFreeCheckouts(), lockFreeCheckouts ) )
+	{
+	    wcpds.setLockFreeCheckouts( lockFreeCheckouts );
+	    this.resetPoolManager( false );
+	}
+    }
+
+    public boolean isThreadAffinity()
+    { return wcpds.isThreadAffinity(); }
+
+    public void setThreadAffinity( boolean threadAffinity )
+    {
+	if ( diff( wcpds.isThreadAffinity(), threadAffinity ) )
+	{
+	    wcpds.setThreadAffinity( threadAffinity );
+	    this.resetPoolManager( false );
+	}
+    }
+
+    public boolean isFairCheckouts()
+    { return wcpds.isFairCheckouts(); }
+
+    public void setFairCheckouts( boolean fairCheckouts )
+    {
+	if ( diff( wcpds.isFairCheckouts(), fairCheckouts ) )
+	{
+	    wcpds.setFairCheckouts( fairCheckouts );
+	    this.resetPoolManager( false );
+	}
+    }
+
+    public int getMaxConcurrentAcquires()
+    { return wcpds.getMaxConcurrentAcquires(); }
+
+    public void setMaxConcurrentAcquires( int maxConcurrentAcquires )
+    {
+	if ( diff( wcpds.getMaxConcurrentAcquires(), maxConcurrentAcquires ) )
+	{
+	    wcpds.setMaxConcurrentAcquires( maxConcurrentAcquires );
+	    this.resetPoolManager( false );
+	}
+    }
+
+    public boolean isBurstAcquisition()
+    { return wcpds.isBurstAcquisition(); }
+
+    public void setBurstAcquisition( boolean burstAcquisition )
+    {
+	if ( diff( wcpds.isBurstAcquisition(), burstAcquisition ) )
+	{
+	    wcpds.setBurstAcquisition( burstAcquisition );
+	    this.resetPoolManager( false );
+	}
+    }
+
+    public String getWarmupMode()
+    { return wcpds.getWarmupMode(); }
+
+    public void setWarmupMode( String warmupMode )
+    {
+	if ( diff( wcpds.getWarmupMode(), warmupMode ) )
+	{
+	    wcpds.setWarmupMode( warmupMode );
+	    this.resetPoolManager( false );
+	}
+    }
+
+    public String getSizingPolicyClassName()
+    { return wcpds.getSizingPolicyClassName(); }
+
+    public void setSizingPolicyClassName( String sizingPolicyClassName )
+    {
+	if ( diff( wcpds.getSizingPolicyClassName(), sizingPolicyClassName ) )
+	{
+	    wcpds.setSizingPolicyClassName( sizingPolicyClassName );
+	    this.resetPoolManager( false );
+	}
+    }
+
+    public int getSizingPolicyPeriod()
+    { return wcpds.getSizingPolicyPeriod(); }
+
+    public void setSizingPolicyPeriod( int sizingPolicyPeriod )
+    {
+	if ( diff( wcpds.getSizingPolicyPeriod(), sizingPolicyPeriod ) )
+	{
+	    wcpds.setSizingPolicyPeriod( sizingPolicyPeriod );
+	    this.resetPoolManager( false );
+	}
+    }
+
+    public boolean isStatementCachePartitioned()
+    { return wcpds.isStatementCachePartitioned(); }
+
+    public void setStatementCachePartitioned( boolean statementCachePartitioned )
+    {
+	if ( diff( wcpds.isStatementCachePartitioned(), statementCachePartitioned ) )
+	{
+	    wcpds.setStatementCachePartitioned( statementCachePartitioned );
+	    this.resetPoolManager( false );
+	}
+    }
+
+    public String getStatementCacheEvictionPolicy()
+    { return wcpds.getStatementCacheEvictionPolicy(); }
+
+    public void setStatementCacheEvictionPolicy( String statementCacheEvictionPolicy )
+    {
+	if ( diff( wcpds.getStatementCacheEvictionPolicy(), statementCacheEvictionPolicy ) )
+	{
+	    wcpds.setStatementCacheEvictionPolicy( statementCacheEvictionPolicy );
+	    this.resetPoolManager( false );
+	}
+    }
+
+    public int getStatementCacheSqlStatsSize()
+    { return wcpds.getStatementCacheSqlStatsSize(); }
+
+    public void setStatementCacheSqlStatsSize( int statementCacheSqlStatsSize )
+    {
+	if ( diff( wcpds.getStatementCacheSqlStatsSize(), statementCacheSqlStatsSize ) )
+	{
+	    wcpds.setStatementCacheSqlStatsSize( statementCacheSqlStatsSize );
+	    this.resetPoolManager( false );
+	}
+    }
+
+    public String getStatementCacheHotSqlFile()
+    { return wcpds.getStatementCacheHotSqlFile(); }
+
+    public void setStatementCacheHotSqlFile( String statementCacheHotSqlFile )
+    {
+	if ( diff( wcpds.getStatementCacheHotSqlFile(), statementCacheHotSqlFile ) )
+	{
+	    wcpds.setStatementCacheHotSqlFile( statementCacheHotSqlFile );
+	    this.resetPoolManager( false );
+	}
+    }
+
+    public boolean isStatementCacheLockFreePrepare()
+    { return wcpds.isStatementCacheLockFreePrepare(); }
+
+    public void setStatementCacheLockFreePrepare( boolean statementCacheLockFreePrepare )
+    {
+	if ( diff( wcpds.isStatementCacheLockFreePrepare(), statementCacheLockFreePrepare ) )
+	{
+	    wcpds.setStatementCacheLockFreePrepare( statementCacheLockFreePrepare );
+	    this.resetPoolManager( false );
+	}
+    }
+
+    public boolean isStatementCacheBatchDeferredCloses()
+    { return wcpds.isStatementCacheBatchDeferredCloses(); }
+
+    public void setStatementCacheBatchDeferredCloses( boolean statementCacheBatchDeferredCloses )
+    {
+	if ( diff( wcpds.isStatementCacheBatchDeferredCloses(), statementCacheBatchDeferredCloses ) )
+	{
+	    wcpds.setStatementCacheBatchDeferredCloses( statementCacheBatchDeferredCloses );
+	    this.resetPoolManager( false );
+	}
+    }
+
+    public int getValidationElisionWindow()
+    { return wcpds.getValidationElisionWindow(); }
+
+    public void setValidationElisionWindow( int validationElisionWindow )
+    {
+	if ( diff( wcpds.getValidationElisionWindow(), validationElisionWindow ) )
+	{
+	    wcpds.setValidationElisionWindow( validationElisionWindow );
+	    this.resetPoolManager( false );
+	}
+    }
+
+    public int getMaxConcurrentIdleTests()
+    { return wcpds.getMaxConcurrentIdleTests(); }
+
+    public void setMaxConcurrentIdleTests( int maxConcurrentIdleTests )
+    {
+	if ( diff( wcpds.getMaxConcurrentIdleTests(), maxConcurrentIdleTests ) )
+	{
+	    wcpds.setMaxConcurrentIdleTests( maxConcurrentIdleTests );
+	    this.resetPoolManager( false );
+	}
+    }
+
+    public int getCircuitBreakerThreshold()
+    { return wcpds.getCircuitBreakerThreshold(); }
+
+    public void setCircuitBreakerThreshold( int circuitBreakerThreshold )
+    {
+	if ( diff( wcpds.getCircuitBreakerThreshold(), circuitBreakerThreshold ) )
+	{
+	    wcpds.setCircuitBreakerThreshold( circuitBreakerThreshold );
+	    this.resetPoolManager( false );
+	}
+    }
+
+    public int getCircuitBreakerProbePeriod()
+    { return wcpds.getCircuitBreakerProbePeriod(); }
+
+    public void setCircuitBreakerProbePeriod( int circuitBreakerProbePeriod )
+    {
+	if ( diff( wcpds.getCircuitBreakerProbePeriod(), circuitBreakerProbePeriod ) )
+	{
+	    wcpds.setCircuitBreakerProbePeriod( circuitBreakerProbePeriod );
+	    this.resetPoolManager( false );
+	}
+    }
+
+    public int getAcquireRetryMaxDelay()
+    { return wcpds.getAcquireRetryMaxDelay(); }
+
+    public void setAcquireRetryMaxDelay( int acquireRetryMaxDelay )
+    {
+	if ( diff( wcpds.getAcquireRetryMaxDelay(), acquireRetryMaxDelay ) )
+	{
+	    wcpds.setAcquireRetryMaxDelay( acquireRetryMaxDelay );
+	    this.resetPoolManager( false );
+	}
+    }
+
+    public String getAcquireRetryJitter()
+    { return wcpds.getAcquireRetryJitter(); }
+
+    public void setAcquireRetryJitter( String acquireRetryJitter )
+    {
+	if ( diff( wcpds.getAcquireRetryJitter(), acquireRetryJitter ) )
+	{
+	    wcpds.setAcquireRetryJitter( acquireRetryJitter );
+	    this.resetPoolManager( false );
+	}
+    }
+
+    public int getMaxConcurrentConnectionAttempts()
+    { return wcpds.getMaxConcurrentConnectionAttempts(); }
+
+    public void setMaxConcurrentConnectionAttempts( int maxConcurrentConnectionAttempts )
+    {
+	if ( diff( wcpds.getMaxConcurrentConnectionAttempts(), maxConcurrentConnectionAttempts ) )
+	{
+	    wcpds.setMaxConcurrentConnectionAttempts( maxConcurrentConnectionAttempts );
+	    this.resetPoolManager( false );
+	}
+    }
+
     public int getStatementCacheNumDeferredCloseThreads()
     { return wcpds.getStatementCacheNumDeferredCloseThreads(); }
 
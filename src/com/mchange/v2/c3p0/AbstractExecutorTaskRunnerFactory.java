@@ -63,10 +63,12 @@ public abstract class AbstractExecutorTaskRunnerFactory implements TaskRunnerFac
      *   <pre><code>
      *   public int getThreadCount()      { return -1; }
      *   public int getIdleCount()        { return -1; }
-     *   public int getPendingTaskCount() { return -1; }
      *   </code></pre>
      *
      * Consider overriding those if you can!
+     *
+     * Pending tasks, posted to this runner but not yet started, are counted
+     * by this implementation.
      */
     protected abstract class AbstractExecutorAsynchronousRunner implements ThreadPoolReportingAsynchronousRunner
     {
@@ -83,11 +85,13 @@ public abstract class AbstractExecutorTaskRunnerFactory implements TaskRunnerFac
 
         //MT: protected by this' lock
         private HashSet  activeWrapperRunnables = new HashSet();
+        private int      pending_count          = 0;
         private boolean  is_closed              = false;
 
         protected synchronized void registerActive( WrapperRunnable wr )   { activeWrapperRunnables.add( wr );     }
         protected synchronized void unregisterActive( WrapperRunnable wr ) { activeWrapperRunnables.remove( wr );  }
         protected synchronized int  activeCount()                          { return activeWrapperRunnables.size(); }
+        protected synchronized int  pendingCount()                         { return pending_count; }
 
         protected synchronized HashSet snapshotActives() { return (HashSet) activeWrapperRunnables.clone(); }
 
@@ -127,6 +131,7 @@ public abstract class AbstractExecutorTaskRunnerFactory implements TaskRunnerFac
                     boolean interrupted = Thread.interrupted();
                     synchronized (AbstractExecutorAsynchronousRunner.this)
                     {
+                        --pending_count;
                         if (isClosed()) return;
                         if (interrupted)
                         {
@@ -167,7 +172,13 @@ public abstract class AbstractExecutorTaskRunnerFactory implements TaskRunnerFac
                 throw new ResourceClosedException("Attempted to use " + this + " after it has been closed.");
 
             final WrapperRunnable wr = new WrapperRunnable(r);
-            executor().execute(wr);
+            ++pending_count;
+            try { executor().execute(wr); }
+            catch (RuntimeException e)
+            {
+                --pending_count;
+                throw e;
+            }
 
             if (matt_ms > 0)
             {
@@ -217,7 +228,7 @@ public abstract class AbstractExecutorTaskRunnerFactory implements TaskRunnerFac
         public int getThreadCount()      { return -1; }
         public int getActiveCount()      { return activeCount(); }
         public int getIdleCount()        { return -1; }
-        public int getPendingTaskCount() { return -1; }
+        public int getPendingTaskCount() { return pendingCount(); }
 
         public String getStatus()
         {
@@ -0,0 +1,24 @@
+package com.mchange.v2.c3p0;
+
+import java.sql.SQLTransientConnectionException;
+
+/**
+ *  <p>Thrown by checkouts from a pool whose circuit breaker is open, because
+ *  consecutive attempts to acquire or test Connections have failed at least
+ *  <tt>circuitBreakerThreshold</tt> times. The pool probes the database in
+ *  the background, and checkouts succeed again once a probe does, so clients
+ *  may retry later.</p>
+ *
+ *  <p>The cause, if any, is the most recent failure to acquire or test
+ *  a Connection.</p>
+ */
+public class CircuitBreakerOpenException extends SQLTransientConnectionException
+{
+    private static final long serialVersionUID = 1;
+
+    public CircuitBreakerOpenException( String reason, Throwable cause )
+    { super( reason, "08001", cause ); }
+
+    public CircuitBreakerOpenException( String reason )
+    { super( reason, "08001" ); }
+}
@@ -165,6 +165,132 @@ public final class JndiRefConnectionPoolDataSource extends IdentityTokenResolvab
     public void setForceSynchronousCheckins( boolean forceSynchronousCheckins )
     { wcpds.setForceSynchronousCheckins( forceSynchronousCheckins ); }
 
+    public boolean isLockFreeCheckouts()
+    { return wcpds.isLockFreeCheckouts(); }
+
+    public void setLockFreeCheckouts( boolean lockFreeCheckouts )
+    { wcpds.setLockFreeCheckouts( lockFreeCheckouts ); }
+
+    public boolean isThreadAffinity()
+    { return wcpds.isThreadAffinity(); }
+
+    public void setThreadAffinity( boolean threadAffinity )
+    { wcpds.setThreadAffinity( threadAffinity ); }
+
+    public boolean isFairCheckouts()
+    { return wcpds.isFairCheckouts(); }
+
+    public void setFairCheckouts( boolean fairCheckouts )
+    { wcpds.setFairCheckouts( fairCheckouts ); }
+
+    public int getMaxConcurrentAcquires()
+    { return wcpds.getMaxConcurrentAcquires(); }
+
+    public void setMaxConcurrentAcquires( int maxConcurrentAcquires )
+    { wcpds.setMaxConcurrentAcquires( maxConcurrentAcquires ); }
+
+    public boolean isBurstAcquisition()
+    { return wcpds.isBurstAcquisition(); }
+
+    public void setBurstAcquisition( boolean burstAcquisition )
+    { wcpds.setBurstAcquisition( burstAcquisition ); }
+
+    public String getWarmupMode()
+    { return wcpds.getWarmupMode(); }
+
+    public void setWarmupMode( String warmupMode )
+    { wcpds.setWarmupMode( warmupMode ); }
+
+    public String getSizingPolicyClassName()
+    { return wcpds.getSizingPolicyClassName(); }
+
+    public void setSizingPolicyClassName( String sizingPolicyClassName )
+    { wcpds.setSizingPolicyClassName( sizingPolicyClassName ); }
+
+    public int getSizingPolicyPeriod()
+    { return wcpds.getSizingPolicyPeriod(); }
+
+    public void setSizingPolicyPeriod( int sizingPolicyPeriod )
+    { wcpds.setSizingPolicyPeriod( sizingPolicyPeriod ); }
+
+    public boolean isStatementCachePartitioned()
+    { return wcpds.isStatementCachePartitioned(); }
+
+    public void setStatementCachePartitioned( boolean statementCachePartitioned )
+    { wcpds.setStatementCachePartitioned( statementCachePartitioned ); }
+
+    public String getStatementCacheEvictionPolicy()
+    { return wcpds.getStatementCacheEvictionPolicy(); }
+
+    public void setStatementCacheEvictionPolicy( String statementCacheEvictionPolicy )
+    { wcpds.setStatementCacheEvictionPolicy( statementCacheEvictionPolicy ); }
+
+    public int getStatementCacheSqlStatsSize()
+    { return wcpds.getStatementCacheSqlStatsSize(); }
+
+    public void setStatementCacheSqlStatsSize( int statementCacheSqlStatsSize )
+    { wcpds.setStatementCacheSqlStatsSize( statementCacheSqlStatsSize ); }
+
+    public String getStatementCacheHotSqlFile()
+    { return wcpds.getStatementCacheHotSqlFile(); }
+
+    public void setStatementCacheHotSqlFile( String statementCacheHotSqlFile )
+    { wcpds.setStatementCacheHotSqlFile( statementCacheHotSqlFile ); }
+
+    public boolean isStatementCacheLockFreePrepare()
+    { return wcpds.isStatementCacheLockFreePrepare(); }
+
+    public void setStatementCacheLockFreePrepare( boolean statementCacheLockFreePrepare )
+    { wcpds.setStatementCacheLockFreePrepare( statementCacheLockFreePrepare ); }
+
+    public boolean isStatementCacheBatchDeferredCloses()
+    { return wcpds.isStatementCacheBatchDeferredCloses(); }
+
+    public void setStatementCacheBatchDeferredCloses( boolean statementCacheBatchDeferredCloses )
+    { wcpds.setStatementCacheBatchDeferredCloses( statementCacheBatchDeferredCloses ); }
+
+    public int getValidationElisionWindow()
+    { return wcpds.getValidationElisionWindow(); }
+
+    public void setValidationElisionWindow( int validationElisionWindow )
+    { wcpds.setValidationElisionWindow( validationElisionWindow ); }
+
+    public int getMaxConcurrentIdleTests()
+    { return wcpds.getMaxConcurrentIdleTests(); }
+
+    public void setMaxConcurrentIdleTests( int maxConcurrentIdleTests )
+    { wcpds.setMaxConcurrentIdleTests( maxConcurrentIdleTests ); }
+
+    public int getCircuitBreakerThreshold()
+    { return wcpds.getCircuitBreakerThreshold(); }
+
+    public void setCircuitBreakerThreshold( int circuitBreakerThreshold )
+    { wcpds.setCircuitBreakerThreshold( circuitBreakerThreshold ); }
+
+    public int getCircuitBreakerProbePeriod()
+    { return wcpds.getCircuitBreakerProbePeriod(); }
+
+    public void setCircuitBreakerProbePeriod( int circuitBreakerProbePeriod )
+    { wcpds.setCircuitBreakerProbePeriod( circuitBreakerProbePeriod ); }
+
+    public int getAcquireRetryMaxDelay()
+    { return wcpds.getAcquireRetryMaxDelay(); }
+
+    public void setAcquireRetryMaxDelay( int acquireRetryMaxDelay )
+    { wcpds.setAcquireRetryMaxDelay( acquireRetryMaxDelay ); }
+
+    public String getAcquireRetryJitter()
+    { return wcpds.getAcquireRetryJitter(); }
+
+    public void setAcquireRetryJitter( String acquireRetryJitter )
+    { wcpds.setAcquireRetryJitter( acquireRetryJitter ); }
+
+    public int getMaxConcurrentConnectionAttempts()
+    { return wcpds.getMaxConcurrentConnectionAttempts(); }
+
+    public void setMaxConcurrentConnectionAttempts( int maxConcurrentConnectionAttempts )
+    { wcpds.setMaxConcurrentConnectionAttempts( maxConcurrentConnectionAttempts ); }
+
     public String getIdentityToken()
     { return identityToken; }
 
@@ -298,17 +424,23 @@ public final class JndiRefConnectionPoolDataSource extends IdentityTokenResolvab
 	referenceMaker.addReferenceProperty("acquireIncrement");
 	referenceMaker.addReferenceProperty("acquireRetryAttempts");
 	referenceMaker.addReferenceProperty("acquireRetryDelay");
+	referenceMaker.addReferenceProperty("acquireRetryJitter");
+	referenceMaker.addReferenceProperty("acquireRetryMaxDelay");
 	referenceMaker.addReferenceProperty("attemptResurrectOnCheckin");
 	referenceMaker.addReferenceProperty("autoCommitOnClose");
 	referenceMaker.addReferenceProperty("automaticTestTable");
 	referenceMaker.addReferenceProperty("breakAfterAcquireFailure");
+	referenceMaker.addReferenceProperty("burstAcquisition");
 	referenceMaker.addReferenceProperty("checkoutTimeout");
+	referenceMaker.addReferenceProperty("circuitBreakerProbePeriod");
+	referenceMaker.addReferenceProperty("circuitBreakerThreshold");
 	referenceMaker.addReferenceProperty("connectionIsValidTimeout");
 	referenceMaker.addReferenceProperty("connectionCustomizerClassName");
 	referenceMaker.addReferenceProperty("connectionTesterClassName");
 	referenceMaker.addReferenceProperty("contextClassLoaderSource");
 	referenceMaker.addReferenceProperty("debugUnreturnedConnectionStackTraces");
 	referenceMaker.addReferenceProperty("factoryClassLocation");
+	referenceMaker.addReferenceProperty("fairCheckouts");
 	referenceMaker.addReferenceProperty("forceIgnoreUnresolvedTransactions");
 	referenceMaker.addReferenceProperty("forceSynchronousCheckins");
 	referenceMaker.addReferenceProperty("idleConnectionTestPeriod");
@@ -317,7 +449,11 @@ public final class JndiRefConnectionPoolDataSource extends IdentityTokenResolvab
 	referenceMaker.addReferenceProperty("jndiEnv");
 	referenceMaker.addReferenceProperty("jndiLookupCaching");
 	referenceMaker.addReferenceProperty("jndiName");
+	referenceMaker.addReferenceProperty("lockFreeCheckouts");
 	referenceMaker.addReferenceProperty("maxAdministrativeTaskTime");
+	referenceMaker.addReferenceProperty("maxConcurrentAcquires");
+	referenceMaker.addReferenceProperty("maxConcurrentConnectionAttempts");
+	referenceMaker.addReferenceProperty("maxConcurrentIdleTests");
 	referenceMaker.addReferenceProperty("maxConnectionAge");
 	referenceMaker.addReferenceProperty("maxIdleTime");
 	referenceMaker.addReferenceProperty("maxIdleTimeExcessConnections");
@@ -328,12 +464,23 @@ public final class JndiRefConnectionPoolDataSource extends IdentityTokenResolvab
 	referenceMaker.addReferenceProperty("preferredTestQuery");
 	referenceMaker.addReferenceProperty("privilegeSpawnedThreads");
 	referenceMaker.addReferenceProperty("propertyCycle");
+	referenceMaker.addReferenceProperty("sizingPolicyClassName");
+	referenceMaker.addReferenceProperty("sizingPolicyPeriod");
+	referenceMaker.addReferenceProperty("statementCacheBatchDeferredCloses");
+	referenceMaker.addReferenceProperty("statementCacheEvictionPolicy");
+	referenceMaker.addReferenceProperty("statementCacheHotSqlFile");
+	referenceMaker.addReferenceProperty("statementCacheLockFreePrepare");
 	referenceMaker.addReferenceProperty("statementCacheNumDeferredCloseThreads");
+	referenceMaker.addReferenceProperty("statementCachePartitioned");
+	referenceMaker.addReferenceProperty("statementCacheSqlStatsSize");
 	referenceMaker.addReferenceProperty("taskRunnerFactoryClassName");
 	referenceMaker.addReferenceProperty("testConnectionOnCheckin");
 	referenceMaker.addReferenceProperty("testConnectionOnCheckout");
+	referenceMaker.addReferenceProperty("threadAffinity");
 	referenceMaker.addReferenceProperty("unreturnedConnectionTimeout");
 	referenceMaker.addReferenceProperty("userOverridesAsString");
+	referenceMaker.addReferenceProperty("validationElisionWindow");
+	referenceMaker.addReferenceProperty("warmupMode");
     }
 
     public Reference getReference() throws NamingException
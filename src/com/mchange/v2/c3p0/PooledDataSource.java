@@ -3,7 +3,9 @@ package com.mchange.v2.c3p0;
 import java.sql.SQLException;
 import javax.sql.DataSource;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
 
 /**
  *  <p><b>Most clients need never use or know about this interface -- c3p0 pooled DataSources
@@ -120,9 +122,34 @@ public interface PooledDataSource extends DataSource, AutoCloseable
     public long getNumFailedCheckinsDefaultUser() throws SQLException;
     public long getNumFailedCheckoutsDefaultUser() throws SQLException;
     public long getNumFailedIdleTestsDefaultUser() throws SQLException;
+
+    /**
+     * The time in milliseconds taken by the default-authentication pool's most recently
+     * completed round of idle Connection tests, or -1 if no round has completed.
+     * See config parameter <tt>maxConcurrentIdleTests</tt>.
+     */
+    public long getLastIdleTestSweepMillisDefaultUser() throws SQLException;
+
     public float getEffectivePropertyCycleDefaultUser() throws SQLException;
     public int getNumThreadsAwaitingCheckoutDefaultUser() throws SQLException;
 
+    /**
+     * true once the PooledDataSource's default-authentication pool has acquired its
+     * <tt>initialPoolSize</tt> Connections. Suitable as a readiness check. Initializes
+     * the pool, if it has not been initialized.
+     */
+    public boolean isWarmDefaultUser() throws SQLException;
+
+    /**
+     * Returns a Future that completes when the PooledDataSource's default-authentication pool
+     * has acquired its <tt>initialPoolSize</tt> Connections (tested, unless <tt>warmupMode</tt>
+     * is <tt>none</tt>), or fails if the pool is closed first. Its <tt>get()</tt> methods
+     * return null. If a round of acquisition attempts fails before the pool is warm, Threads
+     * then blocked in <tt>get()</tt> see the failure, while later calls await the next round.
+     * Initializes the pool, if it has not been initialized.
+     */
+    public Future getWarmupFutureDefaultUser() throws SQLException;
+
     /**
      * Discards all Connections managed by the PooledDataSource's default-authentication pool
      * and reacquires new Connections to populate.
@@ -162,6 +189,44 @@ public interface PooledDataSource extends DataSource, AutoCloseable
     public int getStatementCacheNumCheckedOutStatementsAllUsers() throws SQLException;
     public int getStatementCacheNumConnectionsWithCachedStatementsAllUsers() throws SQLException;
 
+    /**
+     *  Statement cache statistics are cumulative since each pool was created. The prepare
+     *  latency histogram counts the Statements the cache has prepared by how long they took,
+     *  in power-of-two buckets of microseconds: bucket 0 counts prepares that took less than
+     *  1 microsecond, bucket i counts those that took at least 2^(i-1) but less than 2^i, and
+     *  the last bucket counts everything slower. See com.mchange.v2.c3p0.stmt.StatementCacheStats.
+     */
+    public long getStatementCacheNumHitsDefaultUser() throws SQLException;
+    public long getStatementCacheNumMissesDefaultUser() throws SQLException;
+    public long getStatementCacheNumEvictionsDefaultUser() throws SQLException;
+    public long getStatementCacheNumOverloadStatementsDefaultUser() throws SQLException;
+    public long getStatementCacheNumDeferredClosesDefaultUser() throws SQLException;
+    public long[] sampleStatementCachePrepareLatencyHistogramDefaultUser() throws SQLException;
+
+    public long getStatementCacheNumHits(String username, String password) throws SQLException;
+    public long getStatementCacheNumMisses(String username, String password) throws SQLException;
+    public long getStatementCacheNumEvictions(String username, String password) throws SQLException;
+    public long getStatementCacheNumOverloadStatements(String username, String password) throws SQLException;
+    public long getStatementCacheNumDeferredCloses(String username, String password) throws SQLException;
+    public long[] sampleStatementCachePrepareLatencyHistogram(String username, String password) throws SQLException;
+
+    public long getStatementCacheNumHitsAllUsers() throws SQLException;
+    public long getStatementCacheNumMissesAllUsers() throws SQLException;
+    public long getStatementCacheNumEvictionsAllUsers() throws SQLException;
+    public long getStatementCacheNumOverloadStatementsAllUsers() throws SQLException;
+    public long getStatementCacheNumDeferredClosesAllUsers() throws SQLException;
+    public long[] sampleStatementCachePrepareLatencyHistogramAllUsers() throws SQLException;
+
+    /**
+     *  When the config parameter <tt>statementCacheSqlStatsSize</tt> is positive, statement caches
+     *  keep per-SQL statistics for (approximately) that many of their most checked-out SQL strings.
+     *  These methods return Lists of at most <tt>n</tt> {@link com.mchange.v2.c3p0.stmt.StatementCacheSqlStats},
+     *  most checked-out first, or empty Lists if per-SQL statistics are not kept.
+     */
+    public List sampleStatementCacheTopSqlStatsDefaultUser(int n) throws SQLException;
+    public List sampleStatementCacheTopSqlStats(String username, String password, int n) throws SQLException;
+    public List sampleStatementCacheTopSqlStatsAllUsers(int n) throws SQLException;
+
     public int getStatementDestroyerNumConnectionsInUseAllUsers() throws SQLException;
     public int getStatementDestroyerNumConnectionsWithDeferredDestroyStatementsAllUsers() throws SQLException;
     public int getStatementDestroyerNumDeferredDestroyStatementsAllUsers() throws SQLException;
@@ -0,0 +1,66 @@
+package com.mchange.v2.c3p0;
+
+import java.lang.reflect.Method;
+import java.util.Timer;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import com.mchange.v2.async.ThreadPoolReportingAsynchronousRunner;
+import com.mchange.v2.log.*;
+
+/**
+ *  Runs each helper task in its own virtual thread, so that slow tasks (acquiring Connections
+ *  from a slow <code>Driver</code>, Connection tests) never wait for a free helper thread.
+ *  <code>numHelperThreads</code> is ignored. Supports <code>maxAdministrativeTaskTime</code>,
+ *  <code>contextClassLoaderSource</code>, and <code>privilegeSpawnedThreads</code>.
+ *
+ *  <p>Requires a JVM that supports virtual threads (Java 21+), but c3p0 itself
+ *  may be built against older APIs, so virtual threads are created reflectively.</p>
+ *
+ *  <p>Unlike c3p0-loom's <code>com.mchange.v2.c3p0.loom.VirtualThreadPerTaskExecutorTaskRunnerFactory</code>,
+ *  this needs no separate Java 21 artifact.</p>
+ */
+public final class ReflectiveVirtualThreadTaskRunnerFactory extends AbstractExecutorTaskRunnerFactory
+{
+    private final static MLogger logger = MLog.getLogger( ReflectiveVirtualThreadTaskRunnerFactory.class );
+
+    // for lazy initialization, called only on first-use
+    protected Executor findCreateExecutor( TaskRunnerInit init )
+    {
+        try
+        {
+            // Thread.ofVirtual().name( threadLabel + "-", 1 ).factory()
+            Class builderClass = Class.forName( "java.lang.Thread$Builder$OfVirtual" );
+            Object builder = Thread.class.getMethod( "ofVirtual" ).invoke( null );
+            builder = builderClass.getMethod( "name", String.class, long.class ).invoke( builder, init.threadLabelIfSupported + "-", 1L );
+            ThreadFactory vtf = (ThreadFactory) builderClass.getMethod( "factory" ).invoke( builder );
+
+            ThreadFactory tf = new TaskRunnerThreadFactory( init.contextClassLoaderSourceIfSupported, init.privilege_spawned_threads_if_supported, vtf );
+
+            // Executors.newThreadPerTaskExecutor( tf )
+            Method m = Executors.class.getMethod( "newThreadPerTaskExecutor", ThreadFactory.class );
+            return (Executor) m.invoke( null, tf );
+        }
+        catch ( Exception e )
+        {
+            if ( logger.isLoggable( MLevel.SEVERE ) )
+                logger.log( MLevel.SEVERE, "Could not create a virtual-thread-per-task Executor. Virtual threads require Java 21+.", e );
+            throw new UnsupportedOperationException( "Could not create a virtual-thread-per-task Executor. Virtual threads require Java 21+.", e );
+        }
+    }
+
+    protected boolean taskRunnerOwnsExecutor() { return true; }
+
+    protected ThreadPoolReportingAsynchronousRunner createTaskRunner( TaskRunnerInit init, Timer timer )
+    { return new ReflectiveVirtualThreadAsynchronousRunner( init, timer ); }
+
+    protected final class ReflectiveVirtualThreadAsynchronousRunner extends AbstractExecutorAsynchronousRunner
+    {
+        protected ReflectiveVirtualThreadAsynchronousRunner( TaskRunnerInit init, Timer timer )
+        { super( init, timer ); }
+
+        // every posted task gets its own thread, which lives only as long as the task
+        public int getThreadCount() { return getActiveCount() + getPendingTaskCount(); }
+        public int getIdleCount()   { return 0; }
+    }
+}
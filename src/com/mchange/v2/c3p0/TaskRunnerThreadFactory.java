@@ -36,6 +36,7 @@ public final class TaskRunnerThreadFactory implements ThreadFactory
     boolean privilege_spawned_threads;
     String threadLabel;
     ThreadGroup threadGroup;
+    ThreadFactory unconfiguredThreadFactory;
 
     //MT: Protected by this' lock
     int count = 0;
@@ -55,6 +56,17 @@ public final class TaskRunnerThreadFactory implements ThreadFactory
         this.privilege_spawned_threads = privilege_spawned_threads;
         this.threadLabel = threadLabel;
         this.threadGroup = threadGroup;
+        this.unconfiguredThreadFactory = null;
+    }
+
+    /**
+     * Configures Threads created by unconfiguredThreadFactory (which should take care of naming them),
+     * rather than creating ordinary platform Threads. Useful, for example, for virtual threads.
+     */
+    public TaskRunnerThreadFactory( String contextClassLoaderSource, boolean privilege_spawned_threads, ThreadFactory unconfiguredThreadFactory )
+    {
+        this( contextClassLoaderSource, privilege_spawned_threads, null, null );
+        this.unconfiguredThreadFactory = unconfiguredThreadFactory;
     }
 
     private synchronized int nextCount()
@@ -62,7 +74,11 @@ public final class TaskRunnerThreadFactory implements ThreadFactory
 
     private Thread createUnprivileged(Runnable r)
     {
-        Thread out = new Thread(threadGroup, r, threadLabel + "-" + nextCount());
+        Thread out;
+        if (unconfiguredThreadFactory == null)
+            out = new Thread(threadGroup, r, threadLabel + "-" + nextCount());
+        else
+            out = unconfiguredThreadFactory.newThread(r);
         contextClassLoaderSetter.set(out);
         return out;
     }
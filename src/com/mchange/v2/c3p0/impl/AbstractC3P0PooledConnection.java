@@ -2,6 +2,7 @@ package com.mchange.v2.c3p0.impl;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.concurrent.locks.ReentrantLock;
 import javax.sql.PooledConnection;
 import com.mchange.v2.c3p0.stmt.GooGooStatementCache;
 import com.mchange.v1.util.ClosableResource;
@@ -12,7 +13,8 @@ abstract class AbstractC3P0PooledConnection implements PooledConnection, Closabl
     // since the StatementCache "in-use" marker doesn't nest, we have to ensure that
     // internal uses Connection tests don't overlap. (External use, due to checkout,
     // is no problem, no internal operation are performed on checked-out PooledConnections
-    final Object inInternalUseLock = new Object();
+    // a java.util.concurrent lock, because tests performed while holding it do network I/O
+    final ReentrantLock inInternalUseLock = new ReentrantLock();
 
     abstract Connection getPhysicalConnection();
     abstract void initStatementCache(GooGooStatementCache scache);
@@ -17,8 +17,10 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Future;
 import com.mchange.v2.c3p0.cfg.C3P0Config;
 
 public abstract class AbstractPoolBackedDataSource extends PoolBackedDataSourceBase implements PooledDataSource
@@ -176,9 +178,18 @@ public abstract class AbstractPoolBackedDataSource extends PoolBackedDataSourceB
     public long getNumFailedIdleTestsDefaultUser() throws SQLException
     { return getPoolManager().getPool().getNumFailedIdleTests(); }
 
+    public long getLastIdleTestSweepMillisDefaultUser() throws SQLException
+    { return getPoolManager().getPool().getLastIdleTestSweepMillis(); }
+
     public int getNumThreadsAwaitingCheckoutDefaultUser() throws SQLException
     { return getPoolManager().getPool().getNumThreadsAwaitingCheckout(); }
 
+    public boolean isWarmDefaultUser() throws SQLException
+    { return getPoolManager().getPool().isWarm(); }
+
+    public Future getWarmupFutureDefaultUser() throws SQLException
+    { return getPoolManager().getPool().getWarmupFuture(); }
+
     public int getThreadPoolSize() throws SQLException
     { return getPoolManager().getThreadPoolSize(); }
 
@@ -338,6 +349,9 @@ public abstract class AbstractPoolBackedDataSource extends PoolBackedDataSourceB
     public long getNumFailedIdleTests(String username, String password) throws SQLException
     { return assertAuthPool(username, password).getNumFailedIdleTests(); }
 
+    public long getLastIdleTestSweepMillis(String username, String password) throws SQLException
+    { return assertAuthPool(username, password).getLastIdleTestSweepMillis(); }
+
     public void softReset(String username, String password) throws SQLException
     { assertAuthPool(username, password).reset(); }
 
@@ -362,6 +376,69 @@ public abstract class AbstractPoolBackedDataSource extends PoolBackedDataSourceB
     public int getStatementCacheNumConnectionsWithCachedStatementsAllUsers() throws SQLException
     { return getPoolManager().getStatementCacheNumConnectionsWithCachedStatementsAllUsers(); }
 
+    public long getStatementCacheNumHitsDefaultUser() throws SQLException
+    { return getPoolManager().getPool().getStatementCacheNumHits(); }
+
+    public long getStatementCacheNumMissesDefaultUser() throws SQLException
+    { return getPoolManager().getPool().getStatementCacheNumMisses(); }
+
+    public long getStatementCacheNumEvictionsDefaultUser() throws SQLException
+    { return getPoolManager().getPool().getStatementCacheNumEvictions(); }
+
+    public long getStatementCacheNumOverloadStatementsDefaultUser() throws SQLException
+    { return getPoolManager().getPool().getStatementCacheNumOverloadStatements(); }
+
+    public long getStatementCacheNumDeferredClosesDefaultUser() throws SQLException
+    { return getPoolManager().getPool().getStatementCacheNumDeferredCloses(); }
+
+    public long[] sampleStatementCachePrepareLatencyHistogramDefaultUser() throws SQLException
+    { return getPoolManager().getPool().getStatementCachePrepareLatencyHistogram(); }
+
+    public long getStatementCacheNumHits(String username, String password) throws SQLException
+    { return assertAuthPool(username, password).getStatementCacheNumHits(); }
+
+    public long getStatementCacheNumMisses(String username, String password) throws SQLException
+    { return assertAuthPool(username, password).getStatementCacheNumMisses(); }
+
+    public long getStatementCacheNumEvictions(String username, String password) throws SQLException
+    { return assertAuthPool(username, password).getStatementCacheNumEvictions(); }
+
+    public long getStatementCacheNumOverloadStatements(String username, String password) throws SQLException
+    { return assertAuthPool(username, password).getStatementCacheNumOverloadStatements(); }
+
+    public long getStatementCacheNumDeferredCloses(String username, String password) throws SQLException
+    { return assertAuthPool(username, password).getStatementCacheNumDeferredCloses(); }
+
+    public long[] sampleStatementCachePrepareLatencyHistogram(String username, String password) throws SQLException
+    { return assertAuthPool(username, password).getStatementCachePrepareLatencyHistogram(); }
+
+    public long getStatementCacheNumHitsAllUsers() throws SQLException
+    { return getPoolManager().getStatementCacheNumHitsAllUsers(); }
+
+    public long getStatementCacheNumMissesAllUsers() throws SQLException
+    { return getPoolManager().getStatementCacheNumMissesAllUsers(); }
+
+    public long getStatementCacheNumEvictionsAllUsers() throws SQLException
+    { return getPoolManager().getStatementCacheNumEvictionsAllUsers(); }
+
+    public long getStatementCacheNumOverloadStatementsAllUsers() throws SQLException
+    { return getPoolManager().getStatementCacheNumOverloadStatementsAllUsers(); }
+
+    public long getStatementCacheNumDeferredClosesAllUsers() throws SQLException
+    { return getPoolManager().getStatementCacheNumDeferredClosesAllUsers(); }
+
+    public long[] sampleStatementCachePrepareLatencyHistogramAllUsers() throws SQLException
+    { return getPoolManager().getStatementCachePrepareLatencyHistogramAllUsers(); }
+
+    public List sampleStatementCacheTopSqlStatsDefaultUser(int n) throws SQLException
+    { return getPoolManager().getPool().getStatementCacheTopSqlStats( n ); }
+
+    public List sampleStatementCacheTopSqlStats(String username, String password, int n) throws SQLException
+    { return assertAuthPool(username, password).getStatementCacheTopSqlStats( n ); }
+
+    public List sampleStatementCacheTopSqlStatsAllUsers(int n) throws SQLException
+    { return getPoolManager().getStatementCacheTopSqlStatsAllUsers( n ); }
+
     // Statement Destroyer stuff
 
     public int getStatementDestroyerNumConnectionsInUseAllUsers() throws SQLException
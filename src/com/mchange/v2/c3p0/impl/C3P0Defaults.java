@@ -32,6 +32,15 @@ public final class C3P0Defaults
     private final static int MAX_CONNECTION_AGE                         = 0;    //seconds
     private final static int UNRETURNED_CONNECTION_TIMEOUT              = 0;    //seconds
     private final static int STATEMENT_CACHE_NUM_DEFERRED_CLOSE_THREADS = 0;
+    private final static int MAX_CONCURRENT_ACQUIRES                    = 0;
+    private final static int SIZING_POLICY_PERIOD                       = 5;    //seconds
+    private final static int STATEMENT_CACHE_SQL_STATS_SIZE             = 0;
+    private final static int VALIDATION_ELISION_WINDOW                  = 0;    //milliseconds
+    private final static int MAX_CONCURRENT_IDLE_TESTS                  = 0;
+    private final static int CIRCUIT_BREAKER_THRESHOLD                  = 0;
+    private final static int CIRCUIT_BREAKER_PROBE_PERIOD               = 1000; //milliseconds
+    private final static int ACQUIRE_RETRY_MAX_DELAY                    = 0;    //milliseconds
+    private final static int MAX_CONCURRENT_CONNECTION_ATTEMPTS         = 0;
 
 
     private final static boolean BREAK_AFTER_ACQUIRE_FAILURE                 = false;
@@ -44,6 +53,13 @@ public final class C3P0Defaults
     private final static boolean PRIVILEGE_SPAWNED_THREADS                   = false;
     private final static boolean FORCE_USE_NAMED_DRIVER_CLASS                = false;
     private final static boolean FORCE_SYNCHRONOUS_CHECKINS                  = false;
+    private final static boolean LOCK_FREE_CHECKOUTS                         = false;
+    private final static boolean THREAD_AFFINITY                             = false;
+    private final static boolean FAIR_CHECKOUTS                              = false;
+    private final static boolean BURST_ACQUISITION                           = false;
+    private final static boolean STATEMENT_CACHE_PARTITIONED                 = false;
+    private final static boolean STATEMENT_CACHE_LOCK_FREE_PREPARE           = false;
+    private final static boolean STATEMENT_CACHE_BATCH_DEFERRED_CLOSES       = false;
 
     private final static int NUM_HELPER_THREADS = 3;
 
@@ -61,6 +77,11 @@ public final class C3P0Defaults
     private final static String FACTORY_CLASS_LOCATION           = null;
     private final static String USER_OVERRIDES_AS_STRING         = null;
     private final static String USER                             = null;
+    private final static String WARMUP_MODE                      = "none"; // none | background | blocking
+    private final static String SIZING_POLICY_CLASS_NAME         = null;
+    private final static String STATEMENT_CACHE_EVICTION_POLICY  = "lru"; // lru | tinylfu
+    private final static String STATEMENT_CACHE_HOT_SQL_FILE     = null;
+    private final static String ACQUIRE_RETRY_JITTER             = "none"; // none | full | decorrelated
 
     private final static String DATA_SOURCE_NAME                 = null;
 
@@ -257,6 +278,69 @@ public final class C3P0Defaults
     public static boolean forceSynchronousCheckins()
     { return FORCE_SYNCHRONOUS_CHECKINS; }
 
+    public static boolean lockFreeCheckouts()
+    { return LOCK_FREE_CHECKOUTS; }
+
+    public static boolean threadAffinity()
+    { return THREAD_AFFINITY; }
+
+    public static boolean fairCheckouts()
+    { return FAIR_CHECKOUTS; }
+
+    public static int maxConcurrentAcquires()
+    { return MAX_CONCURRENT_ACQUIRES; }
+
+    public static boolean burstAcquisition()
+    { return BURST_ACQUISITION; }
+
+    public static String warmupMode()
+    { return WARMUP_MODE; }
+
+    public static String sizingPolicyClassName()
+    { return SIZING_POLICY_CLASS_NAME; }
+
+    public static int sizingPolicyPeriod()
+    { return SIZING_POLICY_PERIOD; }
+
+    public static boolean statementCachePartitioned()
+    { return STATEMENT_CACHE_PARTITIONED; }
+
+    public static String statementCacheEvictionPolicy()
+    { return STATEMENT_CACHE_EVICTION_POLICY; }
+
+    public static int statementCacheSqlStatsSize()
+    { return STATEMENT_CACHE_SQL_STATS_SIZE; }
+
+    public static String statementCacheHotSqlFile()
+    { return STATEMENT_CACHE_HOT_SQL_FILE; }
+
+    public static boolean statementCacheLockFreePrepare()
+    { return STATEMENT_CACHE_LOCK_FREE_PREPARE; }
+
+    public static boolean statementCacheBatchDeferredCloses()
+    { return STATEMENT_CACHE_BATCH_DEFERRED_CLOSES; }
+
+    public static int validationElisionWindow()
+    { return VALIDATION_ELISION_WINDOW; }
+
+    public static int maxConcurrentIdleTests()
+    { return MAX_CONCURRENT_IDLE_TESTS; }
+
+    public static int circuitBreakerThreshold()
+    { return CIRCUIT_BREAKER_THRESHOLD; }
+
+    public static int circuitBreakerProbePeriod()
+    { return CIRCUIT_BREAKER_PROBE_PERIOD; }
+
+    public static int acquireRetryMaxDelay()
+    { return ACQUIRE_RETRY_MAX_DELAY; }
+
+    public static String acquireRetryJitter()
+    { return ACQUIRE_RETRY_JITTER; }
+
+    public static int maxConcurrentConnectionAttempts()
+    { return MAX_CONCURRENT_CONNECTION_ATTEMPTS; }
+
     public static Map extensions()
     { return EXTENSIONS; }
 }
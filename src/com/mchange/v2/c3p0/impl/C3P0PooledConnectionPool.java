@@ -10,8 +10,22 @@ import java.lang.reflect.Method;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.SQLWarning;
+import java.lang.ref.WeakReference;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Timer;
 import java.util.WeakHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.sql.ConnectionEvent;
 import javax.sql.ConnectionEventListener;
@@ -27,10 +41,13 @@ import com.mchange.v2.log.MLogger;
 import com.mchange.v2.c3p0.C3P0Registry;
 import com.mchange.v2.c3p0.ConnectionTester;
 import com.mchange.v2.c3p0.QueryConnectionTester;
+import com.mchange.v2.resourcepool.AcquireRetryPolicy;
+import com.mchange.v2.resourcepool.BackoffAcquireRetryPolicy;
 import com.mchange.v2.resourcepool.CannotAcquireResourceException;
 import com.mchange.v2.resourcepool.ResourcePool;
 import com.mchange.v2.resourcepool.ResourcePoolException;
 import com.mchange.v2.resourcepool.ResourcePoolFactory;
+import com.mchange.v2.resourcepool.SizingPolicy;
 import com.mchange.v2.resourcepool.TimeoutException;
 import com.mchange.v2.sql.SqlUtils;
 
@@ -48,18 +65,39 @@ public final class C3P0PooledConnectionPool
 
     final Resurrectables resurrectables;
 
+    // null unless statementCacheHotSqlFile is set (and Statements are cached), in which
+    // case newly acquired Connections are warmed with up to hot_sql_per_connection Statements
+    final File hotSqlFile;
+    final int  hot_sql_per_connection;
+    final List hotSqlFromFile; // immutable
+
+    // null unless threadAffinity is set. holds, per Thread, a WeakReference to the
+    // PooledConnection most recently checked-in by that Thread.
+    final ThreadLocal lastCheckedIn;
+
     final boolean c3p0PooledConnections;
 
     final int checkoutTimeout;
     final int connectionIsValidTimeout;
 
+    // milliseconds. zero unless validationElisionWindow is set, in which case Connections
+    // that have proven themselves live more recently aren't tested on checkout or when idle
+    final int validationElisionWindow;
+
+    // null unless circuitBreakerThreshold is set
+    final CircuitBreaker circuitBreaker;
+
+    // null unless maxConcurrentConnectionAttempts is set, in which case
+    // shared by all of the pool manager's pools
+    final Semaphore connectionAttemptPermits;
+
     final AsynchronousRunner sharedTaskRunner;
     final AsynchronousRunner deferredStatementDestroyer;;
 
     final InUseLockFetcher inUseLockFetcher;
 
-    //MT: protected by this' lock
-    private RequestBoundaryMarker requestBoundaryMarker;
+    //MT: set while holding this' lock, but volatile, so that once set it may be read without it
+    private volatile RequestBoundaryMarker requestBoundaryMarker;
 
     public int getStatementDestroyerNumConnectionsInUse()                           { return scache == null ? -1 : scache.getStatementDestroyerNumConnectionsInUse(); }
     public int getStatementDestroyerNumConnectionsWithDeferredDestroyStatements()   { return scache == null ? -1 : scache.getStatementDestroyerNumConnectionsWithDeferredDestroyStatements(); }
@@ -98,26 +136,41 @@ public final class C3P0PooledConnectionPool
      *  But what lock to hold? The obvious choice is the tested resource's
      *  lock, but NewPooledConnection is designed for use by clients that
      *  do not hold its lock. So, we give NewPooledConnection an internal
-     *  Object, an "inInternalUseLock", and lock on this resource instead.
+     *  lock, an "inInternalUseLock", and lock on this instead. PooledConnections
+     *  from other ConnectionPoolDataSources share a few striped locks.
+     *
+     *  Tests and customizer callbacks perform network I/O while holding
+     *  these locks, so they are java.util.concurrent locks rather than
+     *  monitors, which would pin the carriers of virtual Threads that
+     *  test Connections on checkout.
      */
 
     private interface InUseLockFetcher
     {
-	public Object getInUseLock(Object resc);
+	public Lock getInUseLock(Object resc);
     }
 
-    private static class ResourceItselfInUseLockFetcher implements InUseLockFetcher
+    private static class StripedInUseLockFetcher implements InUseLockFetcher
     {
-	public Object getInUseLock(Object resc) { return resc; }
+	final Lock[] stripes = new Lock[32];
+
+	StripedInUseLockFetcher()
+	{
+	    for (int i = 0; i < stripes.length; ++i)
+		stripes[i] = new ReentrantLock();
+	}
+
+	public Lock getInUseLock(Object resc)
+	{ return stripes[ (System.identityHashCode(resc) & 0x7fffffff) % stripes.length ]; }
     }
 
     private static class C3P0PooledConnectionNestedLockLockFetcher implements InUseLockFetcher
     {
-	public Object getInUseLock(Object resc)
+	public Lock getInUseLock(Object resc)
 	{ return ((AbstractC3P0PooledConnection) resc).inInternalUseLock; }
     }
 
-    private static InUseLockFetcher RESOURCE_ITSELF_IN_USE_LOCK_FETCHER = new ResourceItselfInUseLockFetcher();
+    private static InUseLockFetcher STRIPED_IN_USE_LOCK_FETCHER = new StripedInUseLockFetcher();
     private static InUseLockFetcher C3P0_POOLED_CONNECION_NESTED_LOCK_LOCK_FETCHER = new C3P0PooledConnectionNestedLockLockFetcher();
 
     private interface RequestBoundaryMarker
@@ -143,7 +196,8 @@ public final class C3P0PooledConnectionPool
 		try
 		{
                     conn.beginRequest();
-		    logger.log(MLevel.FINEST, "beginRequest method called");
+		    if (logger.isLoggable(MLevel.FINEST))
+			logger.log(MLevel.FINEST, "beginRequest method called");
 		}
                 catch (AbstractMethodError ame)
                 {
@@ -162,7 +216,8 @@ public final class C3P0PooledConnectionPool
 		try
 		{
                     conn.endRequest();
-		    logger.log(MLevel.FINEST, "endRequest method called");
+		    if (logger.isLoggable(MLevel.FINEST))
+			logger.log(MLevel.FINEST, "endRequest method called");
 		}
                 catch (AbstractMethodError ame)
                 {
@@ -176,7 +231,16 @@ public final class C3P0PooledConnectionPool
 
     // we assume (pretty safely I think) that all PooledConnections we see will have the same type
     // and physical connection type
-    private synchronized RequestBoundaryMarker findRequestBoundaryMarker(PooledConnection pc)
+    //
+    // the marker is found once, but consulted on every checkout and checkin, so we
+    // don't contend for this' lock once it is set
+    private RequestBoundaryMarker findRequestBoundaryMarker(PooledConnection pc)
+    {
+	RequestBoundaryMarker out = this.requestBoundaryMarker;
+	return ( out != null ? out : initRequestBoundaryMarker(pc) );
+    }
+
+    private synchronized RequestBoundaryMarker initRequestBoundaryMarker(PooledConnection pc)
     {
 	if (this.requestBoundaryMarker != null)
 	    return this.requestBoundaryMarker;
@@ -225,6 +289,8 @@ public final class C3P0PooledConnectionPool
 			      int inc,
 			      int acq_retry_attempts,
 			      int acq_retry_delay,
+			      int acq_retry_max_delay,
+			      String acq_retry_jitter,
 			      boolean break_after_acq_failure,
 			      int checkoutTimeout, //milliseconds
 			      final int connectionIsValidTimeout, // seconds
@@ -236,11 +302,27 @@ public final class C3P0PooledConnectionPool
 			      int unreturnedConnectionTimeout, //seconds
 			      boolean debugUnreturnedConnectionStackTraces,
 			      boolean forceSynchronousCheckins,
+			      boolean lockFreeCheckouts,
+			      boolean threadAffinity,
+			      boolean fairCheckouts,
+			      boolean burstAcquisition,
+			      boolean validateWarmup,
+			      SizingPolicy sizingPolicy, // may be null
+			      int sizingPolicyPeriod, //seconds
 			      final boolean testConnectionOnCheckout,
 			      final boolean testConnectionOnCheckin,
                               boolean attemptResurrectOnCheckin,
 			      int maxStatements,
 			      int maxStatementsPerConnection,
+			      boolean statementCachePartitioned,
+			      String statementCacheEvictionPolicy,
+			      int statementCacheSqlStatsSize,
+			      String statementCacheHotSqlFile,
+			      boolean statementCacheLockFreePrepare,
+			      boolean statementCacheBatchDeferredCloses,
+			      int validationElisionWindow,
+			      int circuitBreakerThreshold,
+			      int circuitBreakerProbePeriod, //milliseconds
 			      /* boolean statementCacheDeferredClose,      */
 			      final ConnectionTester connectionTester,
 			      final ConnectionCustomizer connectionCustomizer,
@@ -248,11 +330,54 @@ public final class C3P0PooledConnectionPool
 			      final ResourcePoolFactory fact,
 			      ThreadPoolReportingAsynchronousRunner taskRunner,
 			      ThreadPoolReportingAsynchronousRunner deferredStatementDestroyer,
+			      Timer timer,
+			      Semaphore connectionAttemptPermits, // may be null
 			      final String parentDataSourceIdentityToken) throws SQLException
     {
         try
         {
             this.c3p0PooledConnections = (cpds instanceof WrapperConnectionPoolDataSource);
+            this.validationElisionWindow = validationElisionWindow;
+            this.connectionAttemptPermits = connectionAttemptPermits;
+
+            // must be ready before the ResourcePool begins to acquire Connections
+            if (circuitBreakerThreshold > 0)
+            {
+                CircuitBreaker.Probe probe = new CircuitBreaker.Probe()
+                {
+                    // a bare acquisition, without customization, statement caching, or tests
+                    public void probe() throws Exception
+                    {
+                        PooledConnection pc;
+                        beginConnectionAttempt();
+                        try
+                        {
+                            pc = (auth.equals( C3P0ImplUtils.NULL_AUTH ) ?
+                                  cpds.getPooledConnection() :
+                                  cpds.getPooledConnection( auth.getUser(), auth.getPassword() ) );
+                        }
+                        finally
+                        { endConnectionAttempt(); }
+                        pc.close();
+                    }
+                };
+                CircuitBreaker.Listener listener = new CircuitBreaker.Listener()
+                {
+                    // clients already waiting would otherwise wait out a whole round of acquisition attempts
+                    public void opened()
+                    {
+                        try { C3P0PooledConnectionPool.this.rp.failWaitingCheckouts(); }
+                        catch (Exception e)
+                        {
+                            if ( logger.isLoggable( MLevel.WARNING ) )
+                                logger.log( MLevel.WARNING, "Could not release clients waiting for Connections after the circuit breaker of " + C3P0PooledConnectionPool.this + " opened.", e );
+                        }
+                    }
+                };
+                this.circuitBreaker = new CircuitBreaker( this, circuitBreakerThreshold, circuitBreakerProbePeriod, timer, taskRunner, probe, listener );
+            }
+            else
+                this.circuitBreaker = null;
 
             if (!c3p0PooledConnections)
             {
@@ -260,6 +385,8 @@ public final class C3P0PooledConnectionPool
                     logger.log(MLevel.WARNING, "Statement caching is configured, but cannot be supported, because the provided ConnectionPoolDataSource is not a c3p0 implementation. Initializing with no statement cache.");
                 this.scache = null;
             }
+            else if (statementCachePartitioned && (maxStatements > 0 || maxStatementsPerConnection > 0))
+                this.scache = new ConnectionPartitionedStatementCache( taskRunner, deferredStatementDestroyer, maxStatements, maxStatementsPerConnection );
             else if (maxStatements > 0 && maxStatementsPerConnection > 0)
                 this.scache = new DoubleMaxStatementCache( taskRunner, deferredStatementDestroyer, maxStatements, maxStatementsPerConnection );
             else if (maxStatementsPerConnection > 0)
@@ -269,11 +396,43 @@ public final class C3P0PooledConnectionPool
             else
                 this.scache = null;
 
+            if (scache != null && statementCacheEvictionPolicy != null && !"lru".equalsIgnoreCase( statementCacheEvictionPolicy.trim() ))
+            {
+                if ("tinylfu".equalsIgnoreCase( statementCacheEvictionPolicy.trim() ))
+                    scache.useFrequencyAdmission( Math.max( maxStatements, maxStatementsPerConnection ) );
+                else if (logger.isLoggable(MLevel.WARNING))
+                    logger.log(MLevel.WARNING, "Unknown statementCacheEvictionPolicy: " + statementCacheEvictionPolicy + " -- should be 'lru' or 'tinylfu'. Using default value 'lru'.");
+            }
+
+            if (scache != null && statementCacheSqlStatsSize > 0)
+                scache.useSqlStats( statementCacheSqlStatsSize );
+
+            if (scache != null && statementCacheLockFreePrepare)
+                scache.useLockFreePrepare();
+
+            if (scache != null && statementCacheBatchDeferredCloses)
+                scache.useBatchedDeferredCloses();
+
+            if (scache != null && statementCacheHotSqlFile != null && statementCacheHotSqlFile.trim().length() > 0)
+            {
+                this.hotSqlFile = new File( statementCacheHotSqlFile.trim() );
+                this.hot_sql_per_connection = ( maxStatementsPerConnection > 0 ? maxStatementsPerConnection : Math.max( 1, maxStatements / Math.max( 1, max ) ) );
+                this.hotSqlFromFile = readHotSqlFile( hotSqlFile, hot_sql_per_connection );
+            }
+            else
+            {
+                this.hotSqlFile = null;
+                this.hot_sql_per_connection = 0;
+                this.hotSqlFromFile = Collections.EMPTY_LIST;
+            }
+
             if (attemptResurrectOnCheckin)
                 this.resurrectables = new Resurrectables();
             else
                 this.resurrectables = null;
 
+            this.lastCheckedIn = (threadAffinity ? new ThreadLocal() : null);
+
             this.connectionTester = connectionTester;
 
             this.checkoutTimeout = checkoutTimeout;
@@ -283,7 +442,7 @@ public final class C3P0PooledConnectionPool
             this.sharedTaskRunner = taskRunner;
 	    this.deferredStatementDestroyer = deferredStatementDestroyer;
 
-	    this.inUseLockFetcher = (c3p0PooledConnections ? C3P0_POOLED_CONNECION_NESTED_LOCK_LOCK_FETCHER : RESOURCE_ITSELF_IN_USE_LOCK_FETCHER);
+	    this.inUseLockFetcher = (c3p0PooledConnections ? C3P0_POOLED_CONNECION_NESTED_LOCK_LOCK_FETCHER : STRIPED_IN_USE_LOCK_FETCHER);
 
             class PooledConnectionResourcePoolManager implements ResourcePool.Manager
             {
@@ -334,35 +493,64 @@ public final class C3P0PooledConnectionPool
 
                 public Object acquireResource() throws Exception
                 {
-                    PooledConnection out;
+                    if ( circuitBreaker == null )
+                        return doAcquireResource();
+
+                    // while the breaker is open, only its probes touch the database,
+                    // and rounds of acquisition attempts end at once, releasing waiting clients
+                    if ( circuitBreaker.isOpen() )
+                        throw new CannotAcquireResourceException( "Circuit breaker open.", circuitBreaker.openException() );
 
-                    if ( connectionCustomizer == null)
+                    try
                     {
-                        out = (auth.equals( C3P0ImplUtils.NULL_AUTH ) ?
-                               cpds.getPooledConnection() :
-                               cpds.getPooledConnection( auth.getUser(),
-                                                         auth.getPassword() ) );
+                        Object out = doAcquireResource();
+                        circuitBreaker.success();
+                        return out;
                     }
-                    else
+                    catch (Exception e)
                     {
-                        try
-                        {
-                            WrapperConnectionPoolDataSourceBase wcpds = (WrapperConnectionPoolDataSourceBase) cpds;
+                        circuitBreaker.failure( e );
+                        throw e;
+                    }
+                }
+
+                private Object doAcquireResource() throws Exception
+                {
+                    PooledConnection out;
 
+                    beginConnectionAttempt();
+                    try
+                    {
+                        if ( connectionCustomizer == null)
+                        {
                             out = (auth.equals( C3P0ImplUtils.NULL_AUTH ) ?
-                                   wcpds.getPooledConnection( connectionCustomizer, parentDataSourceIdentityToken ) :
-                                   wcpds.getPooledConnection( auth.getUser(),
-                                                              auth.getPassword(),
-                                                              connectionCustomizer, parentDataSourceIdentityToken ) );
+                                   cpds.getPooledConnection() :
+                                   cpds.getPooledConnection( auth.getUser(),
+                                                             auth.getPassword() ) );
                         }
-                        catch (ClassCastException e)
+                        else
                         {
-                            String msg =
-                                "Cannot use a ConnectionCustomizer with a non-c3p0 ConnectionPoolDataSource." +
-                                " ConnectionPoolDataSource: " + cpds.getClass().getName();
-                            throw SqlUtils.toSQLException(msg, e);
+                            try
+                            {
+                                WrapperConnectionPoolDataSourceBase wcpds = (WrapperConnectionPoolDataSourceBase) cpds;
+
+                                out = (auth.equals( C3P0ImplUtils.NULL_AUTH ) ?
+                                       wcpds.getPooledConnection( connectionCustomizer, parentDataSourceIdentityToken ) :
+                                       wcpds.getPooledConnection( auth.getUser(),
+                                                                  auth.getPassword(),
+                                                                  connectionCustomizer, parentDataSourceIdentityToken ) );
+                            }
+                            catch (ClassCastException e)
+                            {
+                                String msg =
+                                    "Cannot use a ConnectionCustomizer with a non-c3p0 ConnectionPoolDataSource." +
+                                    " ConnectionPoolDataSource: " + cpds.getClass().getName();
+                                throw SqlUtils.toSQLException(msg, e);
+                            }
                         }
                     }
+                    finally
+                    { endConnectionAttempt(); }
 
                     //connectionCounter.increment();
                     //totalOpenedCounter.increment();
@@ -390,6 +578,10 @@ public final class C3P0PooledConnectionPool
                             waitMarkPooledConnectionInUse(out);
                             con = out.getConnection();
                             SQLWarnings.logAndClearWarnings( con );
+
+                            // after any ConnectionCustomizer.onAcquire(...), but before the Connection can be checked out
+                            if (hotSqlFile != null)
+                                warmStatementCache( (AbstractC3P0PooledConnection) out );
                         }
                         finally
                         {
@@ -436,7 +628,9 @@ public final class C3P0PooledConnectionPool
 
                 public void refurbishResourceOnCheckout( Object resc ) throws Exception
                 {
-		    synchronized (inUseLockFetcher.getInUseLock(resc))
+		    Lock inUseLock = inUseLockFetcher.getInUseLock(resc);
+		    inUseLock.lock();
+		    try
 		    {
 			if ( connectionCustomizer != null )
 			{
@@ -445,7 +639,7 @@ public final class C3P0PooledConnectionPool
 			    {
 				physicalConnection =  ((AbstractC3P0PooledConnection) resc).getPhysicalConnection();
 				waitMarkPhysicalConnectionInUse( physicalConnection );
-				if ( testConnectionOnCheckout )
+				if ( testConnectionOnCheckout && !recentlyProvenLive( resc, "checkout" ) )
 				{
 				    if ( Debug.DEBUG && logger.isLoggable( MLevel.FINER ) )
 					finerLoggingTestPooledConnection( resc, "CHECKOUT" );
@@ -465,7 +659,7 @@ public final class C3P0PooledConnectionPool
 			}
 			else
 			{
-			    if ( testConnectionOnCheckout )
+			    if ( testConnectionOnCheckout && !recentlyProvenLive( resc, "checkout" ) )
 			    {
 				PooledConnection pc = (PooledConnection) resc;
 				try
@@ -484,6 +678,8 @@ public final class C3P0PooledConnectionPool
 			    }
 			}
 		    }
+		    finally
+		    { inUseLock.unlock(); }
                 }
 
 		// TODO: refactor this by putting the connectionCustomizer if logic inside the (currently repeated) logic
@@ -493,7 +689,9 @@ public final class C3P0PooledConnectionPool
                     boolean attemptResurrect = (resurrectables != null && resurrectables.checkResurrectable(resc));
 		    try
 		    {
-		      synchronized (inUseLockFetcher.getInUseLock(resc))
+		      Lock inUseLock = inUseLockFetcher.getInUseLock(resc);
+		      inUseLock.lock();
+		      try
 		      {
 			if ( connectionCustomizer != null )
 			{
@@ -554,6 +752,8 @@ public final class C3P0PooledConnectionPool
 			    }
 			}
 		      }
+		      finally
+		      { inUseLock.unlock(); }
                       // if we haven't failed the test by throwing then...
                       if (Debug.DEBUG && logger.isLoggable(MLevel.FINE) && attemptResurrect)
                           logger.log(MLevel.FINE, "A resource that had previously experienced a Connection error has been successfully resurrected on checkin: " + resc);
@@ -567,8 +767,13 @@ public final class C3P0PooledConnectionPool
 
                 public void refurbishIdleResource( Object resc ) throws Exception
                 {
-		    synchronized (inUseLockFetcher.getInUseLock(resc))
+		    Lock inUseLock = inUseLockFetcher.getInUseLock(resc);
+		    inUseLock.lock();
+		    try
 		    {
+			if ( recentlyProvenLive( resc, "idle check" ) )
+			    return;
+
 			PooledConnection pc = (PooledConnection) resc;
 			try
 			{
@@ -581,6 +786,8 @@ public final class C3P0PooledConnectionPool
 			finally
 			{ unmarkPooledConnectionInUse( pc ); }
 		    }
+		    finally
+		    { inUseLock.unlock(); }
                 }
 
                 private void finerLoggingTestPooledConnection(Object resc, String testImpetus) throws Exception
@@ -615,12 +822,29 @@ public final class C3P0PooledConnectionPool
                     PooledConnection pc = (PooledConnection) resc;
 		    assert !Boolean.FALSE.equals(pooledConnectionInUse( pc )); //null or true are okay
 
-                    connectionTestPath.testPooledConnection( pc, proxyConn );
+                    if ( circuitBreaker == null )
+                        connectionTestPath.testPooledConnection( pc, proxyConn );
+                    else
+                    {
+                        try
+                        { connectionTestPath.testPooledConnection( pc, proxyConn ); }
+                        catch (Exception e)
+                        {
+                            circuitBreaker.failure( e );
+                            throw e;
+                        }
+                        circuitBreaker.success();
+                    }
+
+                    if ( pc instanceof NewPooledConnection )
+                        ((NewPooledConnection) pc).markTested();
                 }
 
                 public void destroyResource(Object resc, boolean checked_out) throws Exception
                 {
-		    synchronized (inUseLockFetcher.getInUseLock(resc))
+		    Lock inUseLock = inUseLockFetcher.getInUseLock(resc);
+		    inUseLock.lock();
+		    try
 		    {
 			try
 			    {
@@ -685,6 +909,8 @@ public final class C3P0PooledConnectionPool
 			finally
 			    { unmarkPooledConnectionInUse((PooledConnection) resc); }
 		    }
+		    finally
+		    { inUseLock.unlock(); }
 		}
             }
 
@@ -704,8 +930,15 @@ public final class C3P0PooledConnectionPool
                 fact.setDestroyOverdueResourceTime( unreturnedConnectionTimeout * 1000 );
                 fact.setDebugStoreCheckoutStackTrace( debugUnreturnedConnectionStackTraces );
                 fact.setForceSynchronousCheckins( forceSynchronousCheckins );
+                fact.setLockFreeCheckouts( lockFreeCheckouts );
+                fact.setFairCheckouts( fairCheckouts );
+                fact.setBurstAcquisition( burstAcquisition );
+                fact.setValidateStartResources( validateWarmup );
+                fact.setSizingPolicy( sizingPolicy );
+                fact.setSizingPeriod( sizingPolicyPeriod * 1000 );
                 fact.setAcquisitionRetryAttempts( acq_retry_attempts );
                 fact.setAcquisitionRetryDelay( acq_retry_delay );
+                fact.setAcquisitionRetryPolicy( acquireRetryPolicy( acq_retry_delay, acq_retry_max_delay, acq_retry_jitter ) );
                 fact.setBreakOnAcquisitionFailure( break_after_acq_failure );
                 this.rp = fact.createPool( manager );
             }
@@ -716,9 +949,55 @@ public final class C3P0PooledConnectionPool
         { throw SqlUtils.toSQLException(e); }
     }
 
+    // null means every retry waits acq_retry_delay, as pools always have
+    private static AcquireRetryPolicy acquireRetryPolicy( int acq_retry_delay, int acq_retry_max_delay, String acq_retry_jitter )
+    {
+        int jitter;
+        String j = ( acq_retry_jitter == null ? "none" : acq_retry_jitter.trim() );
+        if ("full".equalsIgnoreCase( j ))
+            jitter = BackoffAcquireRetryPolicy.FULL_JITTER;
+        else if ("decorrelated".equalsIgnoreCase( j ))
+            jitter = BackoffAcquireRetryPolicy.DECORRELATED_JITTER;
+        else
+        {
+            if (!"none".equalsIgnoreCase( j ) && logger.isLoggable(MLevel.WARNING))
+                logger.log(MLevel.WARNING, "Unknown acquireRetryJitter: " + acq_retry_jitter + " -- should be 'none', 'full', or 'decorrelated'. Using default value 'none'.");
+            jitter = BackoffAcquireRetryPolicy.NO_JITTER;
+        }
+
+        if ( jitter == BackoffAcquireRetryPolicy.DECORRELATED_JITTER && acq_retry_max_delay <= acq_retry_delay && logger.isLoggable(MLevel.WARNING))
+            logger.log(MLevel.WARNING, "acquireRetryJitter is 'decorrelated', but acquireRetryMaxDelay [" + acq_retry_max_delay + "] is not greater than acquireRetryDelay [" +
+                       acq_retry_delay + "], so every retry will wait exactly acquireRetryDelay. Set acquireRetryMaxDelay to randomize retries.");
+
+        if ( jitter == BackoffAcquireRetryPolicy.NO_JITTER && acq_retry_max_delay <= acq_retry_delay )
+            return null;
+        else
+            return new BackoffAcquireRetryPolicy( acq_retry_delay, acq_retry_max_delay, jitter );
+    }
+
+    // bounds the Connection attempts in flight across all of the pool manager's pools, see maxConcurrentConnectionAttempts
+    private void beginConnectionAttempt() throws SQLException
+    {
+        if ( connectionAttemptPermits != null )
+        {
+            try { connectionAttemptPermits.acquire(); }
+            catch (InterruptedException e)
+            { throw SqlUtils.toSQLException( "Interrupted while awaiting a turn to attempt a new Connection.", e ); }
+        }
+    }
+
+    private void endConnectionAttempt()
+    {
+        if ( connectionAttemptPermits != null )
+            connectionAttemptPermits.release();
+    }
+
     public PooledConnection checkoutPooledConnection() throws SQLException
     {
         //System.err.println(this + " -- CHECKOUT");
+        if ( circuitBreaker != null && circuitBreaker.isOpen() )
+            throw circuitBreaker.openException();
+
         try
 	    {
 		PooledConnection pc = (PooledConnection) this.checkoutAndMarkConnectionInUse();
@@ -729,7 +1008,12 @@ public final class C3P0PooledConnectionPool
         catch (TimeoutException e)
         { throw SqlUtils.toSQLException("An attempt by a client to checkout a Connection has timed out.", e); }
         catch (CannotAcquireResourceException e)
-        { throw SqlUtils.toSQLException("Connections could not be acquired from the underlying database!", "08001", e); }
+        {
+            if ( circuitBreaker != null && circuitBreaker.isOpen() )
+                throw circuitBreaker.openException();
+            else
+                throw SqlUtils.toSQLException("Connections could not be acquired from the underlying database!", "08001", e);
+        }
         catch (Exception e)
         { throw SqlUtils.toSQLException(e); }
     }
@@ -790,12 +1074,13 @@ public final class C3P0PooledConnectionPool
     private Object checkoutAndMarkConnectionInUse() throws TimeoutException, CannotAcquireResourceException, ResourcePoolException, InterruptedException
     {
         Object out = null;
+	Object preferred = findLastCheckedIn();
 	boolean success = false;
 	while (! success)
 	    {
 		try
 		    {
-			out = rp.checkoutResource( checkoutTimeout );
+			out = rp.checkoutResource( checkoutTimeout, preferred );
 			if (out instanceof AbstractC3P0PooledConnection)
 			    {
 				// cast should succeed, because scache != null implies c3p0 pooled Connections
@@ -808,6 +1093,7 @@ public final class C3P0PooledConnectionPool
 		    }
 		finally
 		    {
+			if (!success) preferred = null; // don't keep retrying a Connection we can't use
 			try { if (!success && out != null) rp.checkinResource( out );}
 			catch (Exception e) { logger.log(MLevel.WARNING, "Failed to check in a Connection that was unusable due to pending Statement closes.", e); }
 		    }
@@ -848,11 +1134,36 @@ public final class C3P0PooledConnectionPool
 		pcon.removeConnectionEventListener( cl );
 		unmarkConnectionInUseAndCheckin( pcon );
 		markEndRequest( pcon );
+		rememberLastCheckedIn( pcon );
 	    }
         catch (ResourcePoolException e)
         { throw SqlUtils.toSQLException(e); }
     }
 
+    // a weak reference, so that a long-lived Thread doesn't keep
+    // Connections the pool has destroyed reachable
+    private void rememberLastCheckedIn(PooledConnection pcon)
+    {
+	if (lastCheckedIn != null)
+	{
+	    WeakReference ref = (WeakReference) lastCheckedIn.get();
+	    if (ref == null || ref.get() != pcon)
+		lastCheckedIn.set( new WeakReference( pcon ) );
+	}
+    }
+
+    // null if threadAffinity is not set, or this Thread has never checked-in a Connection
+    private Object findLastCheckedIn()
+    {
+	if (lastCheckedIn != null)
+	{
+	    WeakReference ref = (WeakReference) lastCheckedIn.get();
+	    return (ref == null ? null : ref.get());
+	}
+	else
+	    return null;
+    }
+
     public float getEffectivePropertyCycle() throws SQLException
     {
         try
@@ -878,6 +1189,27 @@ public final class C3P0PooledConnectionPool
     public int getStatementCacheNumConnectionsWithCachedStatements()
     { return scache == null ? 0 : scache.getNumConnectionsWithCachedStatements(); }
 
+    public long getStatementCacheNumHits()
+    { return scache == null ? 0 : scache.getStatistics().getNumHits(); }
+
+    public long getStatementCacheNumMisses()
+    { return scache == null ? 0 : scache.getStatistics().getNumMisses(); }
+
+    public long getStatementCacheNumEvictions()
+    { return scache == null ? 0 : scache.getStatistics().getNumEvictions(); }
+
+    public long getStatementCacheNumOverloadStatements()
+    { return scache == null ? 0 : scache.getStatistics().getNumOverloadStatements(); }
+
+    public long getStatementCacheNumDeferredCloses()
+    { return scache == null ? 0 : scache.getStatistics().getNumDeferredCloses(); }
+
+    public long[] getStatementCachePrepareLatencyHistogram()
+    { return scache == null ? new long[ StatementCacheStats.NUM_PREPARE_LATENCY_BUCKETS ] : scache.getStatistics().getPrepareLatencyHistogram(); }
+
+    public List getStatementCacheTopSqlStats( int n )
+    { return scache == null ? Collections.EMPTY_LIST : scache.getTopSqlStats( n ); }
+
     public String dumpStatementCacheStatus()
     { return scache == null ? "Statement caching disabled." : scache.dumpStatementCacheStatus(); }
 
@@ -889,6 +1221,12 @@ public final class C3P0PooledConnectionPool
         // System.err.println(this + " closing.");
         Exception throwMe = null;
 
+        if (hotSqlFile != null)
+            persistHotSql();
+
+        if (circuitBreaker != null)
+            circuitBreaker.cancel();
+
         try { if (scache != null) scache.close(); }
         catch (SQLException e)
         { throwMe = e; }
@@ -906,6 +1244,107 @@ public final class C3P0PooledConnectionPool
             throw SqlUtils.toSQLException( throwMe );
     }
 
+    private static List readHotSqlFile( File file, int limit )
+    {
+        if (! file.exists() )
+        {
+            if (logger.isLoggable(MLevel.FINE))
+                logger.fine("Hot SQL file '" + file + "' does not (yet) exist. Statement caches will not be warmed from it.");
+            return Collections.EMPTY_LIST;
+        }
+
+        try
+        {
+            List sql = HotSqlFile.read( file );
+            if (sql.size() > limit)
+                sql = new ArrayList( sql.subList( 0, limit ) );
+            if (logger.isLoggable(MLevel.INFO))
+                logger.info("Read " + sql.size() + " hot SQL statements from '" + file + "', with which to warm the statement caches of new Connections.");
+            return Collections.unmodifiableList( sql );
+        }
+        catch (IOException e)
+        {
+            if (logger.isLoggable(MLevel.WARNING))
+                logger.log(MLevel.WARNING, "Could not read hot SQL file '" + file + "'. Statement caches will not be warmed from it.", e);
+            return Collections.EMPTY_LIST;
+        }
+    }
+
+    // the SQL this pool has found most used, if it keeps per-SQL statistics, then the hot SQL file's
+    private List hotSql()
+    {
+        List top = scache.getTopSqlStats( hot_sql_per_connection );
+        if ( top.isEmpty() )
+            return hotSqlFromFile;
+
+        LinkedHashSet out = new LinkedHashSet();
+        for (Iterator ii = top.iterator(); ii.hasNext(); )
+            out.add( ((StatementCacheSqlStats) ii.next()).getSql() );
+        for (Iterator ii = hotSqlFromFile.iterator(); ii.hasNext() && out.size() < hot_sql_per_connection; )
+            out.add( ii.next() );
+        return new ArrayList( out );
+    }
+
+    // a Connection whose driver has just completed a round trip, with no Exception seen
+    // since, has proven itself about as well as a test could. Connections that have seen
+    // trouble, or have done no real work for longer than the window, still get tested.
+    private boolean recentlyProvenLive( Object resc, String testImpetus )
+    {
+        if ( validationElisionWindow <= 0 || !(resc instanceof NewPooledConnection) )
+            return false;
+
+        long lastProof = ((NewPooledConnection) resc).getLastLivenessProofTime();
+        long sinceProof = System.currentTimeMillis() - lastProof;
+        boolean out = ( lastProof > 0 && sinceProof < validationElisionWindow );
+        if ( out && logger.isLoggable( MLevel.FINEST ) )
+            logger.finest( "Eliding " + testImpetus + " test of " + resc + ", proven live by a round trip " + sinceProof + " msecs ago." );
+        return out;
+    }
+
+    // called while the new PooledConnection is marked in use. failures to prepare
+    // just leave the Statement uncached, they don't fail Connection acquisition
+    private void warmStatementCache( AbstractC3P0PooledConnection pc )
+    {
+        Connection physicalConnection = pc.getPhysicalConnection();
+        int warmed = 0;
+        int failed = 0;
+        for (Iterator ii = hotSql().iterator(); ii.hasNext(); )
+        {
+            String sql = (String) ii.next();
+            try
+            {
+                if ( scache.warmStatement( physicalConnection, sql ) )
+                    ++warmed;
+            }
+            catch (Exception e)
+            {
+                ++failed;
+                if (logger.isLoggable(MLevel.FINE))
+                    logger.log(MLevel.FINE, "Could not warm the statement cache of " + pc + " with SQL: " + sql, e);
+            }
+        }
+
+        if (failed > 0 && logger.isLoggable(MLevel.INFO))
+            logger.info("Warmed the statement cache of " + pc + " with " + warmed + " Statements, but " + failed + " hot SQL statements could not be prepared. (Log at FINE for details.)");
+        else if (logger.isLoggable(MLevel.FINER))
+            logger.finer("Warmed the statement cache of " + pc + " with " + warmed + " Statements.");
+    }
+
+    // only if we keep per-SQL statistics do we learn anything worth writing
+    private void persistHotSql()
+    {
+        if ( scache.getTopSqlStats( 1 ).isEmpty() )
+            return;
+
+        try
+        { HotSqlFile.write( hotSqlFile, hotSql(), "Hot SQL recorded by " + this + " on close, " + new Date() ); }
+        catch (IOException e)
+        {
+            if (logger.isLoggable(MLevel.WARNING))
+                logger.log(MLevel.WARNING, "Could not write hot SQL file '" + hotSqlFile + "'.", e);
+        }
+    }
+
     class ConnectionEventListenerImpl implements ConnectionEventListener
     {
 
@@ -1141,6 +1580,17 @@ public final class C3P0PooledConnectionPool
         }
     }
 
+    public long getLastIdleTestSweepMillis() throws SQLException
+    {
+        try { return rp.getLastIdleTestSweepMillis(); }
+        catch ( Exception e )
+        {
+            //e.printStackTrace();
+            logger.log( MLevel.WARNING, null, e );
+            throw SqlUtils.toSQLException( e );
+        }
+    }
+
     public Throwable getLastCheckinFailure() throws SQLException
     {
         try { return rp.getLastCheckinFailure(); }
@@ -1185,6 +1635,28 @@ public final class C3P0PooledConnectionPool
         }
     }
 
+    public Future getWarmupFuture() throws SQLException
+    {
+        try { return rp.getWarmupFuture(); }
+        catch ( Exception e )
+        {
+            //e.printStackTrace();
+            logger.log( MLevel.WARNING, null, e );
+            throw SqlUtils.toSQLException( e );
+        }
+    }
+
+    public boolean isWarm() throws SQLException
+    {
+        try { return rp.isWarm(); }
+        catch ( Exception e )
+        {
+            //e.printStackTrace();
+            logger.log( MLevel.WARNING, null, e );
+            throw SqlUtils.toSQLException( e );
+        }
+    }
+
     public Throwable getLastAcquisitionFailure() throws SQLException
     {
         try { return rp.getLastAcquisitionFailure(); }
@@ -4,6 +4,10 @@ import java.beans.*;
 import java.util.*;
 import java.lang.reflect.*;
 import java.sql.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import javax.sql.*;
 
 import com.mchange.v2.c3p0.*;
@@ -16,6 +20,9 @@ import com.mchange.v1.lang.BooleanUtils;
 import com.mchange.v2.sql.SqlUtils;
 import com.mchange.v2.resourcepool.ResourcePoolFactory;
 import com.mchange.v2.resourcepool.BasicResourcePoolFactory;
+import com.mchange.v2.resourcepool.SizingPolicy;
+import com.mchange.v2.c3p0.stmt.StatementCacheSqlStats;
+import com.mchange.v2.c3p0.stmt.StatementCacheStats;
 
 public final class C3P0PooledConnectionPoolManager
 {
@@ -33,7 +40,10 @@ public final class C3P0PooledConnectionPoolManager
     //MT: protected by this' lock
     ThreadPoolReportingAsynchronousRunner taskRunner;
     ThreadPoolReportingAsynchronousRunner deferredStatementDestroyer;
+    ThreadPoolReportingAsynchronousRunner acquisitionRunner;
+    ThreadPoolReportingAsynchronousRunner idleTestRunner;
     Timer                                 timer;
+    Semaphore                             connectionAttemptPermits; // may be null
     ResourcePoolFactory                   rpfact;
     Map                                   authsToPools;
 
@@ -199,6 +209,9 @@ public final class C3P0PooledConnectionPoolManager
 	String  contextClassLoaderSource     = this.getContextClassLoaderSource();
 	boolean privilege_spawned_threads    = this.getPrivilegeSpawnedThreads();
         int     num_deferred_close_threads   = this.getStatementCacheNumDeferredCloseThreads();
+        int     max_concurrent_acquires      = this.getMaxConcurrentAcquires();
+        int     max_concurrent_idle_tests    = this.getMaxConcurrentIdleTests();
+        int     max_concurrent_conn_attempts = this.getMaxConcurrentConnectionAttempts();
 
 	final String idStr = idString();
 
@@ -206,6 +219,8 @@ public final class C3P0PooledConnectionPoolManager
 
         ThreadPoolReportingAsynchronousRunner _taskRunner;
         ThreadPoolReportingAsynchronousRunner _deferredStatementDestroyer;
+        ThreadPoolReportingAsynchronousRunner _acquisitionRunner;
+        ThreadPoolReportingAsynchronousRunner _idleTestRunner;
         ResourcePoolFactory                   _rpfact;
 
         Runnable initializeTimer = new Runnable()
@@ -224,16 +239,34 @@ public final class C3P0PooledConnectionPoolManager
 	else
 	    _deferredStatementDestroyer = null;
 
+	if (max_concurrent_acquires > 0)
+	    _acquisitionRunner = createTaskRunner( max_concurrent_acquires, max_administrative_task_time, contextClassLoaderSource, privilege_spawned_threads, idStr + "-AcquisitionThread", cpds, _timer );
+	else
+	    _acquisitionRunner = null;
+
+	if (max_concurrent_idle_tests > 0)
+	    _idleTestRunner = createTaskRunner( max_concurrent_idle_tests, max_administrative_task_time, contextClassLoaderSource, privilege_spawned_threads, idStr + "-IdleTestThread", cpds, _timer );
+	else
+	    _idleTestRunner = null;
+
         if (POOL_EVENT_SUPPORT)
             _rpfact = ResourcePoolFactory.createInstance( _taskRunner, null, _timer );
         else
             _rpfact = BasicResourcePoolFactory.createNoEventSupportInstance( _taskRunner, _timer );
+        _rpfact.setAcquisitionTaskRunner( _acquisitionRunner );
+        _rpfact.setIdleTestTaskRunner( _idleTestRunner );
+
+	// fair, so that no pool's acquisitions starve while others' proceed
+	Semaphore _connectionAttemptPermits = ( max_concurrent_conn_attempts > 0 ? new Semaphore( max_concurrent_conn_attempts, true ) : null );
 
         synchronized (this)
         {
             this.timer                      = _timer;
             this.taskRunner                 = _taskRunner;
             this.deferredStatementDestroyer = _deferredStatementDestroyer;
+            this.acquisitionRunner          = _acquisitionRunner;
+            this.idleTestRunner             = _idleTestRunner;
+            this.connectionAttemptPermits   = _connectionAttemptPermits;
             this.rpfact                     = _rpfact;
             this.authsToPools               = new HashMap();
         }
@@ -259,6 +292,12 @@ public final class C3P0PooledConnectionPoolManager
 
         this.taskRunner.close( true );
 
+	if ( acquisitionRunner != null )
+	    acquisitionRunner.close( true );
+
+	if ( idleTestRunner != null )
+	    idleTestRunner.close( true );
+
 	// we have to run remaining tasks to free Threads that may be caught in wait() on Statement destruction
 	if ( deferredStatementDestroyer != null )
 	    deferredStatementDestroyer.close( false );
@@ -266,7 +305,10 @@ public final class C3P0PooledConnectionPoolManager
         this.timer.cancel();
 
         this.taskRunner = null;
+        this.acquisitionRunner = null;
+        this.idleTestRunner = null;
         this.timer = null;
+        this.connectionAttemptPermits = null;
         this.rpfact = null;
         this.authsToPools = null;
     }
@@ -370,6 +412,7 @@ public final class C3P0PooledConnectionPoolManager
                 this.userOverrides = forceUserOverrides;
 
             poolsInit();
+            warmUp();
         }
         catch (Exception e)
         {
@@ -380,6 +423,55 @@ public final class C3P0PooledConnectionPoolManager
         }
     }
 
+    // called only from the constructor, after poolsInit()
+    private void warmUp() throws SQLException
+    {
+        String warmupMode = this.getWarmupMode();
+        if ( "blocking".equalsIgnoreCase( warmupMode ) || "background".equalsIgnoreCase( warmupMode ) )
+        {
+            // begins acquiring the default-user pool's initialPoolSize Connections
+            C3P0PooledConnectionPool pool = this.getPool();
+
+            if ( "blocking".equalsIgnoreCase( warmupMode ) )
+            {
+                int checkoutTimeout = this.getCheckoutTimeout( defaultAuth.getUser() );
+                try
+                {
+                    Future warmup = pool.getWarmupFuture();
+                    if ( checkoutTimeout > 0 )
+                        warmup.get( checkoutTimeout, TimeUnit.MILLISECONDS );
+                    else
+                        warmup.get();
+                }
+                catch ( ExecutionException e )
+                {
+                    if ( logger.isLoggable( MLevel.WARNING ) )
+                        logger.log( MLevel.WARNING, "The pool for the default user failed to warm up. Continuing with initialization.", e.getCause() );
+                }
+                catch ( java.util.concurrent.TimeoutException e )
+                {
+                    if ( logger.isLoggable( MLevel.WARNING ) )
+                        logger.log( MLevel.WARNING, "The pool for the default user was not warm after checkoutTimeout (" + checkoutTimeout + " msecs). Continuing with initialization." );
+                }
+                catch ( InterruptedException e )
+                {
+                    if ( logger.isLoggable( MLevel.WARNING ) )
+                        logger.log( MLevel.WARNING, "Interrupted while waiting for the pool for the default user to warm up. Continuing with initialization.", e );
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        else if ( logger.isLoggable( MLevel.WARNING ) && ! "none".equalsIgnoreCase( warmupMode ) )
+            logger.log( MLevel.WARNING, "Unknown warmupMode: " + warmupMode + " -- should be 'none', 'background', or 'blocking'. Using default value 'none'." );
+    }
+
+    // under any warmupMode but 'none', Connections acquired while pools warm up are tested
+    private boolean validatesWarmup()
+    {
+        String warmupMode = this.getWarmupMode();
+        return "blocking".equalsIgnoreCase( warmupMode ) || "background".equalsIgnoreCase( warmupMode );
+    }
+
     public synchronized C3P0PooledConnectionPool getPool(String username, String password, boolean create) throws SQLException
     {
         if (create)
@@ -485,6 +577,62 @@ public final class C3P0PooledConnectionPoolManager
         return out;
     }
 
+    public synchronized long getStatementCacheNumHitsAllUsers() throws SQLException
+    {
+        long out = 0;
+        for (Iterator ii = authsToPools.values().iterator(); ii.hasNext(); )
+            out += ((C3P0PooledConnectionPool) ii.next()).getStatementCacheNumHits();
+        return out;
+    }
+
+    public synchronized long getStatementCacheNumMissesAllUsers() throws SQLException
+    {
+        long out = 0;
+        for (Iterator ii = authsToPools.values().iterator(); ii.hasNext(); )
+            out += ((C3P0PooledConnectionPool) ii.next()).getStatementCacheNumMisses();
+        return out;
+    }
+
+    public synchronized long getStatementCacheNumEvictionsAllUsers() throws SQLException
+    {
+        long out = 0;
+        for (Iterator ii = authsToPools.values().iterator(); ii.hasNext(); )
+            out += ((C3P0PooledConnectionPool) ii.next()).getStatementCacheNumEvictions();
+        return out;
+    }
+
+    public synchronized long getStatementCacheNumOverloadStatementsAllUsers() throws SQLException
+    {
+        long out = 0;
+        for (Iterator ii = authsToPools.values().iterator(); ii.hasNext(); )
+            out += ((C3P0PooledConnectionPool) ii.next()).getStatementCacheNumOverloadStatements();
+        return out;
+    }
+
+    public synchronized long getStatementCacheNumDeferredClosesAllUsers() throws SQLException
+    {
+        long out = 0;
+        for (Iterator ii = authsToPools.values().iterator(); ii.hasNext(); )
+            out += ((C3P0PooledConnectionPool) ii.next()).getStatementCacheNumDeferredCloses();
+        return out;
+    }
+
+    public synchronized long[] getStatementCachePrepareLatencyHistogramAllUsers() throws SQLException
+    {
+        long[] out = new long[ StatementCacheStats.NUM_PREPARE_LATENCY_BUCKETS ];
+        for (Iterator ii = authsToPools.values().iterator(); ii.hasNext(); )
+            out = StatementCacheStats.sumHistograms( out, ((C3P0PooledConnectionPool) ii.next()).getStatementCachePrepareLatencyHistogram() );
+        return out;
+    }
+
+    public synchronized List getStatementCacheTopSqlStatsAllUsers( int n ) throws SQLException
+    {
+        List lists = new ArrayList( authsToPools.size() );
+        for (Iterator ii = authsToPools.values().iterator(); ii.hasNext(); )
+            lists.add( ((C3P0PooledConnectionPool) ii.next()).getStatementCacheTopSqlStats( n ) );
+        return StatementCacheSqlStats.merge( lists, n );
+    }
+
     public synchronized int getStatementDestroyerNumConnectionsInUseAllUsers() throws SQLException
     {
 	if ( deferredStatementDestroyer != null )
@@ -872,6 +1020,25 @@ public final class C3P0PooledConnectionPoolManager
     private ConnectionCustomizer getConnectionCustomizer(String userName) throws SQLException
     { return C3P0Registry.getConnectionCustomizer( getConnectionCustomizerClassName( userName ) ); }
 
+    // SizingPolicies may be stateful, so unlike other plugins, each pool gets its own instance
+    private SizingPolicy getSizingPolicy(String userName) throws SQLException
+    {
+        String className = getSizingPolicyClassName( userName );
+        if ( className == null || className.trim().equals("") )
+            return null;
+        else
+        {
+            try
+            { return (SizingPolicy) Class.forName( className.trim() ).getDeclaredConstructor().newInstance(); }
+            catch (Exception e)
+            {
+                if (logger.isLoggable( MLevel.WARNING ))
+                    logger.log( MLevel.WARNING, "Could not create SizingPolicy with class name '" + className + "'.", e );
+                throw SqlUtils.toSQLException( e );
+            }
+        }
+    }
+
     private int getMaxIdleTimeExcessConnections(String userName)
     {
         try
@@ -908,6 +1075,210 @@ public final class C3P0PooledConnectionPoolManager
         }
     }
 
+    private boolean getLockFreeCheckouts(String userName)
+    {
+        try
+        { return getBoolean("lockFreeCheckouts", userName ); }
+        catch (Exception e)
+        {
+            if ( logger.isLoggable( MLevel.FINE ) )
+                logger.log( MLevel.FINE, "Could not fetch boolean property", e);
+            return C3P0Defaults.lockFreeCheckouts();
+        }
+    }
+
+    private boolean getThreadAffinity(String userName)
+    {
+        try
+        { return getBoolean("threadAffinity", userName ); }
+        catch (Exception e)
+        {
+            if ( logger.isLoggable( MLevel.FINE ) )
+                logger.log( MLevel.FINE, "Could not fetch boolean property", e);
+            return C3P0Defaults.threadAffinity();
+        }
+    }
+
+    private boolean getFairCheckouts(String userName)
+    {
+        try
+        { return getBoolean("fairCheckouts", userName ); }
+        catch (Exception e)
+        {
+            if ( logger.isLoggable( MLevel.FINE ) )
+                logger.log( MLevel.FINE, "Could not fetch boolean property", e);
+            return C3P0Defaults.fairCheckouts();
+        }
+    }
+
+    private boolean getBurstAcquisition(String userName)
+    {
+        try
+        { return getBoolean("burstAcquisition", userName ); }
+        catch (Exception e)
+        {
+            if ( logger.isLoggable( MLevel.FINE ) )
+                logger.log( MLevel.FINE, "Could not fetch boolean property", e);
+            return C3P0Defaults.burstAcquisition();
+        }
+    }
+
+    private String getSizingPolicyClassName(String userName)
+    {
+        try
+        { return getString("sizingPolicyClassName", userName ); }
+        catch (Exception e)
+        {
+            if ( logger.isLoggable( MLevel.FINE ) )
+                logger.log( MLevel.FINE, "Could not fetch String property", e);
+            return C3P0Defaults.sizingPolicyClassName();
+        }
+    }
+
+    private int getSizingPolicyPeriod(String userName)
+    {
+        try
+        { return getInt("sizingPolicyPeriod", userName ); }
+        catch (Exception e)
+        {
+            if ( logger.isLoggable( MLevel.FINE ) )
+                logger.log( MLevel.FINE, "Could not fetch int property", e);
+            return C3P0Defaults.sizingPolicyPeriod();
+        }
+    }
+
+    private boolean getStatementCachePartitioned(String userName)
+    {
+        try
+        { return getBoolean("statementCachePartitioned", userName ); }
+        catch (Exception e)
+        {
+            if ( logger.isLoggable( MLevel.FINE ) )
+                logger.log( MLevel.FINE, "Could not fetch boolean property", e);
+            return C3P0Defaults.statementCachePartitioned();
+        }
+    }
+
+    private String getStatementCacheEvictionPolicy(String userName)
+    {
+        try
+        { return getString("statementCacheEvictionPolicy", userName ); }
+        catch (Exception e)
+        {
+            if ( logger.isLoggable( MLevel.FINE ) )
+                logger.log( MLevel.FINE, "Could not fetch String property", e);
+            return C3P0Defaults.statementCacheEvictionPolicy();
+        }
+    }
+
+    private int getStatementCacheSqlStatsSize(String userName)
+    {
+        try
+        { return getInt("statementCacheSqlStatsSize", userName ); }
+        catch (Exception e)
+        {
+            if ( logger.isLoggable( MLevel.FINE ) )
+                logger.log( MLevel.FINE, "Could not fetch int property", e);
+            return C3P0Defaults.statementCacheSqlStatsSize();
+        }
+    }
+
+    private String getStatementCacheHotSqlFile(String userName)
+    {
+        try
+        { return getString("statementCacheHotSqlFile", userName ); }
+        catch (Exception e)
+        {
+            if ( logger.isLoggable( MLevel.FINE ) )
+                logger.log( MLevel.FINE, "Could not fetch String property", e);
+            return C3P0Defaults.statementCacheHotSqlFile();
+        }
+    }
+
+    private boolean getStatementCacheLockFreePrepare(String userName)
+    {
+        try
+        { return getBoolean("statementCacheLockFreePrepare", userName ); }
+        catch (Exception e)
+        {
+            if ( logger.isLoggable( MLevel.FINE ) )
+                logger.log( MLevel.FINE, "Could not fetch boolean property", e);
+            return C3P0Defaults.statementCacheLockFreePrepare();
+        }
+    }
+
+    private boolean getStatementCacheBatchDeferredCloses(String userName)
+    {
+        try
+        { return getBoolean("statementCacheBatchDeferredCloses", userName ); }
+        catch (Exception e)
+        {
+            if ( logger.isLoggable( MLevel.FINE ) )
+                logger.log( MLevel.FINE, "Could not fetch boolean property", e);
+            return C3P0Defaults.statementCacheBatchDeferredCloses();
+        }
+    }
+
+    private int getValidationElisionWindow(String userName)
+    {
+        try
+        { return getInt("validationElisionWindow", userName ); }
+        catch (Exception e)
+        {
+            if ( logger.isLoggable( MLevel.FINE ) )
+                logger.log( MLevel.FINE, "Could not fetch int property", e);
+            return C3P0Defaults.validationElisionWindow();
+        }
+    }
+
+    private int getCircuitBreakerThreshold(String userName)
+    {
+        try
+        { return getInt("circuitBreakerThreshold", userName ); }
+        catch (Exception e)
+        {
+            if ( logger.isLoggable( MLevel.FINE ) )
+                logger.log( MLevel.FINE, "Could not fetch int property", e);
+            return C3P0Defaults.circuitBreakerThreshold();
+        }
+    }
+
+    private int getCircuitBreakerProbePeriod(String userName)
+    {
+        try
+        { return getInt("circuitBreakerProbePeriod", userName ); }
+        catch (Exception e)
+        {
+            if ( logger.isLoggable( MLevel.FINE ) )
+                logger.log( MLevel.FINE, "Could not fetch int property", e);
+            return C3P0Defaults.circuitBreakerProbePeriod();
+        }
+    }
+
+    private int getAcquireRetryMaxDelay(String userName)
+    {
+        try
+        { return getInt("acquireRetryMaxDelay", userName ); }
+        catch (Exception e)
+        {
+            if ( logger.isLoggable( MLevel.FINE ) )
+                logger.log( MLevel.FINE, "Could not fetch int property", e);
+            return C3P0Defaults.acquireRetryMaxDelay();
+        }
+    }
+
+    private String getAcquireRetryJitter(String userName)
+    {
+        try
+        { return getString("acquireRetryJitter", userName ); }
+        catch (Exception e)
+        {
+            if ( logger.isLoggable( MLevel.FINE ) )
+                logger.log( MLevel.FINE, "Could not fetch String property", e);
+            return C3P0Defaults.acquireRetryJitter();
+        }
+    }
+
     // properties that don't support per-user overrides
 
     private String getContextClassLoaderSource()
@@ -956,6 +1327,54 @@ public final class C3P0PooledConnectionPoolManager
         }
     }
 
+    private int getMaxConcurrentAcquires()
+    {
+        try
+        { return getInt("maxConcurrentAcquires", null ); }
+        catch (Exception e)
+        {
+            if ( logger.isLoggable( MLevel.FINE ) )
+                logger.log( MLevel.FINE, "Could not fetch int property", e);
+            return C3P0Defaults.maxConcurrentAcquires();
+        }
+    }
+
+    private String getWarmupMode()
+    {
+        try
+        { return getString("warmupMode", null ); }
+        catch (Exception e)
+        {
+            if ( logger.isLoggable( MLevel.FINE ) )
+                logger.log( MLevel.FINE, "Could not fetch String property", e);
+            return C3P0Defaults.warmupMode();
+        }
+    }
+
+    private int getMaxConcurrentIdleTests()
+    {
+        try
+        { return getInt("maxConcurrentIdleTests", null ); }
+        catch (Exception e)
+        {
+            if ( logger.isLoggable( MLevel.FINE ) )
+                logger.log( MLevel.FINE, "Could not fetch int property", e);
+            return C3P0Defaults.maxConcurrentIdleTests();
+        }
+    }
+
+    private int getMaxConcurrentConnectionAttempts()
+    {
+        try
+        { return getInt("maxConcurrentConnectionAttempts", null ); }
+        catch (Exception e)
+        {
+            if ( logger.isLoggable( MLevel.FINE ) )
+                logger.log( MLevel.FINE, "Could not fetch int property", e);
+            return C3P0Defaults.maxConcurrentConnectionAttempts();
+        }
+    }
+
     // we know by this point automaticTestTable is nonnull and nonempty
     private boolean checkAutomaticTestTable( String automaticTestTable )
     {
@@ -1033,6 +1452,8 @@ public final class C3P0PooledConnectionPoolManager
 								      this.getAcquireIncrement( userName ),
 								      this.getAcquireRetryAttempts( userName ),
 								      this.getAcquireRetryDelay( userName ),
+								      this.getAcquireRetryMaxDelay( userName ),
+								      this.getAcquireRetryJitter( userName ),
 								      this.getBreakAfterAcquireFailure( userName ),
 								      this.getCheckoutTimeout( userName ),
 								      this.getConnectionIsValidTimeout( userName ),
@@ -1044,17 +1465,35 @@ public final class C3P0PooledConnectionPoolManager
 								      this.getUnreturnedConnectionTimeout( userName ),
 								      this.getDebugUnreturnedConnectionStackTraces( userName ),
 								      this.getForceSynchronousCheckins( userName ),
+								      this.getLockFreeCheckouts( userName ),
+								      this.getThreadAffinity( userName ),
+								      this.getFairCheckouts( userName ),
+								      this.getBurstAcquisition( userName ),
+								      this.validatesWarmup(),
+								      this.getSizingPolicy( userName ),
+								      this.getSizingPolicyPeriod( userName ),
 								      this.getTestConnectionOnCheckout( userName ),
 								      this.getTestConnectionOnCheckin( userName ),
                                                                       this.getAttemptResurrectOnCheckin( userName ),
 								      this.getMaxStatements( userName ),
 								      this.getMaxStatementsPerConnection( userName ),
+								      this.getStatementCachePartitioned( userName ),
+								      this.getStatementCacheEvictionPolicy( userName ),
+								      this.getStatementCacheSqlStatsSize( userName ),
+								      this.getStatementCacheHotSqlFile( userName ),
+								      this.getStatementCacheLockFreePrepare( userName ),
+								      this.getStatementCacheBatchDeferredCloses( userName ),
+								      this.getValidationElisionWindow( userName ),
+								      this.getCircuitBreakerThreshold( userName ),
+								      this.getCircuitBreakerProbePeriod( userName ),
 								      this.getConnectionTester( userName ),
 								      this.getConnectionCustomizer( userName ),
 								      realTestQuery,
 								      rpfact,
 								      taskRunner,
 								      deferredStatementDestroyer,
+								      timer,
+								      connectionAttemptPermits,
 								      parentDataSourceIdentityToken );
         return out;
     }
@@ -0,0 +1,169 @@
+package com.mchange.v2.c3p0.impl;
+
+import java.util.Timer;
+import java.util.TimerTask;
+import com.mchange.v2.async.AsynchronousRunner;
+import com.mchange.v2.c3p0.CircuitBreakerOpenException;
+import com.mchange.v2.log.*;
+
+/*
+ *  A pool's circuit breaker. It opens after threshold consecutive failures to acquire
+ *  or test Connections, and closes at the next success. While it is open, the pool
+ *  fails checkouts immediately and makes no acquisition attempts of its own. Instead,
+ *  every probe_period milliseconds the timer posts a single probe to the task runner.
+ *  Probes are never concurrent: the next is scheduled only once the last has failed,
+ *  or could not be posted.
+ */
+final class CircuitBreaker
+{
+    final static MLogger logger = MLog.getLogger( CircuitBreaker.class );
+
+    interface Listener
+    {
+	// called from the task runner, not the Thread whose failure opened the breaker
+	public void opened();
+    }
+
+    interface Probe
+    {
+	public void probe() throws Exception;
+    }
+
+    final Object             owner; // for log messages
+    final int                threshold;
+    final long               probe_period;
+    final Timer              timer;
+    final AsynchronousRunner taskRunner;
+    final Probe              probe;
+    final Listener           listener;
+
+    //MT: checked without the lock on every checkout, modified while holding this' lock
+    volatile boolean open = false;
+
+    //MT: protected by this' lock
+    int       consecutive_failures = 0;
+    long      open_time            = -1;
+    Throwable lastFailure          = null;
+    TimerTask probeTask            = null;
+    boolean   cancelled            = false;
+
+    CircuitBreaker( Object owner, int threshold, long probe_period, Timer timer, AsynchronousRunner taskRunner, Probe probe, Listener listener )
+    {
+	this.owner        = owner;
+	this.threshold    = threshold;
+	this.probe_period = probe_period;
+	this.timer        = timer;
+	this.taskRunner   = taskRunner;
+	this.probe        = probe;
+	this.listener     = listener;
+    }
+
+    boolean isOpen()
+    { return open; }
+
+    synchronized void success()
+    {
+	consecutive_failures = 0;
+	if ( open )
+	{
+	    open = false;
+	    if ( probeTask != null )
+	    {
+		probeTask.cancel();
+		probeTask = null;
+	    }
+	    if ( logger.isLoggable( MLevel.INFO ) )
+		logger.info( "The circuit breaker of " + owner + " has closed, after " + (System.currentTimeMillis() - open_time) + " msecs open." );
+	}
+    }
+
+    synchronized void failure( Throwable t )
+    {
+	lastFailure = t;
+	if ( ++consecutive_failures >= threshold && !open && !cancelled )
+	{
+	    open = true;
+	    open_time = System.currentTimeMillis();
+	    if ( logger.isLoggable( MLevel.WARNING ) )
+		logger.log( MLevel.WARNING,
+			    "The circuit breaker of " + owner + " has opened, after " + consecutive_failures + " consecutive failures to acquire or test Connections. " +
+			    "Checkouts will fail immediately until a background attempt to acquire a Connection succeeds. Last failure: ", t );
+	    scheduleProbe();
+	    taskRunner.postRunnable( new Runnable()
+	    {
+		public void run()
+		{ listener.opened(); }
+	    } );
+	}
+    }
+
+    synchronized CircuitBreakerOpenException openException()
+    {
+	return new CircuitBreakerOpenException( "The circuit breaker of " + owner + " is open, after " + threshold + " or more consecutive failures " +
+						"to acquire or test Connections. Checkouts fail immediately until a background attempt to acquire a Connection succeeds.",
+						lastFailure );
+    }
+
+    synchronized void cancel()
+    {
+	cancelled = true;
+	if ( probeTask != null )
+	{
+	    probeTask.cancel();
+	    probeTask = null;
+	}
+    }
+
+    private void scheduleProbe()
+    {
+	assert Thread.holdsLock( this );
+
+	probeTask = new TimerTask()
+	{
+	    public void run()
+	    {
+		// an Exception here would kill the shared timer
+		try { taskRunner.postRunnable( probeRunnable ); }
+		catch ( Exception e )
+		{
+		    // otherwise no probe would ever run, and the breaker would stay open. if the
+		    // breaker has closed, or closed and reopened, this task is no longer current
+		    synchronized ( CircuitBreaker.this )
+		    {
+			if ( open && !cancelled && probeTask == this )
+			{
+			    if ( logger.isLoggable( MLevel.WARNING ) )
+				logger.log( MLevel.WARNING, "Could not post a circuit breaker probe of " + owner + ". Will try again in " + probe_period + " msecs.", e );
+			    scheduleProbe();
+			}
+		    }
+		}
+	    }
+	};
+	timer.schedule( probeTask, probe_period );
+    }
+
+    private final Runnable probeRunnable = new Runnable()
+    {
+	public void run()
+	{
+	    try
+	    {
+		probe.probe();
+		success();
+	    }
+	    catch ( Exception e )
+	    {
+		if ( logger.isLoggable( MLevel.FINE ) )
+		    logger.log( MLevel.FINE, "A circuit breaker probe of " + owner + " failed.", e );
+
+		synchronized ( CircuitBreaker.this )
+		{
+		    lastFailure = e;
+		    if ( open && !cancelled )
+			scheduleProbe();
+		}
+	    }
+	}
+    };
+}
@@ -0,0 +1,75 @@
+package com.mchange.v2.c3p0.impl;
+
+import java.io.*;
+import java.util.*;
+
+/*
+ *  Reads and writes the lists of hot SQL with which pools warm the statement caches
+ *  of newly acquired Connections. The format is meant to be easy to maintain by hand:
+ *  UTF-8 text, one SQL statement per line, verbatim. Blank lines and lines beginning
+ *  with '#' are ignored. SQL containing line breaks cannot be represented, so it is
+ *  never written.
+ */
+final class HotSqlFile
+{
+    final static String CHARSET = "UTF-8";
+
+    static List read( File file ) throws IOException
+    {
+	List out = new ArrayList();
+	BufferedReader br = null;
+	try
+	    {
+		br = new BufferedReader( new InputStreamReader( new FileInputStream( file ), CHARSET ) );
+		for (String line = br.readLine(); line != null; line = br.readLine())
+		    {
+			String trimmed = line.trim();
+			if ( trimmed.length() > 0 && trimmed.charAt(0) != '#' )
+			    out.add( line );
+		    }
+		return out;
+	    }
+	finally
+	    {
+		if ( br != null )
+		    br.close();
+	    }
+    }
+
+    // writes to a temporary file, then renames it, so that readers never see a partial list
+    static void write( File file, List sql, String comment ) throws IOException
+    {
+	File tmp = new File( file.getPath() + ".tmp" );
+	PrintWriter pw = null;
+	try
+	    {
+		pw = new PrintWriter( new BufferedWriter( new OutputStreamWriter( new FileOutputStream( tmp ), CHARSET ) ) );
+		pw.println( "# " + comment );
+		for (Iterator ii = sql.iterator(); ii.hasNext(); )
+		    {
+			String s = (String) ii.next();
+			if ( s.indexOf('\n') < 0 && s.indexOf('\r') < 0 && s.trim().length() > 0 && s.trim().charAt(0) != '#' )
+			    pw.println( s );
+		    }
+		pw.flush();
+		if ( pw.checkError() )
+		    throw new IOException( "Failed to write hot SQL to " + tmp );
+	    }
+	finally
+	    {
+		if ( pw != null )
+		    pw.close();
+	    }
+
+	if (! tmp.renameTo( file ) )
+	    {
+		// some platforms won't rename over an existing file
+		file.delete();
+		if (! tmp.renameTo( file ) )
+		    throw new IOException( "Could not rename " + tmp + " to " + file );
+	    }
+    }
+
+    private HotSqlFile()
+    {}
+}
@@ -9,6 +9,7 @@ import com.mchange.v2.c3p0.util.*;
 import com.mchange.v2.log.*;
 
 import java.lang.reflect.Method;
+import java.util.concurrent.locks.ReentrantLock;
 import com.mchange.v2.lang.ObjectUtils;
 import com.mchange.v2.sql.SqlUtils;
 
@@ -41,7 +42,7 @@ public final class NewPooledConnection extends AbstractC3P0PooledConnection{
     final StatementEventSupport  ses; //JDBC4, accepts registrations, but for now, never notifies!
 
     //MT:  protected by this' lock
-    GooGooStatementCache scache                    = null;
+    GooGooStatementCache scache                    = null; // set holding statementCheckoutLock too, so may be read holding either
     Throwable            invalidatingException     = null;
     int                  connection_status         = ConnectionTester.CONNECTION_IS_OKAY;
     Set                  uncachedActiveStatements  = new HashSet(); //cached statements are managed by the cache
@@ -49,6 +50,12 @@ public final class NewPooledConnection extends AbstractC3P0PooledConnection{
     Set                  metaDataResultSets        = new HashSet();
     Set                  rawConnectionResultSets   = null;          //very rarely used, so we lazy initialize...
     boolean              connection_error_signaled = false;
+    List                 proxyCloseExceptions      = new ArrayList(); //reused, emptied on each proxy close
+
+    //MT: thread-safe. Statements are checked out of the cache holding this, rather than this' lock, 
+    //    so that a virtual Thread preparing a Statement doesn't pin its carrier. cached Statements are
+    //    checked in all at once or closed holding this' lock, then this, never in the other order.
+    final ReentrantLock statementCheckoutLock = new ReentrantLock();
 
     //MT: thread-safe, volatile
     volatile NewProxyConnection exposedProxy  = null;
@@ -58,6 +65,12 @@ public final class NewPooledConnection extends AbstractC3P0PooledConnection{
     volatile boolean readOnly_nondefault      = false; 
     volatile boolean typeMap_nondefault       = false; 
 
+    // when a driver round trip last succeeded -- a Statement executed, or a test by the
+    // pool passed -- and whether any Throwable or trouble on close has been seen since
+    // the pool's last successful test. establishing the Connection counts.
+    volatile long    last_live_time           = System.currentTimeMillis();
+    volatile boolean suspect                  = false;
+
     // public API
     public NewPooledConnection(Connection con, 
 			       ConnectionTester connectionTester,
@@ -253,7 +266,11 @@ public final class NewPooledConnection extends AbstractC3P0PooledConnection{
 
     // api for C3P0PooledConnectionPool
     public synchronized void initStatementCache( GooGooStatementCache scache )
-    { this.scache = scache; }
+    {
+        statementCheckoutLock.lock();
+        try { this.scache = scache; }
+        finally { statementCheckoutLock.unlock(); }
+    }
 
     public synchronized GooGooStatementCache getStatementCache()
     { return scache; }
@@ -285,13 +302,43 @@ public final class NewPooledConnection extends AbstractC3P0PooledConnection{
         this.typeMap_nondefault = (typeMap != dflt_typeMap);
     }
 
-    synchronized Object checkoutStatement( Method stmtProducingMethod, Object[] args ) throws SQLException
-    { return scache.checkoutStatement( physicalConnection, stmtProducingMethod, args ); }
+    Object checkoutStatement( Method stmtProducingMethod, Object[] args ) throws SQLException
+    {
+        statementCheckoutLock.lock();
+        try { return scache.checkoutStatement( physicalConnection, stmtProducingMethod, args ); }
+        finally { statementCheckoutLock.unlock(); }
+    }
+
+    Object checkoutStatement( boolean is_callable,
+			      String stmtText,
+			      int result_set_type,
+			      int result_set_concurrency,
+			      int result_set_holdability,
+			      int autogenerated_keys,
+			      int[] columnIndexes,
+			      String[] columnNames ) throws SQLException
+    {
+        statementCheckoutLock.lock();
+        try
+        {
+            return scache.checkoutStatement( physicalConnection,
+                                             is_callable,
+                                             stmtText,
+                                             result_set_type,
+                                             result_set_concurrency,
+                                             result_set_holdability,
+                                             autogenerated_keys,
+                                             columnIndexes,
+                                             columnNames );
+        }
+        finally
+        { statementCheckoutLock.unlock(); }
+    }
 
     synchronized void checkinStatement( Statement stmt ) throws SQLException
     { 
         cleanupStatementResultSets( stmt );
-        scache.checkinStatement( stmt );
+        scache.checkinStatement( physicalConnection, stmt );
     }
 
     synchronized void markActiveUncachedStatement( Statement stmt )
@@ -364,16 +411,16 @@ public final class NewPooledConnection extends AbstractC3P0PooledConnection{
 
 		    exposedProxy = null; //volatile
 
-                    List closeExceptions = new LinkedList();
-                    cleanupResultSets( closeExceptions );
-                    cleanupUncachedStatements( closeExceptions );
-                    checkinAllCachedStatements( closeExceptions );
-                    if ( closeExceptions.size() > 0 )
+                    proxyCloseExceptions.clear();
+                    cleanupResultSets( proxyCloseExceptions );
+                    cleanupUncachedStatements( proxyCloseExceptions );
+                    checkinAllCachedStatements( proxyCloseExceptions );
+                    if ( proxyCloseExceptions.size() > 0 )
                     {
 //                      System.err.println("[c3p0] The following Exceptions occurred while trying to clean up a Connection's stranded resources:");
                         if ( logger.isLoggable( MLevel.INFO ) )
                             logger.info("[c3p0] The following Exceptions occurred while trying to clean up a Connection's stranded resources:");
-                        for ( Iterator ii = closeExceptions.iterator(); ii.hasNext(); )
+                        for ( Iterator ii = proxyCloseExceptions.iterator(); ii.hasNext(); )
                         {
                             Throwable t = (Throwable) ii.next();
 //                          System.err.print("[c3p0 -- connection resource close Exception]: ");
@@ -384,8 +431,9 @@ public final class NewPooledConnection extends AbstractC3P0PooledConnection{
                     }
                     reset( txn_known_resolved );
 
-		    if (closeExceptions.size() > 0)
-			trouble = SqlUtils.toSQLException( (Throwable) closeExceptions.get(0) );
+		    if (proxyCloseExceptions.size() > 0)
+			trouble = SqlUtils.toSQLException( (Throwable) proxyCloseExceptions.get(0) );
+		    proxyCloseExceptions.clear();
                 }
                 catch (SQLException e) //Connection failed to reset!
                 {
@@ -407,6 +455,7 @@ public final class NewPooledConnection extends AbstractC3P0PooledConnection{
             if (trouble != null)
 	    {
 		//System.err.println("TROUBLE: " + trouble);
+		suspect = true; //volatile
                 fireConnectionErrorOccurred( trouble ); //should not be invoked from a sync'ed block
 	    }
 
@@ -455,12 +504,30 @@ public final class NewPooledConnection extends AbstractC3P0PooledConnection{
         }
     }
 
+    // called by our proxies after Statements execute successfully. a suspect Connection
+    // stays suspect, since a Statement might succeed on a Connection that is still broken
+    void markLive()
+    { last_live_time = System.currentTimeMillis(); } //volatile
+
+    // called by the pool after successful tests, which alone clear suspicion
+    void markTested()
+    {
+        last_live_time = System.currentTimeMillis(); //volatile
+        suspect = false; //volatile
+    }
+
+    // -1 if a Throwable has been seen since the last proof of liveness
+    long getLastLivenessProofTime()
+    { return ( suspect ? -1 : last_live_time ); }
+
     synchronized boolean isStatementCaching()
     { return scache != null; }
 
     //synchronized internally to avoid holding locks during event multicast
     SQLException handleThrowable( Throwable t )
     {
+        suspect = true; //volatile
+
         boolean fire_cxn_error = false;
         SQLException sqle = null;
         try
@@ -655,6 +722,9 @@ public final class NewPooledConnection extends AbstractC3P0PooledConnection{
 
     private void cleanupUnclosedResultSetsSet( Set rsSet, List closeExceptions )
     {
+        if ( rsSet.isEmpty() ) // don't bother making an Iterator
+            return;
+
         for ( Iterator ii = rsSet.iterator(); ii.hasNext(); )
         {
             ResultSet rs = (ResultSet) ii.next();
@@ -690,6 +760,9 @@ public final class NewPooledConnection extends AbstractC3P0PooledConnection{
 
     private void cleanupAllStatementResultSets( List closeExceptions )
     {
+        if ( resultSetsForStatements.isEmpty() ) // don't bother making an Iterator
+            return;
+
         for ( Iterator ii = resultSetsForStatements.keySet().iterator(); ii.hasNext(); )
         {
             Object stmt = ii.next();
@@ -716,6 +789,9 @@ public final class NewPooledConnection extends AbstractC3P0PooledConnection{
 
     private void cleanupUncachedStatements( List closeExceptions )
     {
+        if ( uncachedActiveStatements.isEmpty() ) // don't bother making an Iterator
+            return;
+
         for ( Iterator ii = uncachedActiveStatements.iterator(); ii.hasNext(); )
         {
             Statement stmt = (Statement) ii.next();
@@ -737,6 +813,7 @@ public final class NewPooledConnection extends AbstractC3P0PooledConnection{
 
     private void checkinAllCachedStatements( List closeExceptions )
     {
+        statementCheckoutLock.lock();
         try
         {
             if (scache != null)
@@ -744,12 +821,20 @@ public final class NewPooledConnection extends AbstractC3P0PooledConnection{
         }
         catch ( SQLException e )
         { closeExceptions.add(e); }
+        finally
+        { statementCheckoutLock.unlock(); }
     }
 
     private void closeAllCachedStatements() throws SQLException
     {
-        if (scache != null)
-            scache.closeAll( physicalConnection );
+        statementCheckoutLock.lock();
+        try
+        {
+            if (scache != null)
+                scache.closeAll( physicalConnection );
+        }
+        finally
+        { statementCheckoutLock.unlock(); }
     }
 
     private void updateConnectionStatus(int status)
@@ -64,6 +64,7 @@ public class DynamicPooledDataSourceManagerMBean implements DynamicMBean
         hpTmp.add("lastCheckinFailureDefaultUser");
         hpTmp.add("lastIdleTestFailureDefaultUser");
         hpTmp.add("lastConnectionTestFailureDefaultUser");
+        hpTmp.add("warmupFutureDefaultUser");
         HIDE_PROPS = Collections.unmodifiableSet( hpTmp );
         
 	Class[] userPassArgs = new Class[] { String.class, String.class };
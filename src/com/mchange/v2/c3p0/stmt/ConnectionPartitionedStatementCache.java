@@ -0,0 +1,518 @@
+package com.mchange.v2.c3p0.stmt;
+
+import java.sql.*;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import com.mchange.v2.async.AsynchronousRunner;
+import com.mchange.v2.log.MLevel;
+import com.mchange.v2.log.MLog;
+import com.mchange.v2.log.MLogger;
+import com.mchange.v2.util.ResourceClosedException;
+
+/**
+ *  <p>A statement cache that keeps a separate partition, with its own lock,
+ *  for each physical Connection. Cached Statements belong to exactly one
+ *  Connection, so checkouts and checkins on different Connections never
+ *  contend with one another.</p>
+ *
+ *  <p>Only the count of Statements against the global limit, <tt>max_statements</tt>,
+ *  is shared among partitions, and it is kept in an atomic counter. A Connection
+ *  whose partition would exceed its per-Connection limit culls its own least
+ *  recently used Statement. One that finds the global limit reached culls its own
+ *  least recently used Statement too, unless another partition holds more idle
+ *  Statements. Then it asks that partition to cull one, on a helper thread, so that
+ *  partitions never wait on one another's locks, and its new Statement is an overload.
+ *  Connections that come late thus win slots from their elders, rather than starving.</p>
+ *
+ *  <p>Either limit may be zero or negative, meaning no limit of that kind.</p>
+ */
+public final class ConnectionPartitionedStatementCache extends GooGooStatementCache
+{
+    final static MLogger logger = MLog.getLogger( ConnectionPartitionedStatementCache.class );
+
+    //MT: thread-safe
+    final ConcurrentHashMap partitions = new ConcurrentHashMap(); //physical Connections to their Partitions
+    final AtomicInteger     global_count = new AtomicInteger( 0 );
+
+    //MT: immutable
+    final int max_statements;
+    final int max_statements_per_connection;
+    final AsynchronousRunner deferredStatementDestroyer;
+
+    //MT: volatile
+    volatile boolean closed = false;
+    volatile int     frequency_admission_keys = 0; // if positive, partitions use frequency admission
+    volatile int     sql_stats_size = 0;           // if positive, each partition keeps per-SQL statistics of its own
+    volatile boolean lock_free_prepare_partitions = false; // if true, partitions prepare lock-free
+    volatile boolean batched_close_partitions = false;     // if true, partitions batch deferred closes
+
+    //MT: protected by this' lock
+    List retiredSqlStats = Collections.EMPTY_LIST; // what partitions since closed had recorded, most checked-out first
+
+    public ConnectionPartitionedStatementCache(AsynchronousRunner blockingTaskAsyncRunner, AsynchronousRunner deferredStatementDestroyer, int max_statements, int max_statements_per_connection)
+    {
+	super( blockingTaskAsyncRunner, deferredStatementDestroyer );
+	this.max_statements = max_statements;
+	this.max_statements_per_connection = max_statements_per_connection;
+	this.deferredStatementDestroyer = deferredStatementDestroyer;
+    }
+
+    public int getNumStatements()
+    {
+	if (closed)
+	    return -1;
+
+	int out = 0;
+	for (Iterator ii = partitions.values().iterator(); ii.hasNext(); )
+	    out += Math.max( 0, ((Partition) ii.next()).getNumStatements() );
+	return out;
+    }
+
+    public int getNumStatementsCheckedOut()
+    {
+	if (closed)
+	    return -1;
+
+	int out = 0;
+	for (Iterator ii = partitions.values().iterator(); ii.hasNext(); )
+	    out += Math.max( 0, ((Partition) ii.next()).getNumStatementsCheckedOut() );
+	return out;
+    }
+
+    public int getNumConnectionsWithCachedStatements()
+    {
+	if (closed)
+	    return -1;
+
+	int out = 0;
+	for (Iterator ii = partitions.values().iterator(); ii.hasNext(); )
+	{
+	    if ( ((Partition) ii.next()).getNumStatements() > 0 )
+		++out;
+	}
+	return out;
+    }
+
+    public String dumpStatementCacheStatus()
+    {
+	if (closed)
+	    return this + "status: Closed.";
+	else
+	{
+	    StringBuffer sb = new StringBuffer(2048);
+	    sb.append( this );
+	    sb.append( " status: num cached statements: " );
+	    sb.append( getNumStatements() );
+	    sb.append( "; num partitions: " );
+	    sb.append( partitions.size() );
+	    sb.append( '\n' );
+	    for (Iterator ii = partitions.values().iterator(); ii.hasNext(); )
+		sb.append( ((Partition) ii.next()).dumpStatementCacheStatus() );
+	    return sb.toString();
+	}
+    }
+
+    // each partition keeps its own sketch, under its own lock, so popularity is
+    // estimated per Connection. partitions created hereafter are affected.
+    public void useFrequencyAdmission( int expected_keys )
+    { this.frequency_admission_keys = Math.max( 1, expected_keys ); }
+
+    // like sketches, per-SQL statistics are kept per partition, so partitions never
+    // contend to record them, and merged on read. partitions created hereafter are affected.
+    public void useSqlStats( int max_sql_strings )
+    { this.sql_stats_size = Math.max( 1, max_sql_strings ); }
+
+    // partitions created hereafter are affected.
+    public void useLockFreePrepare()
+    { this.lock_free_prepare_partitions = true; }
+
+    // partitions created hereafter are affected.
+    public void useBatchedDeferredCloses()
+    { this.batched_close_partitions = true; }
+
+    // each partition's table tracks its own most checked-out SQL, so merged counts
+    // of SQL that only some partitions track are approximate
+    public List getTopSqlStats( int n )
+    {
+	int sz = sql_stats_size;
+	if ( sz <= 0 )
+	    return Collections.EMPTY_LIST;
+
+	List lists = new ArrayList( partitions.size() + 1 );
+	for (Iterator ii = partitions.values().iterator(); ii.hasNext(); )
+	    lists.add( ((Partition) ii.next()).getTopSqlStats( sz ) );
+	lists.add( retiredSqlStats() );
+	return StatementCacheSqlStats.merge( lists, n );
+    }
+
+    // so that statistics outlive the Connections whose partitions recorded them
+    private void retireSqlStats( Partition p )
+    {
+	int sz = sql_stats_size;
+	if ( sz > 0 )
+	{
+	    List closing = p.getTopSqlStats( sz );
+	    synchronized ( this )
+	    { retiredSqlStats = StatementCacheSqlStats.merge( Arrays.asList( new List[] { retiredSqlStats, closing } ), sz ); }
+	}
+    }
+
+    private synchronized List retiredSqlStats()
+    { return retiredSqlStats; }
+
+    // Connections are still marked as they are destroyed after we have closed, so
+    // without a partition, our own, otherwise unused, destroyer does the marking
+    public void waitMarkConnectionInUse(Connection physicalConnection) throws InterruptedException
+    {
+	Partition p = markingPartition( physicalConnection );
+	if ( p != null )
+	    p.waitMarkConnectionInUse( physicalConnection );
+	else
+	    super.waitMarkConnectionInUse( physicalConnection );
+    }
+
+    public boolean tryMarkConnectionInUse(Connection physicalConnection)
+    {
+	Partition p = markingPartition( physicalConnection );
+	return ( p != null ? p.tryMarkConnectionInUse( physicalConnection ) : super.tryMarkConnectionInUse( physicalConnection ) );
+    }
+
+    public void unmarkConnectionInUse(Connection physicalConnection)
+    {
+	Partition p = (Partition) partitions.get( physicalConnection );
+	if ( p != null )
+	    p.unmarkConnectionInUse( physicalConnection );
+	else
+	    super.unmarkConnectionInUse( physicalConnection );
+    }
+
+    public Boolean inUse(Connection physicalConnection)
+    {
+	Partition p = (Partition) partitions.get( physicalConnection );
+	if ( p != null )
+	    return p.inUse( physicalConnection );
+	else // only a cautious destroyer knows, and would have marked the Connection in a partition
+	    return ( deferredStatementDestroyer != null ? Boolean.FALSE : null );
+    }
+
+    public int getStatementDestroyerNumConnectionsInUse()
+    { return sumPartitions( DESTROYER_NUM_CONNECTIONS_IN_USE ); }
+
+    public int getStatementDestroyerNumConnectionsWithDeferredDestroyStatements()
+    { return sumPartitions( DESTROYER_NUM_CONNECTIONS_WITH_DEFERRED ); }
+
+    public int getStatementDestroyerNumDeferredDestroyStatements()
+    { return sumPartitions( DESTROYER_NUM_DEFERRED ); }
+
+    public boolean warmStatement( Connection physicalConnection, String stmtText ) throws SQLException
+    { return partition( physicalConnection ).warmStatement( physicalConnection, stmtText ); }
+
+    public Object checkoutStatement( Connection physicalConnection, Method stmtProducingMethod, Object[] args )
+	throws SQLException, ResourceClosedException
+    { return partition( physicalConnection ).checkoutStatement( physicalConnection, stmtProducingMethod, args ); }
+
+    public Object checkoutStatement( Connection physicalConnection,
+				     boolean is_callable,
+				     String stmtText,
+				     int result_set_type,
+				     int result_set_concurrency,
+				     int result_set_holdability,
+				     int autogenerated_keys,
+				     int[] columnIndexes,
+				     String[] columnNames )
+	throws SQLException, ResourceClosedException
+    {
+	return partition( physicalConnection ).checkoutStatement( physicalConnection,
+								  is_callable,
+								  stmtText,
+								  result_set_type,
+								  result_set_concurrency,
+								  result_set_holdability,
+								  autogenerated_keys,
+								  columnIndexes,
+								  columnNames );
+    }
+
+    public void checkinStatement( Connection physicalConnection, Object pstmt )
+	throws SQLException
+    {
+	Partition p = (Partition) partitions.get( physicalConnection );
+	if ( p != null )
+	    p.checkinStatement( pstmt );
+	else
+	    checkinStatement( pstmt );
+    }
+
+    // clients who don't tell us the parent Connection make us look for the Statement
+    public void checkinStatement( Object pstmt )
+	throws SQLException
+    {
+	for (Iterator ii = partitions.values().iterator(); ii.hasNext(); )
+	{
+	    Partition p = (Partition) ii.next();
+	    if ( p.isCachedStatement( pstmt ) )
+	    {
+		p.checkinStatement( pstmt );
+		return;
+	    }
+	}
+
+	// not cached anywhere, so an overload statement or not ours. our own,
+	// otherwise unused, structures will find it unknown, and destroy it.
+	super.checkinStatement( pstmt );
+    }
+
+    public void checkinAll(Connection pcon) throws SQLException
+    {
+	Partition p = (Partition) partitions.get( pcon );
+	if ( p != null )
+	    p.checkinAll( pcon );
+    }
+
+    public void closeAll(Connection pcon) throws SQLException
+    {
+	Partition p = (Partition) partitions.get( pcon );
+	if ( p != null )
+	{
+	    p.closeAll( pcon );
+
+	    // the Connection is going away, so its partition should too
+	    if ( partitions.remove( pcon, p ) )
+		retireSqlStats( p );
+	    p.close();
+	}
+    }
+
+    // our superclass' close() cleans up our own, otherwise unused, structures
+    public void close() throws SQLException
+    {
+	if (! closed )
+	{
+	    closed = true;
+	    for (Iterator ii = partitions.values().iterator(); ii.hasNext(); )
+	    {
+		((Partition) ii.next()).close();
+		ii.remove();
+	    }
+	}
+	super.close();
+    }
+
+    private Partition partition( Connection pcon )
+    {
+	Partition out = (Partition) partitions.get( pcon );
+	if ( out == null )
+	{
+	    if ( closed )
+		throw new ResourceClosedException( this + " is closed." );
+
+	    Partition fresh = new Partition();
+	    out = (Partition) partitions.putIfAbsent( pcon, fresh );
+	    if ( out == null )
+		out = fresh;
+	}
+	return out;
+    }
+
+    private Partition markingPartition( Connection pcon )
+    { return ( closed ? (Partition) partitions.get( pcon ) : partition( pcon ) ); }
+
+    private final static int DESTROYER_NUM_CONNECTIONS_IN_USE        = 0;
+    private final static int DESTROYER_NUM_CONNECTIONS_WITH_DEFERRED = 1;
+    private final static int DESTROYER_NUM_DEFERRED                  = 2;
+
+    // -1 if partitions don't track the statistic, or if we have no partitions to ask
+    private int sumPartitions( int stat )
+    {
+	int out = -1;
+	for (Iterator ii = partitions.values().iterator(); ii.hasNext(); )
+	{
+	    Partition p = (Partition) ii.next();
+	    int n;
+	    switch ( stat )
+	    {
+	    case DESTROYER_NUM_CONNECTIONS_IN_USE:
+		n = p.getStatementDestroyerNumConnectionsInUse();
+		break;
+	    case DESTROYER_NUM_CONNECTIONS_WITH_DEFERRED:
+		n = p.getStatementDestroyerNumConnectionsWithDeferredDestroyStatements();
+		break;
+	    case DESTROYER_NUM_DEFERRED:
+		n = p.getStatementDestroyerNumDeferredDestroyStatements();
+		break;
+	    default:
+		throw new InternalError("Unknown statement destroyer statistic: " + stat);
+	    }
+	    if ( n >= 0 )
+		out = Math.max( out, 0 ) + n;
+	}
+	return out;
+    }
+
+    // we are a facade over our partitions, and never cache Statements in our own structures
+    protected ConnectionStatementManager createConnectionStatementManager()
+    { return new SimpleConnectionStatementManager(); }
+
+    boolean prepareAssimilateNewStatement(Connection pcon)
+    { return false; }
+
+    void addStatementToDeathmarches( Object pstmt, Connection physicalConnection )
+    {}
+
+    void removeStatementFromDeathmarches( Object pstmt, Connection physicalConnection )
+    {}
+
+    // claims one of max_statements slots, if any remain
+    private boolean reserveGlobalSlot()
+    {
+	if ( max_statements <= 0 )
+	{
+	    global_count.incrementAndGet();
+	    return true;
+	}
+	else
+	{
+	    while (true)
+	    {
+		int count = global_count.get();
+		if ( count >= max_statements )
+		    return false;
+		else if ( global_count.compareAndSet( count, count + 1 ) )
+		    return true;
+	    }
+	}
+    }
+
+    // the partition with the most idle, and so cullable, Statements, by unlocked reads
+    private Partition mostIdlePartition()
+    {
+	Partition out = null;
+	for (Iterator ii = partitions.values().iterator(); ii.hasNext(); )
+	{
+	    Partition p = (Partition) ii.next();
+	    if ( out == null || p.num_idle > out.num_idle )
+		out = p;
+	}
+	return out;
+    }
+
+    /*
+     *  The cache for a single physical Connection. Its Deathmarch orders
+     *  just this Connection's Statements, and its lock guards just them.
+     */
+    final class Partition extends GooGooStatementCache
+    {
+	//MT: protected by this' lock
+	Deathmarch deathmarch = new Deathmarch();
+
+	//MT: volatile, written while holding this' lock, read unlocked by other partitions
+	volatile int num_idle = 0;
+
+	//MT: thread-safe
+	final AtomicBoolean cull_requested = new AtomicBoolean( false );
+
+	Partition()
+	{
+	    super( ConnectionPartitionedStatementCache.this.blockingTaskAsyncRunner, deferredStatementDestroyer, ConnectionPartitionedStatementCache.this.stats );
+	    if ( frequency_admission_keys > 0 )
+		useFrequencyAdmission( frequency_admission_keys );
+	    if ( sql_stats_size > 0 )
+		useSqlStats( sql_stats_size );
+	    this.lock_free_prepare = lock_free_prepare_partitions;
+	    if ( batched_close_partitions )
+		useBatchedDeferredCloses();
+	}
+
+	//called only in parent's constructor
+	protected ConnectionStatementManager createConnectionStatementManager()
+	{ return new SimpleConnectionStatementManager(); }
+
+	//called by parent only with this' lock
+	void addStatementToDeathmarches( Object pstmt, Connection physicalConnection )
+	{
+	    deathmarch.deathmarchStatement( pstmt );
+	    num_idle = deathmarch.size();
+	}
+
+	void removeStatementFromDeathmarches( Object pstmt, Connection physicalConnection )
+	{
+	    deathmarch.undeathmarchStatement( pstmt );
+	    num_idle = deathmarch.size();
+	}
+
+	// a successful return reserves a slot against the global limit,
+	// which the new statement occupies until statementRemoved( ... )
+	boolean prepareAssimilateNewStatement(Connection pcon)
+	{
+	    int cxn_stmt_count = countCachedStatements();
+	    if ( max_statements_per_connection > 0 && cxn_stmt_count >= max_statements_per_connection && !deathmarch.cullNext() )
+		return false;
+	    else if ( reserveGlobalSlot() )
+		return true;
+	    else
+	    {
+		Partition victim = mostIdlePartition();
+		if ( victim != null && victim != this && victim.num_idle > num_idle )
+		{
+		    victim.requestCull();
+		    return false;
+		}
+		else // culling one of our own frees a global slot, though another partition might beat us to it
+		    return deathmarch.cullNext() && reserveGlobalSlot();
+	    }
+	}
+
+	// we are asked by another partition, which holds its own lock, so we cull
+	// under ours on a helper thread. at most one request is pending at a time.
+	void requestCull()
+	{
+	    if ( cull_requested.compareAndSet( false, true ) )
+	    {
+		try { blockingTaskAsyncRunner.postRunnable( new CullTask() ); }
+		catch ( RuntimeException e )
+		{
+		    cull_requested.set( false );
+		    if ( logger.isLoggable( MLevel.FINE ) )
+			logger.log( MLevel.FINE, this + ": Could not post a task to cull a Statement for another Connection.", e );
+		}
+	    }
+	}
+
+	final class CullTask implements Runnable
+	{
+	    public void run()
+	    {
+		try
+		{
+		    synchronized ( Partition.this )
+		    {
+			if (! isClosed() )
+			    deathmarch.cullNext();
+		    }
+		}
+		finally
+		{ cull_requested.set( false ); }
+	    }
+	}
+
+	void statementRemoved( Object ps )
+	{ global_count.decrementAndGet(); }
+
+	// the statements we hold at close are destroyed without removeStatement( ... ),
+	// so we give back their global slots ourselves
+	public synchronized void close() throws SQLException
+	{
+	    if (! isClosed() )
+		global_count.addAndGet( -countCachedStatements() );
+	    num_idle = 0;
+	    super.close();
+	}
+    }
+}
@@ -0,0 +1,110 @@
+package com.mchange.v2.c3p0.stmt;
+
+/*
+ *  A count-min sketch of 4-bit counters, estimating how often each of a great
+ *  many keys has been seen in (roughly) the recent past, in a small, fixed amount
+ *  of memory. Supports "TinyLFU" admission to a statement cache: a newly prepared
+ *  Statement displaces the cache's eviction candidate only if it is estimated to
+ *  be the more frequently used.
+ *
+ *  Each key increments one counter in each of four rows, and its estimate is the
+ *  least of those counters, so estimates can only overstate frequencies. Counters
+ *  saturate at 15. After every sample_size increments, all counters are halved, so
+ *  that estimates favor recent use, and keys that were once popular fade.
+ *
+ *  Keys are represented by their hash codes. Counters for sixteen keys are packed
+ *  into each long of the table.
+ */
+final class FrequencySketch
+{
+    private final static long RESET_MASK = 0x7777777777777777L; // clears the high bit of each counter after a shift
+    private final static long ONE_MASK   = 0x1111111111111111L; // the low bit of each counter
+
+    private final static long[] SEEDS =
+    {
+	0xc3a5c85c97cb3127L,
+	0xb492b66fbe98f273L,
+	0x9ae16a3b2f90404fL,
+	0xcbf29ce484222325L
+    };
+
+    //MT: not thread-safe. used only with the lock of the cache that owns it
+    final long[] table;
+    final int    table_mask;
+    final int    sample_size;
+
+    int additions = 0;
+
+    FrequencySketch( int expected_keys )
+    {
+	int n = Math.max( 16, expected_keys );
+	int len = Integer.highestOneBit( n - 1 ) << 1; // next power of two at least n
+	this.table       = new long[ len ];
+	this.table_mask  = len - 1;
+	this.sample_size = 10 * n;
+    }
+
+    int frequency( int hash )
+    {
+	int h = spread( hash );
+	int out = 15;
+	for (int i = 0; i < 4; ++i)
+	    out = Math.min( out, (int) ((table[ index( h, i ) ] >>> shift( h, i )) & 0xfL) );
+	return out;
+    }
+
+    void increment( int hash )
+    {
+	int h = spread( hash );
+	boolean incremented = false;
+	for (int i = 0; i < 4; ++i)
+	    {
+		int index = index( h, i );
+		int shift = shift( h, i );
+		if ( ((table[index] >>> shift) & 0xfL) != 0xfL )
+		    {
+			table[index] += (1L << shift);
+			incremented = true;
+		    }
+	    }
+	if ( incremented && ++additions == sample_size )
+	    reset();
+    }
+
+    // TinyLFU's admission test: should a candidate estimated to have been seen
+    // candidate_frequency times displace the key whose hash is victim_hash? ties
+    // favor the victim, so that a cache full of equally cold keys isn't churned.
+    boolean admits( int candidate_frequency, int victim_hash )
+    { return candidate_frequency > frequency( victim_hash ); }
+
+    // halves every counter, and discounts additions for the odd counts truncated
+    void reset()
+    {
+	int odd = 0;
+	for (int i = 0; i < table.length; ++i)
+	    {
+		odd += Long.bitCount( table[i] & ONE_MASK );
+		table[i] = (table[i] >>> 1) & RESET_MASK;
+	    }
+	additions = (additions >>> 1) - (odd >>> 2);
+    }
+
+    // which of the long's sixteen counters row i uses
+    private static int shift( int h, int i )
+    { return ((h >>> (i << 3)) & 0xf) << 2; }
+
+    private int index( int h, int i )
+    {
+	long hash = (h + SEEDS[i]) * SEEDS[i];
+	hash += (hash >>> 32);
+	return ((int) hash) & table_mask;
+    }
+
+    // hash codes of Strings and such can be poorly distributed in their low bits
+    private static int spread( int x )
+    {
+	x = ((x >>> 16) ^ x) * 0x45d9f3b;
+	x = ((x >>> 16) ^ x) * 0x45d9f3b;
+	return (x >>> 16) ^ x;
+    }
+}
@@ -1,6 +1,7 @@
 package com.mchange.v2.c3p0.stmt;
 
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
 import java.sql.*;
 import java.lang.reflect.*;
 import com.mchange.v2.async.AsynchronousRunner;
@@ -30,6 +31,12 @@ public abstract class GooGooStatementCache
     // since when all Connections are in use, nothing can be culled and new Statements cannot be cached
     private final static boolean CULL_ONLY_FROM_UNUSED_CONNECTIONS = false; //alternative culling
 
+    /**
+     *  For the int arguments of the typed checkoutStatement( ... ), 
+     *  when a client supplied no value, and the driver's default applies.
+     */
+    public final static int DRIVER_DEFAULT = Integer.MIN_VALUE;
+
     /* MT: protected by this's lock */
 
     // contains all statements in the cache, 
@@ -50,6 +57,26 @@ public abstract class GooGooStatementCache
     // culling in case of overflow
     HashSet checkedOut = new HashSet();
 
+    // reset and reused for every checkout lookup
+    final ProbeStatementCacheKey probe = new ProbeStatementCacheKey();
+
+    // null unless frequency admission is in use
+    FrequencySketch sketch = null;
+
+    // while a newly prepared statement awaits admission, its
+    // estimated frequency. otherwise -1.
+    int admission_candidate_frequency = -1;
+
+    // null unless per-SQL statistics are kept. the table has its own lock
+    SqlStatsTable sqlStats = null;
+
+    // if true, a Statement missing from the cache is prepared by the checking-out
+    // Thread itself, after it has released this' lock. see useLockFreePrepare()
+    boolean lock_free_prepare = false;
+
+    // keys of Statements being prepared lock-free, mapped to their PendingPrepares
+    HashMap pendingPrepares = new HashMap();
+
 
     /* MT: end protected by this' lock */
 
@@ -70,8 +97,16 @@ public abstract class GooGooStatementCache
     
     /* MT: end protected by its own lock */
 
+    //MT: thread-safe
+    final StatementCacheStats stats;
+
     public GooGooStatementCache(AsynchronousRunner blockingTaskAsyncRunner, AsynchronousRunner deferredStatementDestroyer)
+    { this( blockingTaskAsyncRunner, deferredStatementDestroyer, new StatementCacheStats() ); }
+
+    // caches made of several caches let them share their stats
+    GooGooStatementCache(AsynchronousRunner blockingTaskAsyncRunner, AsynchronousRunner deferredStatementDestroyer, StatementCacheStats stats)
     { 
+        this.stats = stats;
         this.blockingTaskAsyncRunner = blockingTaskAsyncRunner; 
         this.cxnStmtMgr = createConnectionStatementManager();
 	this.destructo = 
@@ -142,51 +177,168 @@ public abstract class GooGooStatementCache
     public void unmarkConnectionInUse(Connection physicalConnection)                               { destructo.unmarkConnectionInUse( physicalConnection ); }
     public Boolean inUse(Connection physicalConnection)                                            { return destructo.tvlInUse( physicalConnection ); }
 
+    public StatementCacheStats getStatistics()
+    { return stats; }
+
     public int getStatementDestroyerNumConnectionsInUse()                           { return destructo.getNumConnectionsInUse(); }
     public int getStatementDestroyerNumConnectionsWithDeferredDestroyStatements()   { return destructo.getNumConnectionsWithDeferredDestroyStatements(); }
     public int getStatementDestroyerNumDeferredDestroyStatements()                  { return destructo.getNumDeferredDestroyStatements(); }  
 
 
     abstract ConnectionStatementManager createConnectionStatementManager();
+
+    /**
+     *  Switches this cache from pure least-recently-used culling to "TinyLFU" admission:
+     *  when the cache is full, a newly prepared Statement is cached only if it is
+     *  estimated to be used more frequently than the Statement that would be culled to
+     *  make room for it. Otherwise, it is closed on checkin, like any uncached Statement.
+     *  Like Statements, frequencies are tracked per Connection.
+     *
+     *  @param expected_keys roughly, the number of distinct hot Statements we should expect
+     */
+    public synchronized void useFrequencyAdmission( int expected_keys )
+    { this.sketch = new FrequencySketch( expected_keys ); }
+
+    /**
+     *  Keeps hit, miss, eviction, and acquisition time statistics for
+     *  (approximately) the max_sql_strings most checked-out SQL strings.
+     */
+    public synchronized void useSqlStats( int max_sql_strings )
+    { this.sqlStats = new SqlStatsTable( max_sql_strings ); }
+
+    /**
+     *  @return a List of at most n StatementCacheSqlStats, most checked-out first,
+     *          empty if per-SQL statistics are not kept.
+     */
+    public synchronized List getTopSqlStats( int n )
+    { return ( sqlStats == null ? Collections.EMPTY_LIST : sqlStats.top( n ) ); }
+
+    /**
+     *  Switches cache misses from preparing in the blockingTaskAsyncRunner, while the
+     *  checking-out Thread wait()s on this cache, to preparing in the checking-out Thread
+     *  itself, after it has released this cache's lock. Either way, the lock is not held
+     *  while the driver prepares, but lock-free prepares need no handoff between Threads,
+     *  and wake no other waiters until they are done. Concurrent misses of the same
+     *  key coalesce: one Thread prepares, while others await its result.
+     */
+    public synchronized void useLockFreePrepare()
+    { this.lock_free_prepare = true; }
+
+    /**
+     *  If Statements are destroyed by a deferredStatementDestroyer, gathers the Statements
+     *  culled from each Connection not in use, and closes them in one task per Connection,
+     *  during which the Connection cannot be marked in use. Otherwise, each such Statement
+     *  is closed by a task of its own, without regard to the Connection's use.
+     */
+    public void useBatchedDeferredCloses()
+    { destructo.useBatchedCloses(); }
     
-    public synchronized Object checkoutStatement( Connection physicalConnection,
+    public Object checkoutStatement( Connection physicalConnection,
                     Method stmtProducingMethod, 
                     Object[] args )  
     throws SQLException, ResourceClosedException
     {
+        Object out;
+        synchronized ( this )
+        {
+            probe.reset( physicalConnection, stmtProducingMethod, args );
+            out = checkoutProbedStatement( physicalConnection );
+        }
+        return finishCheckout( physicalConnection, out );
+    }
+
+    /**
+     *  Checks out a Statement like the one Connection.prepareStatement(...) or 
+     *  Connection.prepareCall(...) would produce, given the arguments a client 
+     *  actually supplied, without reflection or an array of arguments.
+     *
+     *  @param result_set_holdability a ResultSet holdability constant, or DRIVER_DEFAULT if none was supplied
+     *  @param autogenerated_keys a Statement autogenerated keys constant, or DRIVER_DEFAULT if none was supplied
+     *  @param columnIndexes null if none were supplied
+     *  @param columnNames null if none were supplied
+     */
+    public Object checkoutStatement( Connection physicalConnection,
+                    boolean is_callable,
+                    String stmtText,
+                    int result_set_type,
+                    int result_set_concurrency,
+                    int result_set_holdability,
+                    int autogenerated_keys,
+                    int[] columnIndexes,
+                    String[] columnNames )
+    throws SQLException, ResourceClosedException
+    {
+        Object out;
+        synchronized ( this )
+        {
+            // the JDBC constants we might box are all small enough for Integer's own cache
+            probe.reset( physicalConnection,
+                         stmtText,
+                         is_callable,
+                         result_set_type,
+                         result_set_concurrency,
+                         columnIndexes,
+                         columnNames,
+                         ( autogenerated_keys == DRIVER_DEFAULT ? null : Integer.valueOf( autogenerated_keys ) ),
+                         ( result_set_holdability == DRIVER_DEFAULT ? null : Integer.valueOf( result_set_holdability ) ) );
+            out = checkoutProbedStatement( physicalConnection );
+        }
+        return finishCheckout( physicalConnection, out );
+    }
+
+    // we look up by a reusable probe, and materialize a key only if we will
+    // cache a new statement, so that cache hits allocate no key. with lock-free 
+    // prepares, a miss returns a PendingPrepare, to be completed without our lock
+    private Object checkoutProbedStatement( Connection physicalConnection )
+    throws SQLException, ResourceClosedException
+    {
+        assert Thread.holdsLock( this );
+
         try
         {
             Object out = null;
 
-            StatementCacheKey key = StatementCacheKey.find( physicalConnection, 
-                            stmtProducingMethod, 
-                            args );
-            LinkedList l = checkoutQueue( key );
-            if (l == null || l.isEmpty()) //we need a new statement
+            if ( sketch != null )
+                sketch.increment( probe.hashCode() );
+
+            ArrayDeque l = checkoutQueue( probe );
+            if ( (l == null || l.isEmpty()) && lock_free_prepare )
             {
+                StatementCacheKey key = probe.materialize();
+                probe.clear();
+                out = reservePrepare( key, physicalConnection );
+            }
+            else if (l == null || l.isEmpty()) //we need a new statement
+            {
+                stats.increment( StatementCacheStats.MISSES );
+                if ( sqlStats != null )
+                    sqlStats.miss( probe.stmtText );
+
+                // we might wait() below, and let another thread reuse the probe
+                StatementCacheKey key = probe.materialize();
+                probe.clear();
+
                 // we might wait() here... 
                 // don't presume atomicity before and after!
-                out = acquireStatement( physicalConnection, stmtProducingMethod, args );
+                if ( sqlStats != null )
+                {
+                    long start = System.nanoTime();
+                    out = acquireStatement( physicalConnection, key );
+                    sqlStats.acquired( key.stmtText, System.nanoTime() - start );
+                }
+                else
+                    out = acquireStatement( physicalConnection, key );
 
-                if ( prepareAssimilateNewStatement( physicalConnection ) )
-                    assimilateNewCheckedOutStatement( key, physicalConnection, out );
-                // else case: we can't assimilate the statement...
-                // so, we just return our newly created statement, without caching it.
-                // on check-in, it will simply be destroyed... this is an "overload statement"
+                assimilateOrOverload( key, physicalConnection, out );
             }
             else //okay, we can use an old one
             {
-                if (Debug.DEBUG && Debug.TRACE == Debug.TRACE_MAX)
-                    logger.finest(this.getClass().getName() + " ----> CACHE HIT");
-                //System.err.println("-------------> CACHE HIT!");
+                stats.increment( StatementCacheStats.HITS );
+                if ( sqlStats != null )
+                    sqlStats.hit( probe.stmtText );
+                probe.clear();
 
-                out = l.get(0);
-                l.remove(0);
-                if (! checkedOut.add( out ))
-                    throw new RuntimeException("Internal inconsistency: " +
-                                    "Checking out a statement marked " + 
-                    "as already checked out!");
-                removeStatementFromDeathmarches( out, physicalConnection );
+                out = checkoutCached( l, physicalConnection );
             }
 
             if (Debug.DEBUG && Debug.TRACE == Debug.TRACE_MAX)
@@ -215,6 +367,207 @@ public abstract class GooGooStatementCache
         }
     }
 
+    private Object checkoutCached( ArrayDeque l, Connection physicalConnection )
+    {
+        assert Thread.holdsLock( this );
+
+        if (Debug.DEBUG && Debug.TRACE == Debug.TRACE_MAX)
+            logger.finest(this.getClass().getName() + " ----> CACHE HIT");
+        //System.err.println("-------------> CACHE HIT!");
+
+        Object out = l.removeFirst();
+        if (! checkedOut.add( out ))
+            throw new RuntimeException("Internal inconsistency: " +
+                            "Checking out a statement marked " + 
+            "as already checked out!");
+        removeStatementFromDeathmarches( out, physicalConnection );
+        return out;
+    }
+
+    private void assimilateOrOverload( StatementCacheKey key, Connection physicalConnection, Object ps )
+    {
+        assert Thread.holdsLock( this );
+
+        // with frequency admission, Deathmarch.cullNext() won't make room for 
+        // a candidate no more popular than the Statement it would cull
+        boolean assimilate;
+        if ( sketch != null )
+        {
+            admission_candidate_frequency = sketch.frequency( key.hashCode() );
+            try { assimilate = prepareAssimilateNewStatement( physicalConnection ); }
+            finally { admission_candidate_frequency = -1; }
+        }
+        else
+            assimilate = prepareAssimilateNewStatement( physicalConnection );
+
+        if ( assimilate )
+            assimilateNewCheckedOutStatement( key, physicalConnection, ps );
+        else
+            stats.increment( StatementCacheStats.OVERLOADS );
+        // else case: we can't assimilate the statement...
+        // so, we just return our newly created statement, without caching it.
+        // on check-in, it will simply be destroyed... this is an "overload statement"
+    }
+
+    // with lock-free prepares, a miss either prepares or awaits another Thread's
+    // prepare, without our lock, and so without pinning a virtual Thread's carrier
+    private Object finishCheckout( Connection physicalConnection, Object out )
+    throws SQLException
+    {
+        assert !Thread.holdsLock( this );
+
+        while ( out instanceof AwaitedPrepare )
+        {
+            PendingPrepare awaited = ((AwaitedPrepare) out).pending;
+            try
+            { awaited.done.await(); }
+            catch ( InterruptedException e )
+            { throw SqlUtils.toSQLException( e ); }
+
+            synchronized ( this )
+            {
+                if ( isClosed() )
+                    throw new ResourceClosedException( "Attempted to check out a Statement from " + this + " after it has been closed." );
+                out = reservePrepare( awaited.key, physicalConnection );
+            }
+        }
+        return ( out instanceof PendingPrepare ? completePrepare( (PendingPrepare) out ) : out );
+    }
+
+    // concurrent misses of one key can only come from one Connection, whose driver
+    // would serialize the prepares anyway. so, rather than preparing in parallel, 
+    // followers await the leader's prepare, then try the cache again, in case the 
+    // leader's Statement has already been checked back in.
+    private Object reservePrepare( StatementCacheKey key, Connection physicalConnection )
+    throws SQLException
+    {
+        assert Thread.holdsLock( this );
+
+        PendingPrepare pending = (PendingPrepare) pendingPrepares.get( key );
+        if ( pending != null )
+            return new AwaitedPrepare( pending );
+
+        ArrayDeque l = checkoutQueue( key );
+        if ( l != null && !l.isEmpty() )
+        {
+            stats.increment( StatementCacheStats.HITS );
+            if ( sqlStats != null )
+                sqlStats.hit( key.stmtText );
+            return checkoutCached( l, physicalConnection );
+        }
+        else
+        {
+            stats.increment( StatementCacheStats.MISSES );
+            if ( sqlStats != null )
+                sqlStats.miss( key.stmtText );
+            pending = new PendingPrepare( key );
+            pendingPrepares.put( key, pending );
+            return pending;
+        }
+    }
+
+    // called without our lock, so the driver prepares while other Threads use the cache
+    private Object completePrepare( PendingPrepare pending )
+    throws SQLException
+    {
+        assert !Thread.holdsLock( this );
+
+        StatementCacheKey key = pending.key;
+        Object out = null;
+        long start = System.nanoTime();
+        try
+        {
+            out = key.prepare( key.physicalConnection );
+            return out;
+        }
+        finally
+        {
+            long elapsed = System.nanoTime() - start;
+            synchronized ( this )
+            {
+                pendingPrepares.remove( key );
+                pending.done.countDown();
+
+                if ( out != null )
+                {
+                    stats.preparedIn( elapsed );
+                    if ( sqlStats != null )
+                        sqlStats.acquired( key.stmtText, elapsed );
+
+                    // if we've been closed, the Statement will be destroyed on checkin
+                    if (! isClosed() )
+                        assimilateOrOverload( key, key.physicalConnection, out );
+                }
+            }
+        }
+    }
+
+    private final static class PendingPrepare
+    {
+        final StatementCacheKey key;
+        final CountDownLatch    done = new CountDownLatch( 1 );
+
+        PendingPrepare( StatementCacheKey key )
+        { this.key = key; }
+    }
+
+    private final static class AwaitedPrepare
+    {
+        final PendingPrepare pending;
+
+        AwaitedPrepare( PendingPrepare pending )
+        { this.pending = pending; }
+    }
+
+    // caches that can find a Statement's partition more quickly given its
+    // parent Connection may override this
+    public void checkinStatement( Connection physicalConnection, Object pstmt )
+	throws SQLException
+    { checkinStatement( pstmt ); }
+
+    /**
+     *  Prepares and caches, as if a client had prepared and closed it, a plain
+     *  PreparedStatement for stmtText, unless one is already cached for the same
+     *  SQL on the same Connection. Unlike a checkout, prepares in the calling Thread,
+     *  without holding the cache's lock. The caller should mark the Connection in use.
+     *
+     *  @return true if a newly prepared Statement was cached
+     */
+    public boolean warmStatement( Connection physicalConnection, String stmtText )
+	throws SQLException
+    {
+        StatementCacheKey key = new SimpleStatementCacheKey( physicalConnection, 
+                                                             stmtText, 
+                                                             false, 
+                                                             ResultSet.TYPE_FORWARD_ONLY, 
+                                                             ResultSet.CONCUR_READ_ONLY, 
+                                                             null, 
+                                                             null, 
+                                                             null, 
+                                                             null );
+        synchronized ( this )
+        {
+            if ( checkedOut == null || keyRec( key ) != null ) //we're closed, or already have it
+                return false;
+        }
+
+        Object ps = key.prepare( physicalConnection );
+
+        synchronized ( this )
+        {
+            // don't presume atomicity before and after!
+            if ( checkedOut != null && keyRec( key ) == null && prepareAssimilateNewStatement( physicalConnection ) )
+            {
+                assimilateNewCheckedOutStatement( key, physicalConnection, ps );
+                checkinStatement( ps );
+                return true;
+            }
+        }
+
+        StatementUtils.attemptClose( (PreparedStatement) ps );
+        return false;
+    }
+
     public synchronized void checkinStatement( Object pstmt )
 	throws SQLException
     {
@@ -260,8 +613,8 @@ public abstract class GooGooStatementCache
             throw new RuntimeException("Internal inconsistency: " +
             "A checked-out statement has no key associated with it!");
 
-        LinkedList l = checkoutQueue( key );
-        l.add( pstmt );
+        ArrayDeque l = checkoutQueue( key );
+        l.addLast( pstmt );
         addStatementToDeathmarches( pstmt, key.physicalConnection );
 
         if (Debug.DEBUG && Debug.TRACE == Debug.TRACE_MAX)
@@ -279,7 +632,10 @@ public abstract class GooGooStatementCache
         //new Exception("checkinAll()").printStackTrace();
 
         HashSet stmtSet = cxnStmtMgr.statementSet( pcon );
-        if (stmtSet != null)
+
+        // usually clients have closed their Statements already, so there is nothing to check in,
+        // and no need to copy this Connection's Statements on every Connection close
+        if (stmtSet != null && checkedOut != null && !checkedOut.isEmpty())
         {
             // we clone to prevent a rare ConcurrentModificationException, which can occur if
             // an Exception occurs during Statement checkin
@@ -414,6 +770,10 @@ public abstract class GooGooStatementCache
     final int countCachedStatements()
     { return stmtToKey.size(); }
 
+    // a hook for subclasses that must account for statements as they leave the cache
+    void statementRemoved( Object ps )
+    {}
+
     private void assimilateNewCheckedOutStatement( StatementCacheKey key, 
                     Connection pConn, 
                     Object ps )
@@ -490,6 +850,8 @@ public abstract class GooGooStatementCache
                                 new Exception("LOG STACK TRACE"));
         }
 
+        statementRemoved( ps );
+
         synchronized (removalPending)
         { removalPending.remove(ps); }
     }
@@ -498,8 +860,7 @@ public abstract class GooGooStatementCache
 
     
     private Object acquireStatement(final Connection pConn, 
-                    final Method stmtProducingMethod, 
-                    final Object[] args )
+                    final StatementCacheKey key )
     throws SQLException
     {
         try
@@ -512,15 +873,10 @@ public abstract class GooGooStatementCache
                 public void run()
                 {
                     try
-                    {
-                        outHolder[0] = 
-                            stmtProducingMethod.invoke( pConn, 
-                                            args ); 
-                    }
-                    catch ( InvocationTargetException e )
                     { 
-                        Throwable targetException = e.getTargetException();
-			exceptionHolder[0] = targetException;
+                        long start = System.nanoTime();
+                        outHolder[0] = key.prepare( pConn ); 
+                        stats.preparedIn( System.nanoTime() - start );
                     }
                     catch ( Exception e )
                     { exceptionHolder[0] = e; }
@@ -568,7 +924,7 @@ public abstract class GooGooStatementCache
         return out;
     }
 
-    private LinkedList checkoutQueue( StatementCacheKey key )
+    private ArrayDeque checkoutQueue( StatementCacheKey key )
     { 
         KeyRec rec = keyRec( key );
         return ( rec == null ? null : rec.checkoutQueue );
@@ -577,7 +933,7 @@ public abstract class GooGooStatementCache
     private boolean removeFromCheckoutQueue( StatementCacheKey key, Object pstmt )
     {
         boolean out;
-        LinkedList q = checkoutQueue( key );
+        ArrayDeque q = checkoutQueue( key );
         out = q.remove( pstmt );
 	if (Debug.DEBUG)
 	{
@@ -600,6 +956,10 @@ public abstract class GooGooStatementCache
     private boolean ourResource( Object ps )
     { return stmtToKey.keySet().contains( ps ); }
 
+    // the one method here that acquires this' lock for itself
+    synchronized boolean isCachedStatement( Object ps )
+    { return !isClosed() && ourResource( ps ); }
+
     private void refreshStatement( PreparedStatement ps ) throws Exception
     { 
 	ps.clearParameters(); 
@@ -651,15 +1011,26 @@ public abstract class GooGooStatementCache
     private static class KeyRec
     {
         HashSet  allStmts       = new HashSet();
-        LinkedList checkoutQueue  = new LinkedList();
+        ArrayDeque checkoutQueue  = new ArrayDeque();
     }
 
+    /*
+     *  Orders checked-in Statements from least to most recently checked in, so that
+     *  the least recently used can be culled. Statements are kept in an intrusive,
+     *  doubly-linked list, indexed by an IdentityHashMap, which, unlike a HashMap,
+     *  allocates nothing as entries come and go. List nodes are recycled. So marching
+     *  and unmarching a Statement, and culling one, are constant time, and in a steady
+     *  state allocate nothing.
+     */
     protected class Deathmarch
     {
-        TreeMap longsToStmts = new TreeMap(); 
-        HashMap stmtsToLongs = new HashMap();
+        IdentityHashMap stmtsToNodes = new IdentityHashMap();
+
+        DeathmarchNode eldest   = null;
+        DeathmarchNode youngest = null;
 
-        long last_long = -1;
+        // recycled nodes, linked through their younger fields
+        DeathmarchNode spares   = null;
 
         public void deathmarchStatement( Object ps )
         {
@@ -668,30 +1039,56 @@ public abstract class GooGooStatementCache
             //System.err.println("deathmarchStatement( " + ps + " )");
             if (Debug.DEBUG)
             {
-                Long old = (Long) stmtsToLongs.get( ps );
-                if (old != null)
+                if (stmtsToNodes.containsKey( ps ))
                     throw new RuntimeException("Internal inconsistency: " +
                                     "A statement is being double-deathmatched. no checked-out statements should be in a deathmarch already; " +
                     "no already checked-in statement should be deathmarched!");
             }
 
-            Long youth = getNextLong();
-            stmtsToLongs.put( ps, youth );
-            longsToStmts.put( youth, ps );
+            DeathmarchNode node = spares;
+            if (node == null)
+                node = new DeathmarchNode();
+            else
+                spares = node.younger;
+
+            node.stmt    = ps;
+            node.elder   = youngest;
+            node.younger = null;
+            if (youngest == null)
+                eldest = node;
+            else
+                youngest.younger = node;
+            youngest = node;
+
+            stmtsToNodes.put( ps, node );
         }
 
         public void undeathmarchStatement( Object ps )
         {
             assert Thread.holdsLock(GooGooStatementCache.this);
 
-            Long old = (Long) stmtsToLongs.remove( ps );
-            if (Debug.DEBUG && old == null)
-                throw new RuntimeException("Internal inconsistency: " +
-                "A (not new) checking-out statement is not in deathmarch.");
-            Object check = longsToStmts.remove( old );
-            if (Debug.DEBUG && old == null)
-                throw new RuntimeException("Internal inconsistency: " +
-                "A (not new) checking-out statement is not in deathmarch.");
+            DeathmarchNode node = (DeathmarchNode) stmtsToNodes.remove( ps );
+            if (node == null)
+            {
+                if (Debug.DEBUG)
+                    throw new RuntimeException("Internal inconsistency: " +
+                    "A (not new) checking-out statement is not in deathmarch.");
+                return;
+            }
+
+            if (node.elder == null)
+                eldest = node.younger;
+            else
+                node.elder.younger = node.younger;
+            if (node.younger == null)
+                youngest = node.elder;
+            else
+                node.younger.elder = node.elder;
+
+            node.stmt    = null;
+            node.elder   = null;
+            node.younger = spares;
+            spares = node;
         }
         
         public boolean cullNext()
@@ -703,10 +1100,9 @@ public abstract class GooGooStatementCache
             
             if (CULL_ONLY_FROM_UNUSED_CONNECTIONS) //alternative implementation -- cull only from unused Connections
             {
-                for (Iterator ii = longsToStmts.keySet().iterator(); cullMeStmt == null && ii.hasNext(); )
+                for (DeathmarchNode node = eldest; cullMeStmt == null && node != null; node = node.younger)
                 {
-                    Long l = (Long) ii.next();
-                    Object maybeCullMe = longsToStmts.get( l );
+                    Object maybeCullMe = node.stmt;
                     StatementCacheKey maybeSck = (StatementCacheKey) stmtToKey.get( maybeCullMe );
                     Connection pCon = maybeSck.physicalConnection;
                     if (! destructo.knownInUse( pCon ) ) //we don't cull Statements underneath of Connections in current use
@@ -720,15 +1116,14 @@ public abstract class GooGooStatementCache
             }
 	    else //strict LRU culling
 	    {
-                if ( !longsToStmts.isEmpty() )
-                 {
-                    Long l = (Long) longsToStmts.firstKey();
-                    cullMeStmt = longsToStmts.get( l );
-                 }
+                if ( eldest != null )
+                    cullMeStmt = eldest.stmt;
 	    }
 
             if ( cullMeStmt == null ) // we didn't find a Statement we could cull
                 return false;
+            else if ( admission_candidate_frequency >= 0 && !admits( cullMeStmt, sck ) )
+                return false;
             else
             {
                 if (Debug.DEBUG && Debug.TRACE == Debug.TRACE_MAX)
@@ -739,51 +1134,44 @@ public abstract class GooGooStatementCache
                         logger.finest("CULLING: " + sck.stmtText);
                 }
 
+                if ( sqlStats != null )
+                {
+                    if (sck == null)
+                        sck = ((StatementCacheKey) stmtToKey.get(cullMeStmt));
+                    sqlStats.evicted( sck.stmtText );
+                }
+
                 // we do not undeathmarch the statement ourselves, because removeStatement( ... )
                 // should remove from all deathmarches...
                 removeStatement( cullMeStmt, DESTROY_ALWAYS );
+                stats.increment( StatementCacheStats.EVICTIONS );
                 if (Debug.DEBUG && this.contains( cullMeStmt ))
                     throw new RuntimeException("Inconsistency!!! Statement culled from deathmarch failed to be removed by removeStatement( ... )!");
 
                 return true;
             }
         }
-        
 
-        /*
-        public boolean cullNext()
+        // does the awaiting candidate seem more popular than cullMeStmt?
+        private boolean admits( Object cullMeStmt, StatementCacheKey sck )
         {
-            if ( longsToStmts.isEmpty() )
-                return false;
-            else
-            {
-                Long l = (Long) longsToStmts.firstKey();
-                Object ps = longsToStmts.get( l );
-                if (Debug.DEBUG && Debug.TRACE == Debug.TRACE_MAX)
-                {
-//                  System.err.println("CULLING: " + 
-//                  ((StatementCacheKey) stmtToKey.get(ps)).stmtText);
-                    if (logger.isLoggable(MLevel.FINEST))
-                        logger.finest("CULLING: " + ((StatementCacheKey) stmtToKey.get(ps)).stmtText);
-                }
-                // we do not undeathmarch the statement ourselves, because removeStatement( ... )
-                // should remove from all deathmarches...
-                removeStatement( ps, DESTROY_ALWAYS ); 
-                if (Debug.DEBUG && this.contains( ps ))
-                    throw new RuntimeException("Inconsistency!!! Statement culled from deathmarch failed to be removed by removeStatement( ... )!");
-                return true;
-            }
+            if (sck == null)
+                sck = (StatementCacheKey) stmtToKey.get( cullMeStmt );
+            return sketch.admits( admission_candidate_frequency, sck.hashCode() );
         }
-        */
 
         public boolean contains( Object ps )
-        { return stmtsToLongs.keySet().contains( ps ); }
+        { return stmtsToNodes.containsKey( ps ); }
 
         public int size()
-        { return longsToStmts.size(); }
+        { return stmtsToNodes.size(); }
+    }
 
-        private Long getNextLong()
-        { return new Long( ++last_long ); }
+    private static final class DeathmarchNode
+    {
+        Object         stmt;
+        DeathmarchNode elder;
+        DeathmarchNode younger;
     }
 
     protected static abstract class ConnectionStatementManager
@@ -907,6 +1295,10 @@ public abstract class GooGooStatementCache
 
 	abstract void close();
 
+	// by default, a no-op
+	void useBatchedCloses()
+	{}
+
 	/* non-public methods that needn't be called with any lock below */
 
 	final void uncheckedDestroyStatement( final Object pstmt )
@@ -977,6 +1369,16 @@ public abstract class GooGooStatementCache
 
 	boolean closed = false;
 
+	// if true, Statements culled from Connections not in use are tracked,
+	// and closed in batches, rather than each by a task of its own
+	boolean batched = false;
+
+	// Connections for which a BatchedStatementCloseTask has been posted, but not yet finished
+	HashSet connectionsWithBatchesPending = new HashSet();
+
+	synchronized void useBatchedCloses()
+	{ batched = true; }
+
 	synchronized void close()
 	{ closed = true; }
 
@@ -1067,7 +1469,10 @@ public abstract class GooGooStatementCache
 	    if ( zombieStatements != null )
 		{
 		    //System.err.println("zombieStatements: " + zombieStatements);
-		    destroyAllTrackedStatements( physicalConnection );
+		    if ( batched )
+			batchDestroyTrackedStatements( physicalConnection );
+		    else
+			destroyAllTrackedStatements( physicalConnection );
 		}
 	}
 	
@@ -1084,6 +1489,19 @@ public abstract class GooGooStatementCache
 				    connectionsToZombieStatementSets.put(parentConnection, s);
 				}
 			    s.add( pstmt );
+			    stats.increment( StatementCacheStats.DEFERRED_CLOSES );
+			}
+		    else if ( batched )
+			{
+			    // while its Statements are tracked, the Connection can't be marked in use
+			    Set s = (Set) connectionsToZombieStatementSets.get(parentConnection);
+			    if (s == null)
+				{
+				    s = Collections.synchronizedSet( new HashSet() );
+				    connectionsToZombieStatementSets.put(parentConnection, s);
+				}
+			    s.add( pstmt );
+			    batchDestroyTrackedStatements( parentConnection );
 			}
 		    else
 			{
@@ -1231,6 +1649,68 @@ public abstract class GooGooStatementCache
 		}
 	}
 
+	// posts at most one task at a time per Connection. Statements culled while
+	// the task is pending or running join its batch. Unlike TrackedDestroyAllStatementsTask,
+	// the task does not hold our lock while it closes Statements, so marking and unmarking
+	// other Connections doesn't wait upon the driver.
+	private void batchDestroyTrackedStatements( final Object parentConnection )
+	{
+	    assert Thread.holdsLock( this );
+
+	    if (! connectionsWithBatchesPending.add( parentConnection ) )
+		return;
+
+	    final class BatchedStatementCloseTask implements Runnable
+	    {
+		public void run()
+		{
+		    Object[] batch = nextBatch( null );
+		    while ( batch != null )
+			{
+			    for (int i = 0; i < batch.length; ++i)
+				StatementUtils.attemptClose( (PreparedStatement) batch[i] );
+			    batch = nextBatch( batch );
+			}
+		}
+
+		// forgets the Statements just closed, and returns any culled meanwhile, or null
+		// when none remain. the Connection can't have been marked in use in between.
+		private Object[] nextBatch( Object[] closed )
+		{
+		    synchronized ( CautiousStatementDestructionManager.this )
+			{
+			    Set stmts = (Set) connectionsToZombieStatementSets.get( parentConnection );
+			    if ( stmts != null && closed != null )
+				{
+				    for (int i = 0; i < closed.length; ++i)
+					stmts.remove( closed[i] );
+				}
+
+			    if ( stmts == null || stmts.isEmpty() )
+				{
+				    if ( stmts != null )
+					connectionsToZombieStatementSets.remove( parentConnection );
+				    connectionsWithBatchesPending.remove( parentConnection );
+				    CautiousStatementDestructionManager.this.notifyAll();
+				    return null;
+				}
+			    else
+				return stmts.toArray();
+			}
+		}
+	    }
+
+	    Runnable r = new BatchedStatementCloseTask();
+
+	    if (! closed)
+		deferredStatementDestroyer.postRunnable(r);
+	    else
+		{
+		    // we hold our lock here, but we are closed, so it hardly matters
+		    r.run();
+		}
+	}
+
 	private Set statementsUnderDestruction( Object parentConnection ) 
 	{ 
 	    assert Thread.holdsLock( this );
@@ -0,0 +1,125 @@
+package com.mchange.v2.c3p0.stmt;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.lang.reflect.Method;
+
+/*
+ *  A reusable, mutable key with which a statement cache probes its own
+ *  maps by value, so that a cache hit allocates no key at all. A key
+ *  that will be stored in the cache is materialized only on a miss.
+ *
+ *  Probes compare equal to, and hash like, the SimpleStatementCacheKeys
+ *  they materialize.
+ */
+final class ProbeStatementCacheKey extends StatementCacheKey
+{
+    //MT: not thread-safe. each cache keeps its own probe, and
+    //    uses it only while holding the cache's lock
+    int cached_hash;
+
+    ProbeStatementCacheKey()
+    {}
+
+    // modeled on the find logic of the other StatementCacheKeys, but distinguishes
+    // two-arg methods by the runtime types of their args, rather than by
+    // Method.getParameterTypes(), which copies an array on every call
+    void reset( Connection pcon, Method stmtProducingMethod, Object[] args )
+    {
+	String stmtText = (String) args[0];
+	boolean is_callable = stmtProducingMethod.getName().equals("prepareCall");
+	int result_set_type        = ResultSet.TYPE_FORWARD_ONLY;
+	int result_set_concurrency = ResultSet.CONCUR_READ_ONLY;
+
+	int[] columnIndexes          = null;
+	String[] columnNames         = null;
+	Integer autogeneratedKeys    = null;
+	Integer resultSetHoldability = null;
+
+	switch (args.length)
+	    {
+	    case 1:
+		break;
+	    case 2:
+		if (args[1] instanceof int[])
+		    columnIndexes = (int[]) args[1];
+		else if (args[1] instanceof String[])
+		    columnNames = (String[]) args[1];
+		else if (args[1] instanceof Integer)
+		    autogeneratedKeys = (Integer) args[1];
+		else
+		    throw new IllegalArgumentException("c3p0 probably needs to be updated for some new " +
+						       "JDBC spec! As of JDBC3, we expect two arg statement " +
+						       "producing methods where the second arg is either " +
+						       "an int, int array, or String array.");
+		break;
+	    case 3:
+	    case 4:
+		result_set_type        = ((Integer) args[1]).intValue();
+		result_set_concurrency = ((Integer) args[2]).intValue();
+		if (args.length == 4)
+		    resultSetHoldability = (Integer) args[3];
+		break;
+	    default:
+		throw new IllegalArgumentException("Unexpected number of args to " +
+						   stmtProducingMethod.getName() );
+	    }
+
+	reset( pcon,
+	       stmtText,
+	       is_callable,
+	       result_set_type,
+	       result_set_concurrency,
+	       columnIndexes,
+	       columnNames,
+	       autogeneratedKeys,
+	       resultSetHoldability );
+    }
+
+    void reset( Connection pcon,
+		String stmtText,
+		boolean is_callable,
+		int result_set_type,
+		int result_set_concurrency,
+		int[] columnIndexes,
+		String[] columnNames,
+		Integer autogeneratedKeys,
+		Integer resultSetHoldability )
+    {
+	init( pcon,
+	      stmtText,
+	      is_callable,
+	      result_set_type,
+	      result_set_concurrency,
+	      columnIndexes,
+	      columnNames,
+	      autogeneratedKeys,
+	      resultSetHoldability );
+	this.cached_hash = StatementCacheKey.hashCode( this );
+    }
+
+    // forget the last lookup's Connection and arrays, so an idle cache doesn't retain them
+    void clear()
+    { init( null, null, false, 0, 0, null, null, null, null ); }
+
+    // the arrays are the client's, who might modify them after preparing
+    // their Statement, so the key we keep gets copies
+    StatementCacheKey materialize()
+    {
+	return new SimpleStatementCacheKey( physicalConnection,
+					    stmtText,
+					    is_callable,
+					    result_set_type,
+					    result_set_concurrency,
+					    (columnIndexes == null ? null : columnIndexes.clone()),
+					    (columnNames == null ? null : columnNames.clone()),
+					    autogeneratedKeys,
+					    resultSetHoldability );
+    }
+
+    public boolean equals( Object o )
+    { return StatementCacheKey.equals( this, o ); }
+
+    public int hashCode()
+    { return cached_hash; }
+}
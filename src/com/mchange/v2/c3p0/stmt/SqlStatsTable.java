@@ -0,0 +1,169 @@
+package com.mchange.v2.c3p0.stmt;
+
+import java.util.*;
+
+/*
+ *  Per-SQL statement cache statistics, for a bounded number of SQL strings,
+ *  kept by the "space-saving" algorithm of Metwally, Agrawal, and El Abbadi:
+ *  the table tracks at most max_size SQL strings, weighted by their checkouts.
+ *  When a checkout of an untracked SQL string finds the table full, the
+ *  string displaces the tracked string with the fewest checkouts, and
+ *  inherits that count, plus one. A string's reported count is therefore
+ *  an overestimate, by at most the count it inherited. Any SQL string checked
+ *  out more often than (total checkouts / max_size) is guaranteed to be tracked.
+ *
+ *  Entries live in a min-heap ordered by checkouts, so the string to displace
+ *  is always at the root. Checkout counts only grow, and by one at a time, so
+ *  maintaining the heap is cheap.
+ *
+ *  Hits, misses, evictions, and acquisition time are counted only while a string
+ *  is tracked.
+ */
+final class SqlStatsTable
+{
+    //MT: protected by this' lock
+    final Entry[] heap;
+    final HashMap sqlToEntries;
+    int size = 0;
+
+    SqlStatsTable( int max_size )
+    {
+	this.heap = new Entry[ max_size ];
+	this.sqlToEntries = new HashMap( max_size * 2 );
+    }
+
+    synchronized void hit( String sql )
+    { checkout( sql ).hits++; }
+
+    synchronized void miss( String sql )
+    { checkout( sql ).misses++; }
+
+    synchronized void evicted( String sql )
+    {
+	Entry e = (Entry) sqlToEntries.get( sql );
+	if ( e != null )
+	    e.evictions++;
+    }
+
+    synchronized void acquired( String sql, long nanos )
+    {
+	Entry e = (Entry) sqlToEntries.get( sql );
+	if ( e != null )
+	    e.acquire_nanos += nanos;
+    }
+
+    /**
+     *  @return a List of StatementCacheSqlStats, most checked-out first
+     */
+    synchronized List top( int n )
+    {
+	Entry[] sorted = new Entry[ size ];
+	System.arraycopy( heap, 0, sorted, 0, size );
+	Arrays.sort( sorted, BY_CHECKOUTS_DESCENDING );
+
+	int len = Math.min( Math.max( 0, n ), size );
+	List out = new ArrayList( len );
+	for (int i = 0; i < len; ++i)
+	    out.add( sorted[i].snapshot() );
+	return out;
+    }
+
+    private Entry checkout( String sql )
+    {
+	assert Thread.holdsLock( this );
+
+	Entry e = (Entry) sqlToEntries.get( sql );
+	if ( e == null )
+	    {
+		if ( size < heap.length )
+		    {
+			e = new Entry( size );
+			heap[ size++ ] = e;
+			siftUp( e.index );
+		    }
+		else
+		    {
+			// displace the least checked-out string, inheriting its count
+			e = heap[0];
+			sqlToEntries.remove( e.sql );
+			e.overcount     = e.checkouts;
+			e.hits          = 0;
+			e.misses        = 0;
+			e.evictions     = 0;
+			e.acquire_nanos = 0;
+		    }
+		e.sql = sql;
+		sqlToEntries.put( sql, e );
+	    }
+	e.checkouts++;
+	siftDown( e.index );
+	return e;
+    }
+
+    private void siftUp( int i )
+    {
+	while ( i > 0 )
+	    {
+		int parent = (i - 1) >>> 1;
+		if ( heap[parent].checkouts <= heap[i].checkouts )
+		    break;
+		swap( i, parent );
+		i = parent;
+	    }
+    }
+
+    private void siftDown( int i )
+    {
+	while ( true )
+	    {
+		int least = i;
+		int left  = 2 * i + 1;
+		int right = left + 1;
+		if ( left < size && heap[left].checkouts < heap[least].checkouts )
+		    least = left;
+		if ( right < size && heap[right].checkouts < heap[least].checkouts )
+		    least = right;
+		if ( least == i )
+		    break;
+		swap( i, least );
+		i = least;
+	    }
+    }
+
+    private void swap( int i, int j )
+    {
+	Entry tmp = heap[i];
+	heap[i] = heap[j];
+	heap[j] = tmp;
+	heap[i].index = i;
+	heap[j].index = j;
+    }
+
+    private final static Comparator BY_CHECKOUTS_DESCENDING = new Comparator()
+    {
+	public int compare( Object a, Object b )
+	{
+	    long ac = ((Entry) a).checkouts;
+	    long bc = ((Entry) b).checkouts;
+	    return ( ac > bc ? -1 : ( ac < bc ? 1 : 0 ) );
+	}
+    };
+
+    private final static class Entry
+    {
+	String sql;
+	int    index;
+	long   checkouts;
+	long   overcount;
+	long   hits;
+	long   misses;
+	long   evictions;
+	long   acquire_nanos;
+
+	Entry( int index )
+	{ this.index = index; }
+
+	StatementCacheSqlStats snapshot()
+	{ return new StatementCacheSqlStats( sql, checkouts, overcount, hits, misses, evictions, acquire_nanos ); }
+    }
+}
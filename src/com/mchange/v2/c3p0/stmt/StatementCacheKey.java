@@ -1,6 +1,8 @@
 package com.mchange.v2.c3p0.stmt;
 
 import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.lang.reflect.Method;
 import java.util.Arrays;
 import com.mchange.v1.util.ArrayUtils;
@@ -93,6 +95,40 @@ abstract class StatementCacheKey
 	this.resultSetHoldability   = resultSetHoldability;
     }
     
+    // prepares the Statement this key describes, by the simplest method that
+    // honors all of its attributes. keys that are equal() prepare equivalent Statements.
+    Object prepare( Connection pcon ) throws SQLException
+    {
+	boolean default_result_sets = 
+	    result_set_type == ResultSet.TYPE_FORWARD_ONLY && 
+	    result_set_concurrency == ResultSet.CONCUR_READ_ONLY;
+
+	if ( is_callable )
+	    {
+		if ( resultSetHoldability != null )
+		    return pcon.prepareCall( stmtText, result_set_type, result_set_concurrency, resultSetHoldability.intValue() );
+		else if (! default_result_sets )
+		    return pcon.prepareCall( stmtText, result_set_type, result_set_concurrency );
+		else
+		    return pcon.prepareCall( stmtText );
+	    }
+	else
+	    {
+		if ( columnIndexes != null )
+		    return pcon.prepareStatement( stmtText, columnIndexes );
+		else if ( columnNames != null )
+		    return pcon.prepareStatement( stmtText, columnNames );
+		else if ( autogeneratedKeys != null )
+		    return pcon.prepareStatement( stmtText, autogeneratedKeys.intValue() );
+		else if ( resultSetHoldability != null )
+		    return pcon.prepareStatement( stmtText, result_set_type, result_set_concurrency, resultSetHoldability.intValue() );
+		else if (! default_result_sets )
+		    return pcon.prepareStatement( stmtText, result_set_type, result_set_concurrency );
+		else
+		    return pcon.prepareStatement( stmtText );
+	    }
+    }
+
     static boolean equals(StatementCacheKey _this, Object o)
     {
 	//TODO: assert( _this != null )
@@ -0,0 +1,99 @@
+package com.mchange.v2.c3p0.stmt;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ *  <p>An immutable snapshot of a statement cache's statistics for one SQL string,
+ *  as reported when the config parameter <tt>statementCacheSqlStatsSize</tt> is
+ *  set.</p>
+ *
+ *  <p>Statistics are kept for a bounded number of SQL strings. When a new string
+ *  displaces the least-used string in a full table, it inherits that string's
+ *  checkout count. So <tt>numCheckouts</tt> may overstate the true number of
+ *  checkouts, by at most <tt>maxOvercount</tt>, and hits, misses, evictions,
+ *  and acquisition time are counted only from when the string was last
+ *  admitted to the table.</p>
+ */
+public final class StatementCacheSqlStats implements Serializable
+{
+    private static final long serialVersionUID = 1;
+
+    private final String sql;
+    private final long   numCheckouts;
+    private final long   maxOvercount;
+    private final long   numHits;
+    private final long   numMisses;
+    private final long   numEvictions;
+    private final long   acquireNanos;
+
+    public StatementCacheSqlStats( String sql, long numCheckouts, long maxOvercount, long numHits, long numMisses, long numEvictions, long acquireNanos )
+    {
+	this.sql          = sql;
+	this.numCheckouts = numCheckouts;
+	this.maxOvercount = maxOvercount;
+	this.numHits      = numHits;
+	this.numMisses    = numMisses;
+	this.numEvictions = numEvictions;
+	this.acquireNanos = acquireNanos;
+    }
+
+    public String getSql()          { return sql; }
+    public long   getNumCheckouts() { return numCheckouts; }
+    public long   getMaxOvercount() { return maxOvercount; }
+    public long   getNumHits()      { return numHits; }
+    public long   getNumMisses()    { return numMisses; }
+    public long   getNumEvictions() { return numEvictions; }
+
+    /**
+     *  @return the cumulative time, in nanoseconds, that checkouts which missed
+     *          the cache spent awaiting a newly prepared Statement
+     */
+    public long getAcquireNanos()   { return acquireNanos; }
+
+    public String toString()
+    {
+	return this.getClass().getName() + "[ sql -> " + sql + ", numCheckouts -> " + numCheckouts + ", maxOvercount -> " + maxOvercount +
+	    ", numHits -> " + numHits + ", numMisses -> " + numMisses + ", numEvictions -> " + numEvictions + ", acquireNanos -> " + acquireNanos + " ]";
+    }
+
+    /**
+     *  Combines Lists of StatementCacheSqlStats, such as those reported by the several
+     *  pools of a PooledDataSource, summing the statistics of the same SQL.
+     *
+     *  @return a List of at most n StatementCacheSqlStats, most checked-out first
+     */
+    public static List merge( Collection lists, int n )
+    {
+	HashMap sqlToStats = new HashMap();
+	for (Iterator ii = lists.iterator(); ii.hasNext(); )
+	    {
+		for (Iterator jj = ((List) ii.next()).iterator(); jj.hasNext(); )
+		    {
+			StatementCacheSqlStats s = (StatementCacheSqlStats) jj.next();
+			StatementCacheSqlStats prior = (StatementCacheSqlStats) sqlToStats.get( s.sql );
+			if ( prior != null )
+			    s = new StatementCacheSqlStats( s.sql,
+							    s.numCheckouts + prior.numCheckouts,
+							    s.maxOvercount + prior.maxOvercount,
+							    s.numHits + prior.numHits,
+							    s.numMisses + prior.numMisses,
+							    s.numEvictions + prior.numEvictions,
+							    s.acquireNanos + prior.acquireNanos );
+			sqlToStats.put( s.sql, s );
+		    }
+	    }
+
+	List out = new ArrayList( sqlToStats.values() );
+	Collections.sort( out, new Comparator()
+	    {
+		public int compare( Object a, Object b )
+		{
+		    long ac = ((StatementCacheSqlStats) a).numCheckouts;
+		    long bc = ((StatementCacheSqlStats) b).numCheckouts;
+		    return ( ac > bc ? -1 : ( ac < bc ? 1 : 0 ) );
+		}
+	    } );
+	return ( out.size() > n ? new ArrayList( out.subList( 0, Math.max( 0, n ) ) ) : out );
+    }
+}
@@ -0,0 +1,101 @@
+package com.mchange.v2.c3p0.stmt;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ *  <p>Cumulative counts of a statement cache's hits, misses, evictions, overload
+ *  Statements, and deferred closes, and a histogram of the time taken to prepare
+ *  new Statements.</p>
+ *
+ *  <p>Counters are striped across cache lines, and a thread increments only
+ *  the stripe its id selects, so caches whose partitions are not otherwise
+ *  synchronized with one another don't contend to update them. Reads sum
+ *  the stripes, and are consistent only approximately.</p>
+ *
+ *  <p>Prepare latencies are bucketed by powers of two of microseconds:
+ *  bucket 0 counts prepares that took less than 1 microsecond, bucket i
+ *  counts those that took at least 2<sup>i-1</sup> but less than 2<sup>i</sup>
+ *  microseconds, and the last bucket counts everything slower.</p>
+ */
+public final class StatementCacheStats
+{
+    final static int HITS            = 0;
+    final static int MISSES          = 1;
+    final static int EVICTIONS       = 2;
+    final static int OVERLOADS       = 3;
+    final static int DEFERRED_CLOSES = 4;
+
+    // 16 longs = 128 bytes, so no two stripes share a cache line (or an adjacent-line prefetch)
+    private final static int STRIDE = 16;
+
+    public final static int NUM_PREPARE_LATENCY_BUCKETS = 24;
+
+    //MT: thread-safe
+    private final AtomicLongArray counters;
+    private final int             stripe_mask;
+    private final AtomicLongArray prepareLatencyBuckets = new AtomicLongArray( NUM_PREPARE_LATENCY_BUCKETS );
+
+    public StatementCacheStats()
+    {
+	int want = Math.min( 64, 2 * Runtime.getRuntime().availableProcessors() );
+	int stripes = Integer.highestOneBit( Math.max( 1, want - 1 ) ) << 1;
+	this.counters    = new AtomicLongArray( stripes * STRIDE );
+	this.stripe_mask = stripes - 1;
+    }
+
+    public long getNumHits()               { return sum( HITS ); }
+    public long getNumMisses()             { return sum( MISSES ); }
+    public long getNumEvictions()          { return sum( EVICTIONS ); }
+    public long getNumOverloadStatements() { return sum( OVERLOADS ); }
+    public long getNumDeferredCloses()     { return sum( DEFERRED_CLOSES ); }
+
+    /**
+     *  @return a copy of the prepare latency histogram,
+     *          NUM_PREPARE_LATENCY_BUCKETS long.
+     */
+    public long[] getPrepareLatencyHistogram()
+    {
+	long[] out = new long[ NUM_PREPARE_LATENCY_BUCKETS ];
+	for (int i = 0; i < NUM_PREPARE_LATENCY_BUCKETS; ++i)
+	    out[i] = prepareLatencyBuckets.get(i);
+	return out;
+    }
+
+    void increment( int counter )
+    { counters.incrementAndGet( stripe() * STRIDE + counter ); }
+
+    // misses are (hopefully!) rare, and slow anyway, so the histogram isn't striped
+    void preparedIn( long nanos )
+    {
+	long micros = Math.max( 0, nanos / 1000 );
+	int bucket = Math.min( NUM_PREPARE_LATENCY_BUCKETS - 1, 64 - Long.numberOfLeadingZeros( micros ) );
+	prepareLatencyBuckets.incrementAndGet( bucket );
+    }
+
+    private int stripe()
+    {
+	long id = Thread.currentThread().getId();
+	int h = (int) (id ^ (id >>> 32)) * 0x9e3779b9;
+	return (h ^ (h >>> 16)) & stripe_mask;
+    }
+
+    private long sum( int counter )
+    {
+	long out = 0;
+	for (int i = counter, len = counters.length(); i < len; i += STRIDE)
+	    out += counters.get(i);
+	return out;
+    }
+
+    /**
+     *  Sums two prepare latency histograms, either of which may be null, so that
+     *  a PooledDataSource can report totals for all of its pools.
+     */
+    public static long[] sumHistograms( long[] a, long[] b )
+    {
+	long[] out = new long[ NUM_PREPARE_LATENCY_BUCKETS ];
+	for (int i = 0; i < NUM_PREPARE_LATENCY_BUCKETS; ++i)
+	    out[i] = (a == null ? 0 : a[i]) + (b == null ? 0 : b[i]);
+	return out;
+    }
+}
@@ -7,51 +7,107 @@ import javax.sql.*;
 public class ConnectionEventSupport
 {
     private PooledConnection source;
-    private HashSet          mlisteners = new HashSet();
+
+    // pools add and remove a listener on every checkout and checkin, so we keep
+    // listeners in a small array modified in place, rather than a Set whose
+    // entries and copies would be garbage by the thousands
+    //
+    //MT: protected by this' lock
+    private ConnectionEventListener[] mlisteners = new ConnectionEventListener[2];
+    private int                       mcount     = 0;
+
+    // a close event carries nothing but its source, so one will do
+    private final ConnectionEvent closedEvent;
 
     public ConnectionEventSupport(PooledConnection source)
-    { this.source = source; }
+    {
+	this.source = source;
+	this.closedEvent = new ConnectionEvent(source);
+    }
 
     public synchronized void addConnectionEventListener(ConnectionEventListener mlistener)
-    {mlisteners.add(mlistener);}
+    {
+	if (mlistener == null || indexOf(mlistener) >= 0)
+	    return;
+
+	if (mcount == mlisteners.length)
+	    {
+		ConnectionEventListener[] tmp = new ConnectionEventListener[ mcount * 2 ];
+		System.arraycopy( mlisteners, 0, tmp, 0, mcount );
+		mlisteners = tmp;
+	    }
+	mlisteners[mcount++] = mlistener;
+    }
 
     public synchronized void removeConnectionEventListener(ConnectionEventListener mlistener)
-    {mlisteners.remove(mlistener);}
+    {
+	int i = indexOf(mlistener);
+	if (i >= 0)
+	    {
+		System.arraycopy( mlisteners, i + 1, mlisteners, i, mcount - i - 1 );
+		mlisteners[--mcount] = null;
+	    }
+    }
 
     public synchronized void printListeners()
-    { System.err.println( mlisteners ); }
+    { System.err.println( Arrays.asList( mlisteners ).subList( 0, mcount ) ); }
 
     public synchronized int getListenerCount()
-    { return mlisteners.size(); }
+    { return mcount; }
 
     public void fireConnectionClosed()
     {
-	Set mlCopy;
+	ConnectionEventListener   single;
+	ConnectionEventListener[] mlCopy;
 
 	synchronized (this)
-	    { mlCopy = (Set) mlisteners.clone(); }
+	    {
+		single = (mcount == 1 ? mlisteners[0] : null);
+		mlCopy = (mcount > 1 ? copyListeners() : null);
+	    }
 
-	ConnectionEvent evt = new ConnectionEvent(source);
-	for (Iterator i = mlCopy.iterator(); i.hasNext();)
+	// listeners may remove themselves as they are notified, so we never
+	// iterate over the live array. usually, there is just the one listener.
+	if (single != null)
+	    single.connectionClosed(closedEvent);
+	else if (mlCopy != null)
 	    {
-		ConnectionEventListener cl = (ConnectionEventListener) i.next();
-		cl.connectionClosed(evt);
+		for (int i = 0; i < mlCopy.length; ++i)
+		    mlCopy[i].connectionClosed(closedEvent);
 	    }
     }
 
     public void fireConnectionErrorOccurred(SQLException error)
     {
-	Set mlCopy;
+	ConnectionEventListener[] mlCopy;
 
 	synchronized (this)
-	    { mlCopy = (Set) mlisteners.clone(); }
+	    { mlCopy = copyListeners(); }
 
 	ConnectionEvent evt = new ConnectionEvent(source, error);
-	for (Iterator i = mlCopy.iterator(); i.hasNext();)
-	    {
-		ConnectionEventListener cl = (ConnectionEventListener) i.next();
-		cl.connectionErrorOccurred(evt);
-	    }
+	for (int i = 0; i < mlCopy.length; ++i)
+	    mlCopy[i].connectionErrorOccurred(evt);
+    }
+
+    // must be called from synchronized method
+    private int indexOf(ConnectionEventListener mlistener)
+    {
+	assert Thread.holdsLock( this );
+
+	for (int i = 0; i < mcount; ++i)
+	    if (mlisteners[i].equals(mlistener))
+		return i;
+	return -1;
+    }
+
+    // must be called from synchronized method
+    private ConnectionEventListener[] copyListeners()
+    {
+	assert Thread.holdsLock( this );
+
+	ConnectionEventListener[] out = new ConnectionEventListener[ mcount ];
+	System.arraycopy( mlisteners, 0, out, 0, mcount );
+	return out;
     }
 }
 
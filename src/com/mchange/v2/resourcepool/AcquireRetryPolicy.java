@@ -0,0 +1,22 @@
+package com.mchange.v2.resourcepool;
+
+/**
+ *  <p>Chooses how long a resource pool waits before retrying a failed attempt to acquire
+ *  a resource.</p>
+ *
+ *  <p>A pool retries each acquisition in a series of attempts, which ends when an attempt
+ *  succeeds, or after the pool's maximum number of attempts. The pool asks its policy for
+ *  a delay after each failure. Many series may be underway at once, from many threads,
+ *  so implementations must be thread-safe. State belonging to a series, the number of
+ *  failures so far and the previous delay, is supplied by the pool.</p>
+ */
+public interface AcquireRetryPolicy
+{
+    /**
+     * @param failures the number of attempts in this series that have failed, at least 1
+     * @param last_delay the milliseconds waited before the attempt that just failed,
+     *                   or 0 if it was the first in its series
+     * @return the milliseconds to wait before the next attempt
+     */
+    public long retryDelay( int failures, long last_delay );
+}
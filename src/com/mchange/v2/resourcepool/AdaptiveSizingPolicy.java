@@ -0,0 +1,67 @@
+package com.mchange.v2.resourcepool;
+
+/**
+ *  <p>A {@link SizingPolicy} that combines an estimate of demand with additive-increase,
+ *  multiplicative-decrease (AIMD) adjustment.</p>
+ *
+ *  <p>Demand is estimated by Little's law, as the rate of checkouts times the average time
+ *  resources are held, but never less than the number of resources currently checked out.
+ *  To that the policy adds sqrt(demand) spare resources (the "square-root staffing" rule),
+ *  to absorb random fluctuations in load, and pads the spare further when acquiring a new
+ *  resource is slow relative to the time clients hold resources, since clients will then
+ *  wait longer for the pool to catch up.</p>
+ *
+ *  <ul>
+ *    <li>If clients had to wait for resources, or nearly all of the pool is busy, the target
+ *    grows by the pool's increment, or to the estimate, whichever is larger.</li>
+ *    <li>If less than half of the pool is busy, and the estimate is below the target, the target
+ *    shrinks to the estimate, but by no more than a quarter at a time.</li>
+ *    <li>Otherwise, the target grows to the estimate, if the estimate is larger.</li>
+ *  </ul>
+ */
+public class AdaptiveSizingPolicy implements SizingPolicy
+{
+    final static float HIGH_BUSY_RATIO = 0.9f;
+    final static float LOW_BUSY_RATIO  = 0.5f;
+    final static float DECREASE_FACTOR = 0.75f;
+
+    // acquisition padding never more than triples the spare
+    final static float MAX_ACQUISITION_PADDING = 2f;
+
+    // weight of the newest observation in our average acquisition time
+    final static float ACQUISITION_SMOOTHING = 0.3f;
+
+    //MT: accessed only by the pool's timer thread
+    float acquisition_millis_estimate = 0f;
+
+    public int targetPoolSize( SizingStats stats )
+    {
+	int target = stats.getTargetPoolSize();
+	int inc    = Math.max( 1, stats.getAcquireIncrement() );
+
+	// acquisitions occur only as the pool grows, so we remember how long they took
+	if ( stats.getNumAcquisitions() > 0 )
+	{
+	    float latest = stats.getAverageAcquisitionMillis();
+	    if ( acquisition_millis_estimate == 0f )
+		acquisition_millis_estimate = latest;
+	    else
+		acquisition_millis_estimate += ACQUISITION_SMOOTHING * ( latest - acquisition_millis_estimate );
+	}
+
+	double hold   = stats.getAverageHoldMillis();
+	double rate   = ( stats.getPeriodMillis() > 0 ? ((double) stats.getNumCheckouts()) / stats.getPeriodMillis() : 0 );
+	double demand = Math.max( rate * hold, stats.getNumBusy() );
+
+	double padding = ( hold > 0 ? Math.min( MAX_ACQUISITION_PADDING, acquisition_millis_estimate / hold ) : 0 );
+	int estimate   = (int) Math.ceil( demand + Math.sqrt( demand ) * ( 1 + padding ) );
+
+	float busy_ratio = stats.getBusyRatio();
+	if ( stats.getNumWaitedCheckouts() > 0 || stats.getNumWaiters() > 0 || busy_ratio >= HIGH_BUSY_RATIO )
+	    return Math.max( target + inc, estimate );
+	else if ( busy_ratio < LOW_BUSY_RATIO && estimate < target )
+	    return Math.max( estimate, (int) ( target * DECREASE_FACTOR ) );
+	else
+	    return Math.max( target, estimate );
+    }
+}
@@ -0,0 +1,78 @@
+package com.mchange.v2.resourcepool;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ *  <p>An {@link AcquireRetryPolicy} that backs off exponentially, with optional jitter.</p>
+ *
+ *  <p>The base delay doubles after each failure, up to a maximum. If the maximum is no
+ *  greater than the base delay, every retry waits the base delay, as pools always have.</p>
+ *
+ *  <ul>
+ *    <li>Under {@link #NO_JITTER}, the pool waits exactly the backed-off delay.</li>
+ *    <li>Under {@link #FULL_JITTER}, the pool waits a random time between zero and
+ *    the backed-off delay.</li>
+ *    <li>Under {@link #DECORRELATED_JITTER}, the pool waits a random time between the
+ *    base delay and three times its previous delay, but no more than the maximum. So
+ *    unless the maximum exceeds the base delay, every retry waits the base delay.</li>
+ *  </ul>
+ *
+ *  <p>Jitter keeps pools that failed together, say because their database restarted,
+ *  from retrying together. See Marc Brooker, "Exponential Backoff And Jitter",
+ *  AWS Architecture Blog, 2015.</p>
+ */
+public final class BackoffAcquireRetryPolicy implements AcquireRetryPolicy
+{
+    public final static int NO_JITTER           = 0;
+    public final static int FULL_JITTER         = 1;
+    public final static int DECORRELATED_JITTER = 2;
+
+    final long base_delay;
+    final long max_delay;
+    final int  jitter;
+
+    public BackoffAcquireRetryPolicy( long base_delay, long max_delay, int jitter )
+    {
+	if ( jitter < NO_JITTER || jitter > DECORRELATED_JITTER )
+	    throw new IllegalArgumentException( "Unknown jitter: " + jitter );
+
+	this.base_delay = Math.max( 0, base_delay );
+	this.max_delay  = Math.max( this.base_delay, max_delay );
+	this.jitter     = jitter;
+    }
+
+    public long retryDelay( int failures, long last_delay )
+    {
+	switch ( jitter )
+	{
+	case FULL_JITTER:
+	    return random( 0, backedOff( failures ) );
+	case DECORRELATED_JITTER:
+	    {
+		long prev = ( last_delay > 0 ? last_delay : base_delay );
+		long high = ( prev > max_delay / 3 ? max_delay : prev * 3 );
+		return random( base_delay, high );
+	    }
+	default:
+	    return backedOff( failures );
+	}
+    }
+
+    private long backedOff( int failures )
+    {
+	long out = base_delay;
+	for (int i = 1; i < failures && out < max_delay; ++i)
+	    out = ( out > max_delay / 2 ? max_delay : out * 2 );
+	return Math.min( out, max_delay );
+    }
+
+    // inclusive of both bounds
+    private static long random( long low, long high )
+    { return ( high > low ? low + (long) ( ThreadLocalRandom.current().nextDouble() * ( high - low + 1 ) ) : low ); }
+
+    public String toString()
+    {
+	String[] names = { "none", "full", "decorrelated" };
+	return this.getClass().getName() + "[ base_delay -> " + base_delay + ", max_delay -> " + max_delay + ", jitter -> " + names[ jitter ] + " ]";
+    }
+}
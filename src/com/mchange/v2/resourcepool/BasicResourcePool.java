@@ -1,6 +1,16 @@
 package com.mchange.v2.resourcepool;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 import com.mchange.v2.async.*;
 import com.mchange.v2.log.*;
 import com.mchange.v2.lang.ThreadUtils;
@@ -25,6 +35,7 @@ class BasicResourcePool implements ResourcePool
 
     final int num_acq_attempts;
     final int acq_attempt_delay;
+    final AcquireRetryPolicy acq_retry_policy; // null means every retry waits acq_attempt_delay
 
     final long check_idle_resources_delay;       //milliseconds
     final long max_resource_age;                 //milliseconds
@@ -36,32 +47,54 @@ class BasicResourcePool implements ResourcePool
     final boolean break_on_acquisition_failure;
     final boolean debug_store_checkout_exceptions;
     final boolean force_synchronous_checkins;
+    final boolean fair_checkouts;
+    final boolean burst_acquisition;
+    final boolean validate_start_resources; // set only when pools warm up, see warmupMode
+
+    final long sizing_period;                    //milliseconds
 
     final long pool_start_time = System.currentTimeMillis();
 
     //MT: not-reassigned, thread-safe, and independent
     final BasicResourcePoolFactory factory;
     final AsynchronousRunner       taskRunner;
+    final AsynchronousRunner       acquisitionRunner;
+    final AsynchronousRunner       idleTestRunner;   // null unless idle tests are paced, see IdleTestSweep
     final RunnableQueue            asyncEventQueue;
     final ResourcePoolEventSupport rpes;
+    final ResourcePoolEventBatcher eventBatcher;
+    final WarmupFuture             warmup = new WarmupFuture();
+    final AvailabilitySignal       availability = new AvailabilitySignal();
+    final SizingPolicy             sizing_policy;
+    final SizingStatsCollector     sizing_stats;  // null if there is no sizing_policy
 
     //MT: protected by this' lock
     Timer                    cullAndIdleRefurbishTimer;
     TimerTask                cullTask;
     TimerTask                idleRefurbishTask;
+    TimerTask                sizingTask;
     HashSet                  acquireWaiters = new HashSet();
     HashSet                  otherWaiters = new HashSet();
+    LinkedList               handoffWaiters = new LinkedList(); // only used if fair_checkouts
 
     int pending_acquires;
     int pending_removes;
 
+    // acquisitions of the current burst whose first attempt has not completed,
+    // while positive, waiters are not woken as resources arrive
+    int burst_acquires;
+
     int target_pool_size;
 
-    /*  keys are all valid, managed resources, value is a PunchCard */
-    HashMap  managed = new HashMap();
+    /*  keys are all valid, managed resources, value is a PunchCard    */
+    /*  modified only while holding this' lock, but concurrent so that */
+    /*  subclasses may consult it on lock-free fast paths              */
+    Map  managed = new ConcurrentHashMap();
 
-    /* all valid, managed resources currently available for checkout */
-    LinkedList unused = new LinkedList();
+    /* all valid, managed resources currently available for checkout,  */
+    /* most recently checked-in first. array-backed, so that steady    */
+    /* checkouts and checkins allocate no list nodes                   */
+    ArrayDeque unused = new ArrayDeque();
 
     /* resources which have been invalidated somehow, but which are */
     /* still checked out and in use.                                */
@@ -71,9 +104,14 @@ class BasicResourcePool implements ResourcePool
 
     Set idleCheckResources = new HashSet();
 
+    IdleTestSweep idleTestSweep = null; // the most recently begun sweep, until it completes
+
+    long last_idle_test_sweep_millis = -1;
+
     boolean force_kill_acquires = false;
 
-    boolean broken = false;
+    //MT: volatile, so that it may be checked on lock-free fast paths
+    volatile boolean broken = false;
 
 //  long total_acquired = 0;
 
@@ -106,6 +144,9 @@ class BasicResourcePool implements ResourcePool
     public synchronized long getNumFailedIdleTests()
     { return failed_idle_tests; }
 
+    public synchronized long getLastIdleTestSweepMillis()
+    { return last_idle_test_sweep_millis; }
+
     public synchronized Throwable getLastCheckinFailure()
     { return lastCheckinFailure; }
 
@@ -155,6 +196,12 @@ class BasicResourcePool implements ResourcePool
     public synchronized int getNumCheckoutWaiters()
     { return acquireWaiters.size(); }
 
+    public Future getWarmupFuture()
+    { return warmup; }
+
+    public boolean isWarm()
+    { return warmup.isWarm(); }
+
     public synchronized int getNumPendingAcquireTasks()
     { return pending_acquires; }
 
@@ -206,6 +253,7 @@ class BasicResourcePool implements ResourcePool
                     int                      inc,
                     int                      num_acq_attempts,
                     int                      acq_attempt_delay,
+                    AcquireRetryPolicy       acq_retry_policy,
                     long                     check_idle_resources_delay,
                     long                     max_resource_age,
                     long                     max_idle_time,
@@ -215,7 +263,14 @@ class BasicResourcePool implements ResourcePool
                     boolean                  break_on_acquisition_failure,
                     boolean                  debug_store_checkout_exceptions,
 		    boolean                  force_synchronous_checkins,
+		    boolean                  fair_checkouts,
+		    boolean                  burst_acquisition,
+		    boolean                  validate_start_resources,
+		    SizingPolicy             sizing_policy,
+		    long                     sizing_period,
                     AsynchronousRunner       taskRunner,
+                    AsynchronousRunner       acquisitionRunner,
+                    AsynchronousRunner       idleTestRunner,
                     RunnableQueue            asyncEventQueue,
                     Timer                    cullAndIdleRefurbishTimer,
                     BasicResourcePoolFactory factory)
@@ -251,6 +306,7 @@ class BasicResourcePool implements ResourcePool
             this.inc                              = inc;
             this.num_acq_attempts                 = num_acq_attempts;
             this.acq_attempt_delay                = acq_attempt_delay;
+            this.acq_retry_policy                 = acq_retry_policy;
             this.check_idle_resources_delay       = check_idle_resources_delay;
             this.max_resource_age                 = max_resource_age;
             this.max_idle_time                    = max_idle_time;
@@ -260,7 +316,15 @@ class BasicResourcePool implements ResourcePool
             this.break_on_acquisition_failure     = break_on_acquisition_failure;
             this.debug_store_checkout_exceptions  = (debug_store_checkout_exceptions && destroy_unreturned_resc_time > 0);
 	    this.force_synchronous_checkins       = force_synchronous_checkins;
+	    this.fair_checkouts                   = fair_checkouts;
+	    this.burst_acquisition                = burst_acquisition;
+	    this.validate_start_resources         = validate_start_resources;
+	    this.sizing_policy                    = sizing_policy;
+	    this.sizing_period                    = sizing_period;
+	    this.sizing_stats                     = ( sizing_policy != null && sizing_period > 0 ? new SizingStatsCollector() : null );
             this.taskRunner                       = taskRunner;
+            this.acquisitionRunner                = (acquisitionRunner != null ? acquisitionRunner : taskRunner);
+            this.idleTestRunner                   = idleTestRunner;
             this.asyncEventQueue                  = asyncEventQueue;
             this.cullAndIdleRefurbishTimer        = cullAndIdleRefurbishTimer;
             this.factory                          = factory;
@@ -271,11 +335,19 @@ class BasicResourcePool implements ResourcePool
             this.target_pool_size = this.start;
 
             if (asyncEventQueue != null)
+            {
                 this.rpes = new ResourcePoolEventSupport(this);
+                this.eventBatcher = new ResourcePoolEventBatcher(rpes, asyncEventQueue);
+            }
             else
+            {
                 this.rpes = null;
+                this.eventBatcher = null;
+            }
 
             //start acquiring our initial resources
+            if ( this.start == 0 )
+                warmup.complete();
             ensureStartResources();
 
             if (mustEnforceExpiration())
@@ -302,9 +374,15 @@ class BasicResourcePool implements ResourcePool
                                 check_idle_resources_delay );
             }
 
+            if (sizing_stats != null)
+            {
+                this.sizingTask = new SizingTask();
+                cullAndIdleRefurbishTimer.schedule( sizingTask, sizing_period, sizing_period );
+            }
+
             if ( logger.isLoggable( MLevel.FINER ) )
                 logger.finer( this + " config: [start -> " + this.start + "; min -> " + this.min + "; max -> " + this.max + "; inc -> " + this.inc +
-                                "; num_acq_attempts -> " + this.num_acq_attempts + "; acq_attempt_delay -> " + this.acq_attempt_delay +
+                                "; num_acq_attempts -> " + this.num_acq_attempts + "; acq_attempt_delay -> " + this.acq_attempt_delay + "; acq_retry_policy -> " + this.acq_retry_policy +
                                 "; check_idle_resources_delay -> " + this.check_idle_resources_delay + "; max_resource_age -> " + this.max_resource_age +
                                 "; max_idle_time -> " + this.max_idle_time + "; excess_max_idle_time -> " + this.excess_max_idle_time +
                                 "; destroy_unreturned_resc_time -> " + this.destroy_unreturned_resc_time +
@@ -312,6 +390,8 @@ class BasicResourcePool implements ResourcePool
                                 "; break_on_acquisition_failure -> " + this.break_on_acquisition_failure +
                                 "; debug_store_checkout_exceptions -> " + this.debug_store_checkout_exceptions +
                                 "; force_synchronous_checkins -> " + this.force_synchronous_checkins +
+                                "; fair_checkouts -> " + this.fair_checkouts +
+                                "; burst_acquisition -> " + this.burst_acquisition +
                 "]");
 
         }
@@ -332,7 +412,7 @@ class BasicResourcePool implements ResourcePool
     { return check_idle_resources_delay > 0; }
 
     // no need to sync
-    private boolean mustEnforceExpiration()
+    boolean mustEnforceExpiration()
     {
         return
         max_resource_age > 0 ||
@@ -372,7 +452,7 @@ class BasicResourcePool implements ResourcePool
     { return broken; }
 
     // no need to sync
-    private boolean supportsEvents()
+    boolean supportsEvents()
     { return asyncEventQueue != null; }
 
     public Object checkoutResource()
@@ -390,6 +470,55 @@ class BasicResourcePool implements ResourcePool
         }
     }
 
+    // must be called from synchronized method
+    //
+    // subclasses that hold idle resources outside of unused (so that they may
+    // be checked out without this' lock) must move them back into unused here.
+    // called before any operation that inspects or modifies the set of unused
+    // resources.
+    void _reclaimUnlockedIdleResources()
+    { assert Thread.holdsLock(this); }
+
+    // unused is a deque, so that membership tests don't require a scan, the
+    // PunchCards of resources in unused are marked. resources leave unused
+    // other than via _removeFirstUnused() or _markUsed() only when they leave
+    // managed as well, taking their PunchCards with them.
+    void _addUnused( Object resc )
+    {
+        assert Thread.holdsLock(this);
+
+        unused.addFirst( resc );
+        PunchCard card = (PunchCard) managed.get( resc );
+        if ( card != null )
+            card.unused = true;
+    }
+
+    private Object _removeFirstUnused()
+    {
+        assert Thread.holdsLock(this);
+
+        Object out = unused.removeFirst();
+        _markUsed( out );
+        return out;
+    }
+
+    private void _markUsed( Object resc )
+    {
+        assert Thread.holdsLock(this);
+
+        PunchCard card = (PunchCard) managed.get( resc );
+        if ( card != null )
+            card.unused = false;
+    }
+
+    private boolean _isUnused( Object resc )
+    {
+        assert Thread.holdsLock(this);
+
+        PunchCard card = (PunchCard) managed.get( resc );
+        return card != null && card.unused;
+    }
+
     // must be called from synchronized method, idempotent
     private void _recheckResizePool()
     {
@@ -462,8 +591,16 @@ class BasicResourcePool implements ResourcePool
     {
         assert Thread.holdsLock(this);
 
+        boolean burst = burst_acquisition && acquireWaiters.size() > 0;
         for (int i = 0; i < count; ++i)
-            taskRunner.postRunnable( new ScatteredAcquireTask() );
+        {
+            acquisitionRunner.postRunnable( new ScatteredAcquireTask( burst ) );
+
+            // count the burst only once its task is posted, or a failed post would hold
+            // waiters forever. we hold the pool's lock, so the task can't endBurstAcquire() first.
+            if (burst)
+                ++burst_acquires;
+        }
     }
 
     // must be called from synchronized method
@@ -484,10 +621,36 @@ class BasicResourcePool implements ResourcePool
      */
     public Object checkoutResource( long timeout )
 	throws TimeoutException, ResourcePoolException, InterruptedException
+    { return checkoutResource( timeout, null ); }
+
+    public Object checkoutResource( long timeout, Object preferred )
+	throws TimeoutException, ResourcePoolException, InterruptedException
     {
 	try
 	{
-	    Object resc = prelimCheckoutResource( timeout );
+	    Object resc = prelimCheckoutResource( timeout, preferred );
+
+	    // rather than waiting on this' lock, clients wait outside of it, until
+	    // something happens that might make a resource available to them
+	    if ( resc instanceof AvailabilityWait )
+	    {
+		long start = ( timeout > 0 ? System.currentTimeMillis() : -1 );
+		do
+		{
+		    long remaining = awaitAvailable( (AvailabilityWait) resc, timeout, start );
+		    resc = prelimCheckoutResource( remaining, preferred );
+		}
+		while ( resc instanceof AvailabilityWait );
+	    }
+
+	    // under fair_checkouts, rather than waiting on this' lock,
+	    // clients wait outside of it for a resource to be handed to them
+	    if ( resc instanceof HandoffWaiter )
+	    {
+		resc = awaitHandoff( (HandoffWaiter) resc, timeout );
+		if ( resc == null )
+		    return checkoutResource( timeout, preferred );
+	    }
 
 	    // best to do the recheckout while we don't hold this'
 	    // lock, so we don't refurbish-on-checkout while holding.
@@ -520,14 +683,17 @@ class BasicResourcePool implements ResourcePool
 		    else
 		    {
 			card.checkout_time = System.currentTimeMillis();
+			card.checked_out.set( true );
 			if (debug_store_checkout_exceptions)
 			    card.checkoutStackTraceException = new Exception("DEBUG STACK TRACE: Overdue resource check-out stack trace.");
+			if (sizing_stats != null)
+			    sizing_stats.checkedOut();
 		    }
 		}
 	    }
 
 	    if (resc == null)
-		return checkoutResource( timeout );
+		return checkoutResource( timeout, preferred );
 	    else
 		return resc;
 	}
@@ -539,12 +705,22 @@ class BasicResourcePool implements ResourcePool
 	}
     }
 
-    private synchronized Object prelimCheckoutResource( long timeout )
+    private synchronized Object prelimCheckoutResource( long timeout, Object preferred )
 	throws TimeoutException, ResourcePoolException, InterruptedException
     {
         try
         {
             ensureNotBroken();
+            _reclaimUnlockedIdleResources();
+
+            // if a preferred resource is available, move it to the head of the line.
+            // if it is being idle-checked, we'd rather take another than wait for it.
+            // we scan unused for it only if its PunchCard tells us the scan will succeed.
+            if ( preferred != null && _isUnused( preferred ) && unused.getFirst() != preferred && !idleCheckResources.contains( preferred ) )
+            {
+                unused.remove( preferred );
+                unused.addFirst( preferred );
+            }
 
             int available = unused.size();
             if (available == 0)
@@ -577,10 +753,15 @@ class BasicResourcePool implements ResourcePool
                         logger.log(MLevel.FINER, "acquire test -- pool is already maxed out. [managed: " + msz + "; max: " + max + "]");
                 }
 
-                awaitAvailable(timeout); //throws timeout exception
+                if ( fair_checkouts )
+                    return _enqueueHandoffWaiter();
+                else
+                    return _beginAwaitAvailable();
             }
+            else if ( fair_checkouts && handoffWaiters.size() > 0 )
+                return _enqueueHandoffWaiter(); // no barging ahead of clients already waiting
 
-            Object  resc = unused.get(0);
+            Object  resc = unused.getFirst();
 
             // this is a hack -- but "doing it right" adds a lot of complexity, and collisions between
             // an idle check and a checkout should be relatively rare. anyway, it should work just fine.
@@ -592,18 +773,17 @@ class BasicResourcePool implements ResourcePool
                 // we'll move remove() to after the if, so we don't have to add back
                 // unused.add(0, resc );
 
+                // under fair_checkouts, we wait in line, and get this or some other resource
+                // handed to us when it's ready.
+                if ( fair_checkouts )
+                    return _enqueueHandoffWaiter();
+
                 // we'll wait for "something to happen" -- probably an idle check to
                 // complete -- then we'll try again and hope for the best.
-                Thread t = Thread.currentThread();
-                try
-                {
-                    otherWaiters.add ( t );
-                    this.wait( timeout );
-                    ensureNotBroken();
-                }
-                finally
-                { otherWaiters.remove( t ); }
-                return prelimCheckoutResource( timeout );
+                AvailabilityWait w = new AvailabilityWait( Thread.currentThread(), false );
+                otherWaiters.add( w.thread );
+                availability.register( w );
+                return w;
             }
             else if ( shouldExpire( resc ) )
             {
@@ -612,11 +792,11 @@ class BasicResourcePool implements ResourcePool
 
                 removeResource( resc );
                 ensureMinResources();
-                return prelimCheckoutResource( timeout );
+                return prelimCheckoutResource( timeout, preferred );
             }
             else
             {
-                unused.remove(0);
+                _removeFirstUnused();
                 return resc;
             }
         }
@@ -632,31 +812,7 @@ class BasicResourcePool implements ResourcePool
         }
         catch ( InterruptedException e )
         {
-            // 		System.err.println(this + " -- an attempt to checkout a resource was interrupted: some other thread " +
-            // 				   "must have either interrupted the Thread attempting checkout, or close() was called on the pool.");
-            // 		e.printStackTrace();
-            if (broken)
-            {
-                if (logger.isLoggable( MLevel.FINER ))
-                    logger.log(MLevel.FINER,
-                                    this + " -- an attempt to checkout a resource was interrupted, because the pool is now closed. " +
-                                    "[Thread: " + Thread.currentThread().getName() + ']',
-                                    e );
-                else if (logger.isLoggable( MLevel.INFO ))
-                    logger.log(MLevel.INFO,
-                                    this + " -- an attempt to checkout a resource was interrupted, because the pool is now closed. " +
-                                    "[Thread: " + Thread.currentThread().getName() + ']');
-            }
-            else
-            {
-                if (logger.isLoggable( MLevel.WARNING ))
-                {
-                    logger.log(MLevel.WARNING,
-                                    this + " -- an attempt to checkout a resource was interrupted, and the pool is still live: some other thread " +
-                                    "must have interrupted the Thread attempting checkout!",
-                                    e );
-                }
-            }
+            logInterruptedCheckout( e );
             throw e;
         }
 	catch ( StackOverflowError e )
@@ -667,6 +823,36 @@ class BasicResourcePool implements ResourcePool
 	}
     }
 
+    // must be called from synchronized method
+    private void logInterruptedCheckout( InterruptedException e )
+    {
+        // 		System.err.println(this + " -- an attempt to checkout a resource was interrupted: some other thread " +
+        // 				   "must have either interrupted the Thread attempting checkout, or close() was called on the pool.");
+        // 		e.printStackTrace();
+        if (broken)
+        {
+            if (logger.isLoggable( MLevel.FINER ))
+                logger.log(MLevel.FINER,
+                                this + " -- an attempt to checkout a resource was interrupted, because the pool is now closed. " +
+                                "[Thread: " + Thread.currentThread().getName() + ']',
+                                e );
+            else if (logger.isLoggable( MLevel.INFO ))
+                logger.log(MLevel.INFO,
+                                this + " -- an attempt to checkout a resource was interrupted, because the pool is now closed. " +
+                                "[Thread: " + Thread.currentThread().getName() + ']');
+        }
+        else
+        {
+            if (logger.isLoggable( MLevel.WARNING ))
+            {
+                logger.log(MLevel.WARNING,
+                                this + " -- an attempt to checkout a resource was interrupted, and the pool is still live: some other thread " +
+                                "must have interrupted the Thread attempting checkout!",
+                                e );
+            }
+        }
+    }
+
     public void checkinResource( Object resc ) throws ResourcePoolException
     {
 	try
@@ -676,8 +862,14 @@ class BasicResourcePool implements ResourcePool
 	    {
 		//we permit straggling resources to be checked in
 		//without exception even if we are broken
-		if (managed.keySet().contains(resc))
-		    unlocked_do_checkin_managed = true;
+		PunchCard card = (PunchCard) managed.get( resc );
+		if (card != null)
+		{
+		    if ( card.checked_out.compareAndSet( true, false ) )
+			unlocked_do_checkin_managed = true;
+		    else if ( logger.isLoggable( MLevel.FINER ) )
+			logger.finer("Resource " + resc + " checked-in after having been checked-in already, or without having been checked-out. Ignoring.");
+		}
 		else if (excluded.contains(resc))
 		    doCheckinExcluded( resc );
 		else if ( isFormerResource(resc) )
@@ -711,13 +903,20 @@ class BasicResourcePool implements ResourcePool
             Set checkedOutNotExcluded = null;
 	    synchronized ( this )
 	    {
+		_reclaimUnlockedIdleResources();
 		checkedOutNotExcluded = new HashSet( managed.keySet() );
 		checkedOutNotExcluded.removeAll( unused );
 		for (Iterator ii = excluded.iterator(); ii.hasNext(); )
 		    doCheckinExcluded( ii.next() );
 	    }
 	    for (Iterator ii = checkedOutNotExcluded.iterator(); ii.hasNext(); )
-		doCheckinManaged( ii.next() );
+	    {
+		Object resc = ii.next();
+		PunchCard card = (PunchCard) managed.get( resc );
+		if (card != null)
+		    card.checked_out.set( false );
+		doCheckinManaged( resc );
+	    }
         }
         catch ( ResourceClosedException e ) // one of our async threads died
         {
@@ -740,7 +939,8 @@ class BasicResourcePool implements ResourcePool
     {
         try
         {
-            if ( unused.contains( resc ) )
+            _reclaimUnlockedIdleResources();
+            if ( _isUnused( resc ) )
                 return KNOWN_AND_AVAILABLE;
             else if ( managed.keySet().contains( resc ) || excluded.contains( resc ) )
                 return KNOWN_AND_CHECKED_OUT;
@@ -803,16 +1003,25 @@ class BasicResourcePool implements ResourcePool
 //  }
 
     public synchronized int getAvailableCount()
-    { return unused.size(); }
+    {
+        _reclaimUnlockedIdleResources();
+        return unused.size();
+    }
 
     public synchronized int getExcludedCount()
     { return excluded.size(); }
 
     public synchronized int getAwaitingCheckinCount()
-    { return managed.size() - unused.size() + excluded.size(); }
+    {
+        _reclaimUnlockedIdleResources();
+        return managed.size() - unused.size() + excluded.size();
+    }
 
     public synchronized int getAwaitingCheckinNotExcludedCount()
-    { return managed.size() - unused.size(); }
+    {
+        _reclaimUnlockedIdleResources();
+        return managed.size() - unused.size();
+    }
 
     public synchronized void resetPool()
     {
@@ -873,6 +1082,13 @@ class BasicResourcePool implements ResourcePool
     private synchronized boolean isForceKillAcquiresPending()
     { return force_kill_acquires; }
 
+    public void failWaitingCheckouts() throws ResourcePoolException
+    {
+        try { forceKillAcquires(); }
+        catch ( InterruptedException e )
+        { throw ResourcePoolUtils.convertThrowable( e ); }
+    }
+
     // this is designed as a response to a determination that our resource source is down.
     // rather than declaring ourselves broken in this case (as we did previously), we
     // kill all pending acquisition attempts, but retry on new acqusition requests.
@@ -883,14 +1099,17 @@ class BasicResourcePool implements ResourcePool
 		       "Having failed to acquire a resource, " +
 		       this +
 		       " is interrupting all Threads waiting on a resource to check out. " +
-		       "Will try again in response to new client requests.");
+		       "Will try again in response to new client requests" +
+		       ( validate_start_resources && ! warmup.isWarm() ? ", or after the retry delay until the pool is warm." : "." ) );
 
         Thread t = Thread.currentThread();
 
         try
         {
             force_kill_acquires = true;
-            this.notifyAll(); //wake up any threads waiting on an acquire, and force them all to die.
+            _notifyAllWaiters(); //wake up any threads waiting on an acquire, and force them all to die.
+            for (Iterator ii = handoffWaiters.iterator(); ii.hasNext(); )
+                ((HandoffWaiter) ii.next()).wake();
             while (acquireWaiters.size() > 0) //we want to let all the waiting acquires die before we unset force_kill_acquires
             {
                 otherWaiters.add( t );
@@ -950,81 +1169,52 @@ class BasicResourcePool implements ResourcePool
     }
 
     // no need to sync
-    private boolean canFireEvents()
-    { return ( asyncEventQueue != null && !isBroken() ); }
+    boolean canFireEvents()
+    { return ( asyncEventQueue != null && rpes.hasListeners() && !isBroken() ); }
 
     // no need to sync
-    private void asyncFireResourceAcquired( final Object       resc,
-                    final int          pool_size,
-                    final int          available_size,
-                    final int          removed_but_unreturned_size )
+    private void asyncFireResourceAcquired( Object       resc,
+                    int          pool_size,
+                    int          available_size,
+                    int          removed_but_unreturned_size )
     {
         if ( canFireEvents() )
-        {
-            Runnable r = new Runnable()
-            {
-                public void run()
-                {rpes.fireResourceAcquired(resc, pool_size, available_size, removed_but_unreturned_size);}
-            };
-            asyncEventQueue.postRunnable(r);
-        }
+            eventBatcher.enqueue( ResourcePoolEventBatcher.ACQUIRED,
+                                  new ResourcePoolEvent( this, resc, false, pool_size, available_size, removed_but_unreturned_size ) );
     }
 
     // no need to sync
-    private void asyncFireResourceCheckedIn( final Object       resc,
-                    final int          pool_size,
-                    final int          available_size,
-                    final int          removed_but_unreturned_size )
+    void asyncFireResourceCheckedIn( Object       resc,
+                    int          pool_size,
+                    int          available_size,
+                    int          removed_but_unreturned_size )
     {
         if ( canFireEvents() )
-        {
-            Runnable r = new Runnable()
-            {
-                public void run()
-                {rpes.fireResourceCheckedIn(resc, pool_size, available_size, removed_but_unreturned_size);}
-            };
-            asyncEventQueue.postRunnable(r);
-        }
+            eventBatcher.enqueue( ResourcePoolEventBatcher.CHECKED_IN,
+                                  new ResourcePoolEvent( this, resc, false, pool_size, available_size, removed_but_unreturned_size ) );
     }
 
     // no need to sync
-    private void asyncFireResourceCheckedOut( final Object       resc,
-                    final int          pool_size,
-                    final int          available_size,
-                    final int          removed_but_unreturned_size )
+    void asyncFireResourceCheckedOut( Object       resc,
+                    int          pool_size,
+                    int          available_size,
+                    int          removed_but_unreturned_size )
     {
         if ( canFireEvents() )
-        {
-            Runnable r = new Runnable()
-            {
-                public void run()
-                {rpes.fireResourceCheckedOut(resc,pool_size,available_size,removed_but_unreturned_size);}
-            };
-            asyncEventQueue.postRunnable(r);
-        }
+            eventBatcher.enqueue( ResourcePoolEventBatcher.CHECKED_OUT,
+                                  new ResourcePoolEvent( this, resc, true, pool_size, available_size, removed_but_unreturned_size ) );
     }
 
     // no need to sync
-    private void asyncFireResourceRemoved( final Object       resc,
-                    final boolean      checked_out_resource,
-                    final int          pool_size,
-                    final int          available_size,
-                    final int          removed_but_unreturned_size )
+    private void asyncFireResourceRemoved( Object       resc,
+                    boolean      checked_out_resource,
+                    int          pool_size,
+                    int          available_size,
+                    int          removed_but_unreturned_size )
     {
         if ( canFireEvents() )
-        {
-            //System.err.println("ASYNC RSRC REMOVED");
-            //new Exception().printStackTrace();
-            Runnable r = new Runnable()
-            {
-                public void run()
-                {
-                    rpes.fireResourceRemoved(resc, checked_out_resource,
-                                    pool_size,available_size,removed_but_unreturned_size);
-                }
-            };
-            asyncEventQueue.postRunnable(r);
-        }
+            eventBatcher.enqueue( ResourcePoolEventBatcher.REMOVED,
+                                  new ResourcePoolEvent( this, resc, checked_out_resource, pool_size, available_size, removed_but_unreturned_size ) );
     }
 
     // needn't be called from a sync'ed method
@@ -1109,7 +1299,18 @@ class BasicResourcePool implements ResourcePool
     {
         assert !Thread.holdsLock( this );
 
-        Object resc = mgr.acquireResource(); //note we acquire the resource while we DO NOT hold the pool's lock!
+        Object resc;
+        if (sizing_stats != null)
+        {
+            long acquire_start = System.nanoTime();
+            try { resc = mgr.acquireResource(); }
+            finally { sizing_stats.acquired( System.nanoTime() - acquire_start ); }
+        }
+        else
+            resc = mgr.acquireResource(); //note we acquire the resource while we DO NOT hold the pool's lock!
+
+        if ( validate_start_resources && !warmup.isWarm() )
+            validateStartResource( resc );
 
         boolean destroy = false;
         int msz;
@@ -1151,6 +1352,28 @@ class BasicResourcePool implements ResourcePool
 
     }
 
+    // destroys resc and rethrows if it fails its test, so that the failure
+    // counts as a failed acquisition attempt
+    private void validateStartResource( Object resc ) throws Exception
+    {
+        assert !Thread.holdsLock( this );
+
+        try
+        { mgr.refurbishIdleResource( resc ); }
+        catch ( Exception e )
+        {
+            if ( logger.isLoggable( MLevel.FINE ) )
+                logger.log( MLevel.FINE, "A resource acquired while warming up the pool failed its test: " + resc, e );
+            try { mgr.destroyResource( resc, false ); }
+            catch ( Exception e2 )
+            {
+                if ( logger.isLoggable( MLevel.FINE ) )
+                    logger.log( MLevel.FINE, "An exception occurred while trying to destroy a resource that failed its warm-up test: " + resc, e2 );
+            }
+            throw e;
+        }
+    }
+
     public synchronized void setPoolSize( int sz ) throws ResourcePoolException
     {
         try
@@ -1239,7 +1462,8 @@ class BasicResourcePool implements ResourcePool
     {
         assert Thread.holdsLock( this );
 
-        if ( unused.contains( resc ) )
+        _reclaimUnlockedIdleResources();
+        if ( _isUnused( resc ) )
             removeResource( resc );
         else
             excludeResource( resc );
@@ -1257,11 +1481,17 @@ class BasicResourcePool implements ResourcePool
             //firstClose.printStackTrace();
 
             this.broken = true;
+            warmup.close( new ResourcePoolException( "The pool was closed before acquiring its " + start + " initial resources." ) );
+            _reclaimUnlockedIdleResources();
             final Collection cleanupResources = ( close_checked_out_resources ? (Collection) cloneOfManaged().keySet() : (Collection) cloneOfUnused() );
             if ( cullTask != null )
                 cullTask.cancel();
             if (idleRefurbishTask != null)
                 idleRefurbishTask.cancel();
+            if (idleTestSweep != null && idleTestSweep.dispatchTask != null)
+                idleTestSweep.dispatchTask.cancel();
+            if (sizingTask != null)
+                sizingTask.cancel();
 
 	    for ( Iterator ii = cleanupResources.iterator(); ii.hasNext(); )
 		addToFormerResources( ii.next() );
@@ -1329,7 +1559,7 @@ class BasicResourcePool implements ResourcePool
 
     // we insist the pool's lock not be held to avoid refurbishment on checkin with
     // the lock if synchronous checkins have been forced
-    private void doCheckinManaged( final Object resc ) throws ResourcePoolException
+    private void doCheckinManaged( Object resc ) throws ResourcePoolException
     {
         assert !Thread.holdsLock( this );
 
@@ -1345,46 +1575,60 @@ class BasicResourcePool implements ResourcePool
 	  }
         }
 
-	class RefurbishCheckinResourceTask implements Runnable
-	{
-	    public void run()
+	// when checkins are synchronous, we spare the allocation of a task per checkin
+	if ( force_synchronous_checkins )
+	    refurbishAndCheckinManaged( resc );
+	else
+	    taskRunner.postRunnable( new RefurbishCheckinResourceTask( resc ) );
+    }
+
+    class RefurbishCheckinResourceTask implements Runnable
+    {
+	final Object resc;
+
+	RefurbishCheckinResourceTask( Object resc )
+	{ this.resc = resc; }
+
+	public void run()
+	{ refurbishAndCheckinManaged( resc ); }
+    }
+
+    private void refurbishAndCheckinManaged( Object resc )
+    {
+	    boolean resc_okay = attemptRefurbishResourceOnCheckin( resc );
+	    synchronized( this )
 	    {
-		boolean resc_okay = attemptRefurbishResourceOnCheckin( resc );
-		synchronized( BasicResourcePool.this )
-                {
-		    PunchCard card = (PunchCard) managed.get( resc );
+		PunchCard card = (PunchCard) managed.get( resc );
 
-		    if ( resc_okay && card != null) //we have to check that the resource is still in the pool
-                    {
-			unused.add(0,  resc );
+		if ( resc_okay && card != null) //we have to check that the resource is still in the pool
+		{
+		    _addUnused( resc );
 
-			card.last_checkin_time = System.currentTimeMillis();
-			card.checkout_time = -1;
-                    }
-		    else
-                    {
-			if (card != null)
-			    card.checkout_time = -1; //so we don't see this as still checked out and log an overdue cxn in removeResource()
+		    if (sizing_stats != null)
+			sizing_stats.checkedIn( card.checkout_time );
+		    card.last_checkin_time = System.currentTimeMillis();
+		    card.checkout_time = -1;
 
-			removeResource( resc );
-			ensureMinResources();
+		    _handOffAvailable();
+		}
+		else
+		{
+		    if (card != null)
+			card.checkout_time = -1; //so we don't see this as still checked out and log an overdue cxn in removeResource()
 
-			if (card == null && logger.isLoggable( MLevel.FINE ))
-			    logger.fine("Resource " + resc + " was removed from the pool during its refurbishment for checkin.");
-                    }
+		    removeResource( resc );
+		    ensureMinResources();
 
-		    asyncFireResourceCheckedIn( resc, managed.size(), unused.size(), excluded.size() );
-		    BasicResourcePool.this.notifyAll();
+		    if (card == null && logger.isLoggable( MLevel.FINE ))
+			logger.fine("Resource " + resc + " was removed from the pool during its refurbishment for checkin.");
 		}
-	    }
-	}
 
-	Runnable doMe = new RefurbishCheckinResourceTask();
-	if ( force_synchronous_checkins ) doMe.run();
-	else taskRunner.postRunnable( doMe );
+		asyncFireResourceCheckedIn( resc, managed.size(), unused.size(), excluded.size() );
+		_notifyAvailable();
+	    }
     }
 
-    private void doCheckinExcluded( Object resc )
+    void doCheckinExcluded( Object resc )
     {
         assert Thread.holdsLock( this );
 
@@ -1392,65 +1636,259 @@ class BasicResourcePool implements ResourcePool
         destroyResource(resc);
     }
 
-    /*
-     * by the semantics of wait(), a timeout of zero means forever.
-     */
-    private void awaitAvailable(long timeout) throws InterruptedException, TimeoutException, ResourcePoolException
+    // must be called from synchronized method
+    //
+    // a client with no resource available registers as a waiter, then awaits
+    // availability outside of this' lock, in awaitAvailable(...)
+    private AvailabilityWait _beginAwaitAvailable() throws ResourcePoolException
     {
         assert Thread.holdsLock( this );
 
         if (force_kill_acquires)
             throw new ResourcePoolException("A ResourcePool cannot acquire a new resource -- the factory or source appears to be down.");
 
-        Thread t = Thread.currentThread();
+        acquireWaiters.add( Thread.currentThread() );
+
+        if (Debug.DEBUG && Debug.TRACE == Debug.TRACE_MAX)
+        {
+            if ( logger.isLoggable( MLevel.FINE ) )
+                logger.fine("awaitAvailable(): " +
+                                (exampleResource != null ?
+                                                exampleResource :
+                                "[unknown]") );
+            trace();
+        }
+
+        // this case can only occur when 1) a user attempts a
+        // checkout which would provoke an acquire; 2) this
+        // increments the pending acquires, so we go to the
+        // wait without provoking postAcquireMore(); 3)
+        // the resources are acquired; 4) external management
+        // of the pool (via for instance unpoolResource()
+        // depletes the newly acquired resources before we
+        // regain this' monitor; 5) we fall into waiting with
+        // no acquires being scheduled, and perhaps a managed.size()
+        // of zero, leading to deadlock. This could only occur in
+        // fairly pathological situations where the pool is being
+        // externally forced to a very low (even zero) size, but
+        // since I've seen it, I've fixed it.
+        if (pending_acquires == 0 && managed.size() < max)
+            _recheckResizePool();
+
+        AvailabilityWait out = new AvailabilityWait( Thread.currentThread(), true );
+        availability.register( out );
+        return out;
+    }
+
+    /*
+     * waits without holding this' lock, so that virtual threads don't pin their
+     * carriers, then returns the timeout that remains for the client's next attempt
+     * at checkout. only clients awaiting a resource, rather than an idle test,
+     * time out here.
+     *
+     * as with wait(), a timeout of zero means forever.
+     */
+    private long awaitAvailable( AvailabilityWait w, long timeout, long start ) throws InterruptedException, TimeoutException, ResourcePoolException
+    {
+        assert !Thread.holdsLock( this );
+
+        long remaining = ( timeout > 0 ? timeout - (System.currentTimeMillis() - start) : 0 );
+        boolean timed_out = false;
+        InterruptedException interrupted = null;
+        long wait_start = ( w.acquiring && sizing_stats != null ? System.nanoTime() : -1 );
         try
         {
-            acquireWaiters.add( t );
+            if ( timeout > 0 && remaining <= 0 )
+                timed_out = w.cancel();
+            else
+                timed_out = !w.await( remaining );
+        }
+        catch ( InterruptedException e )
+        { interrupted = e; }
 
-            int avail;
-            long start = ( timeout > 0 ? System.currentTimeMillis() : -1);
-            if (Debug.DEBUG && Debug.TRACE == Debug.TRACE_MAX)
+        synchronized ( this )
+        {
+            Thread t = Thread.currentThread();
+            try
             {
-                if ( logger.isLoggable( MLevel.FINE ) )
-                    logger.fine("awaitAvailable(): " +
-                                    (exampleResource != null ?
-                                                    exampleResource :
-                                    "[unknown]") );
-                trace();
+                if ( interrupted != null )
+                {
+                    logInterruptedCheckout( interrupted );
+                    throw interrupted;
+                }
+                if ( w.acquiring )
+                {
+                    if ( timed_out )
+                        throw new TimeoutException("A client timed out while waiting to acquire a resource from " + this + " -- timeout at awaitAvailable()");
+                    if (force_kill_acquires)
+                        throw new CannotAcquireResourceException("A ResourcePool could not acquire a resource from its primary factory or source.", getLastAcquisitionFailure());
+                }
+                ensureNotBroken();
             }
-	    long remainingTimeout = timeout;
-            while ((avail = unused.size()) == 0)
+            catch ( Exception e )
             {
-                // the if case below can only occur when 1) a user attempts a
-                // checkout which would provoke an acquire; 2) this
-                // increments the pending acquires, so we go to the
-                // wait below without provoking postAcquireMore(); 3)
-                // the resources are acquired; 4) external management
-                // of the pool (via for instance unpoolResource()
-                // depletes the newly acquired resources before we
-                // regain this' monitor; 5) we fall into wait() with
-                // no acquires being scheduled, and perhaps a managed.size()
-                // of zero, leading to deadlock. This could only occur in
-                // fairly pathological situations where the pool is being
-                // externally forced to a very low (even zero) size, but
-                // since I've seen it, I've fixed it.
-                if (pending_acquires == 0 && managed.size() < max)
-                    _recheckResizePool();
-
-                this.wait(remainingTimeout);
-		remainingTimeout = Math.max(0, timeout - (System.currentTimeMillis() - start));
-                if (timeout > 0 && remainingTimeout == 0)
-                    throw new TimeoutException("A client timed out while waiting to acquire a resource from " + this + " -- timeout at awaitAvailable()");
-                if (force_kill_acquires)
-                    throw new CannotAcquireResourceException("A ResourcePool could not acquire a resource from its primary factory or source.", getLastAcquisitionFailure());
-                ensureNotBroken();
+                // we may have been signalled for a resource we won't take
+                _reclaimUnlockedIdleResources();
+                if ( unused.size() > 0 )
+                    availability.signal();
+                throw e;
+            }
+            finally
+            {
+                if ( w.acquiring )
+                {
+                    acquireWaiters.remove( t );
+                    if (acquireWaiters.size() == 0)
+                        this.notifyAll(); // forceKillAcquires() may be waiting for this
+                    if (sizing_stats != null)
+                        sizing_stats.waited( System.nanoTime() - wait_start );
+                }
+                else
+                    otherWaiters.remove( t );
             }
         }
-        finally
+
+        // an idle test that outlasts the timeout just sends the client around again, as it always has
+        if ( timeout > 0 )
+            return Math.max( 1, timeout - (System.currentTimeMillis() - start) );
+        else
+            return 0;
+    }
+
+    // must be called from synchronized method
+    private HandoffWaiter _enqueueHandoffWaiter() throws ResourcePoolException
+    {
+        assert Thread.holdsLock( this );
+
+        if (force_kill_acquires)
+            throw new ResourcePoolException("A ResourcePool cannot acquire a new resource -- the factory or source appears to be down.");
+
+        HandoffWaiter out = new HandoffWaiter( Thread.currentThread() );
+        handoffWaiters.add( out );
+        acquireWaiters.add( out.thread );
+
+        // see the comment in awaitAvailable()
+        if (pending_acquires == 0 && managed.size() < max)
+            _recheckResizePool();
+
+        _handOffAvailable();
+        return out;
+    }
+
+    // must be called from synchronized method
+    //
+    // hands available resources to waiting clients, longest waiting first,
+    // waking only the clients that receive a resource
+    void _handOffAvailable()
+    {
+        assert Thread.holdsLock( this );
+
+        if ( handoffWaiters.size() == 0 )
+            return;
+
+        _reclaimUnlockedIdleResources();
+        for (Iterator ii = unused.iterator(); ii.hasNext() && handoffWaiters.size() > 0; )
+        {
+            Object resc = ii.next();
+            if (! idleCheckResources.contains( resc ))
+            {
+                ii.remove();
+                _markUsed( resc );
+                ((HandoffWaiter) handoffWaiters.removeFirst()).handOff( resc );
+            }
+        }
+    }
+
+    // must be called from synchronized method
+    //
+    // wakes all clients awaiting availability, and Threads in this.wait()
+    void _notifyAllWaiters()
+    {
+        assert Thread.holdsLock( this );
+
+        availability.signalAll();
+        this.notifyAll();
+    }
+
+    // must be called from synchronized method
+    //
+    // when a single resource may have become available, we wake just one client
+    // awaiting availability, rather than a herd that would then contend for this'
+    // lock. clients that leave without a resource pass the signal on.
+    void _notifyAvailable()
+    {
+        assert Thread.holdsLock( this );
+
+        availability.signal();
+        this.notifyAll();
+    }
+
+    /*
+     * returns null if the client should simply try again.
+     *
+     * by the semantics of wait(), a timeout of zero means forever.
+     */
+    private Object awaitHandoff( HandoffWaiter waiter, long timeout ) throws InterruptedException, TimeoutException, ResourcePoolException
+    {
+        assert !Thread.holdsLock( this );
+
+        InterruptedException interrupted = null;
+        long wait_start = ( sizing_stats != null ? System.nanoTime() : -1 );
+        try
+        { waiter.await( timeout ); }
+        catch ( InterruptedException e )
+        { interrupted = e; }
+        if (sizing_stats != null)
+            sizing_stats.waited( System.nanoTime() - wait_start );
+
+        synchronized ( this )
         {
-            acquireWaiters.remove( t );
+            acquireWaiters.remove( waiter.thread );
             if (acquireWaiters.size() == 0)
                 this.notifyAll();
+
+            Object resc = waiter.resc;
+            if (resc == null)
+            {
+                handoffWaiters.remove( waiter );
+                if (interrupted != null)
+                    throw interrupted;
+                ensureNotBroken();
+                if (force_kill_acquires)
+                    throw new CannotAcquireResourceException("A ResourcePool could not acquire a resource from its primary factory or source.", getLastAcquisitionFailure());
+                if (timeout > 0 && waiter.timedOut)
+                    throw new TimeoutException("A client timed out while waiting to acquire a resource from " + this + " -- timeout at awaitHandoff()");
+                return null;
+            }
+            else if ( broken )
+            {
+                // close() may not have known to clean up a resource in transit
+                if ( managed.containsKey( resc ) )
+                    removeResource( resc, true );
+                if (interrupted != null)
+                    throw interrupted;
+                ensureNotBroken();
+                return null; // not reached, ensureNotBroken() throws
+            }
+            else if ( interrupted != null )
+            {
+                // we don't want it, give it to someone else
+                _addUnused( resc );
+                _handOffAvailable();
+                _notifyAvailable();
+                throw interrupted;
+            }
+            else if ( shouldExpire( resc ) )
+            {
+                if (Debug.DEBUG && logger.isLoggable( MLevel.FINER))
+                    logger.log( MLevel.FINER, "Resource handed off for check out has expired already. Trying again.");
+
+                removeResource( resc );
+                ensureMinResources();
+                return null;
+            }
+            else
+                return resc;
         }
     }
 
@@ -1459,10 +1897,16 @@ class BasicResourcePool implements ResourcePool
         assert Thread.holdsLock( this );
 
         managed.put(resc, new PunchCard());
-        unused.add(0, resc);
+        _addUnused( resc );
+        if ( managed.size() >= start && warmup.complete() && logger.isLoggable( MLevel.FINE ) )
+            logger.fine( this + " is warm, having acquired its " + start + " initial resources." );
         //System.err.println("assimilate resource... unused: " + unused.size());
         asyncFireResourceAcquired( resc, managed.size(), unused.size(), excluded.size() );
-        this.notifyAll();
+        if (burst_acquires == 0) // otherwise, we'll wake waiters when the burst is done
+        {
+            _handOffAvailable();
+            _notifyAvailable();
+        }
         if (Debug.DEBUG && Debug.TRACE == Debug.TRACE_MAX) trace();
         if (Debug.DEBUG && exampleResource == null)
             exampleResource = resc;
@@ -1477,9 +1921,10 @@ class BasicResourcePool implements ResourcePool
 
         synchronized ( this )
         {
+            _reclaimUnlockedIdleResources();
             if (unused.size() > 0)
             {
-                removeMe = unused.get(0);
+                removeMe = unused.getFirst();
                 managed.remove(removeMe);
                 unused.remove(removeMe);
             }
@@ -1500,10 +1945,10 @@ class BasicResourcePool implements ResourcePool
             destroyResource( removeMe, true );
     }
 
-    private void removeResource(Object resc)
+    void removeResource(Object resc)
     { removeResource( resc, false ); }
 
-    private void removeResource(Object resc, boolean synchronous)
+    void removeResource(Object resc, boolean synchronous)
     {
         assert Thread.holdsLock( this );
 
@@ -1530,7 +1975,8 @@ class BasicResourcePool implements ResourcePool
         else if ( logger.isLoggable( MLevel.FINE ) )
             logger.fine("Resource " + resc + " was removed twice. (Lotsa reasons a resource can be removed, sometimes simultaneously. It's okay)");
 
-        unused.remove(resc);
+        if ( pc == null || pc.unused )
+            unused.remove(resc);
         destroyResource(resc, synchronous, checked_out);
         addToFormerResources( resc );
         asyncFireResourceRemoved( resc, false, managed.size(), unused.size(), excluded.size() );
@@ -1558,6 +2004,7 @@ class BasicResourcePool implements ResourcePool
     {
         assert Thread.holdsLock( this );
 
+        _reclaimUnlockedIdleResources();
         int num_to_remove = managed.size() - new_sz;
         int count = 0;
         for (Iterator ii = cloneOfUnused().iterator();
@@ -1576,6 +2023,8 @@ class BasicResourcePool implements ResourcePool
         if ( logger.isLoggable( MLevel.FINER ) )
             logger.log( MLevel.FINER, "BEGIN check for expired resources.  [" + this + "]");
 
+        _reclaimUnlockedIdleResources();
+
         // if we do not time-out checkedout resources, we only need to test unused resources
         Collection checkMe = ( destroy_unreturned_resc_time > 0 ? (Collection) cloneOfManaged().keySet() : cloneOfUnused() );
 
@@ -1603,17 +2052,61 @@ class BasicResourcePool implements ResourcePool
     {
         assert Thread.holdsLock( this );
 
-        List u = cloneOfUnused();
-        for ( Iterator ii = u.iterator(); ii.hasNext(); )
+        // paced sweeps may take most of a period. if one overruns, we let it finish rather than pile on
+        if ( idleTestRunner != null && idleTestSweep != null )
+        {
+            if ( logger.isLoggable( MLevel.FINE ) )
+                logger.fine( "The previous sweep of idle resource tests has not completed. Skipping this one. [" + this + "]" );
+            return;
+        }
+
+        _reclaimUnlockedIdleResources();
+        ArrayList u = new ArrayList( unused.size() );
+        for ( Iterator ii = unused.iterator(); ii.hasNext(); )
         {
             Object resc = ii.next();
-            if ( idleCheckResources.add( resc ) )
-                taskRunner.postRunnable( new AsyncTestIdleResourceTask( resc ) );
+            if (! idleCheckResources.contains( resc ) )
+                u.add( resc );
+        }
+
+        if ( u.size() > 0 )
+        {
+            Collections.sort( u, new Comparator()
+            {
+                public int compare( Object a, Object b )
+                {
+                    long at = lastCheckinTime( a );
+                    long bt = lastCheckinTime( b );
+                    return ( at < bt ? -1 : ( at > bt ? 1 : 0 ) );
+                }
+            } );
+
+            IdleTestSweep sweep = new IdleTestSweep( u );
+            this.idleTestSweep = sweep;
+            if ( idleTestRunner == null )
+            {
+                for ( Iterator ii = u.iterator(); ii.hasNext(); )
+                {
+                    Object resc = ii.next();
+                    idleCheckResources.add( resc );
+                    taskRunner.postRunnable( new AsyncTestIdleResourceTask( resc, sweep ) );
+                }
+            }
+            else
+                sweep.scheduleNextDispatch();
         }
 
         if (Debug.DEBUG && Debug.TRACE == Debug.TRACE_MAX) trace();
     }
 
+    private long lastCheckinTime( Object resc )
+    {
+        assert Thread.holdsLock( this );
+
+        PunchCard card = (PunchCard) managed.get( resc );
+        return ( card == null ? Long.MIN_VALUE : card.last_checkin_time );
+    }
+
     private boolean shouldExpire( Object resc )
     {
         assert Thread.holdsLock( this );
@@ -1697,10 +2190,10 @@ class BasicResourcePool implements ResourcePool
     { recheckResizePool(); }
 
     // we needn't hold this' lock
-    private void ensureMinResources()
+    void ensureMinResources()
     { recheckResizePool(); }
 
-    private boolean attemptRefurbishResourceOnCheckout( Object resc )
+    boolean attemptRefurbishResourceOnCheckout( Object resc )
     {
         assert !Thread.holdsLock( this );
 
@@ -1727,7 +2220,7 @@ class BasicResourcePool implements ResourcePool
         }
     }
 
-    private boolean attemptRefurbishResourceOnCheckin( Object resc )
+    boolean attemptRefurbishResourceOnCheckin( Object resc )
     {
         assert !Thread.holdsLock( this );
 
@@ -1784,14 +2277,14 @@ class BasicResourcePool implements ResourcePool
     {
         assert Thread.holdsLock( this );
 
-        return (HashMap) managed.clone();
+        return new HashMap( managed );
     }
 
-    private final LinkedList cloneOfUnused()
+    private final ArrayDeque cloneOfUnused()
     {
         assert Thread.holdsLock( this );
 
-        return (LinkedList) unused.clone();
+        return unused.clone();
     }
 
     private final HashSet cloneOfExcluded()
@@ -1801,16 +2294,35 @@ class BasicResourcePool implements ResourcePool
         return (HashSet) excluded.clone();
     }
 
+    private synchronized void endBurstAcquire()
+    {
+        if (--burst_acquires == 0)
+        {
+            _handOffAvailable();
+            _notifyAllWaiters();
+        }
+    }
+
     class ScatteredAcquireTask implements Runnable
     {
         int attempts_remaining;
 
-        ScatteredAcquireTask()
-        { this ( (num_acq_attempts >= 0 ? num_acq_attempts : -1) , true ); }
+        // true only for the first attempt of an acquisition in a burst
+        boolean burst;
 
-        private ScatteredAcquireTask(int attempts_remaining, boolean first_attempt)
+        // failed attempts so far in this series, and the delay before this attempt, for acq_retry_policy
+        int  failures;
+        long last_delay;
+
+        ScatteredAcquireTask( boolean burst )
+        { this ( (num_acq_attempts >= 0 ? num_acq_attempts : -1) , true, burst, 0, 0 ); }
+
+        private ScatteredAcquireTask(int attempts_remaining, boolean first_attempt, boolean burst, int failures, long last_delay)
         {
             this.attempts_remaining = attempts_remaining;
+            this.burst = burst;
+            this.failures = failures;
+            this.last_delay = last_delay;
             if (first_attempt)
             {
                 incrementPendingAcquires();
@@ -1879,10 +2391,19 @@ class BasicResourcePool implements ResourcePool
             {
                 BasicResourcePool.this.setLastAcquisitionFailure(e);
 
-                if (attempts_remaining == 0) //last try in a round...
+                // the manager may end a round early, see ResourcePool.Manager.acquireResource()
+                boolean round_ended_by_mgr = (e instanceof CannotAcquireResourceException);
+
+                if (attempts_remaining == 0 || round_ended_by_mgr) //last try in a round...
                 {
                     decrementPendingAcquires();
-                    if ( logger.isLoggable( MLevel.WARNING ) )
+                    warmup.fail( e );
+                    if ( round_ended_by_mgr )
+                    {
+                        if ( logger.isLoggable( MLevel.FINE ) )
+                            logger.log( MLevel.FINE, this + " -- The resource pool manager ended a round of acquisition attempts. Clearing pending acquires.", e );
+                    }
+                    else if ( logger.isLoggable( MLevel.WARNING ) )
                     {
                         logger.log( MLevel.WARNING,
                                         this + " -- Acquisition Attempt Failed!!! Clearing pending acquires. " +
@@ -1893,7 +2414,7 @@ class BasicResourcePool implements ResourcePool
                                         e);
                     }
 
-                    if (break_on_acquisition_failure)
+                    if (break_on_acquisition_failure && !round_ended_by_mgr)
                     {
                         //System.err.println("\tTHE RESOURCE POOL IS PERMANENTLY BROKEN!");
                         if ( logger.isLoggable( MLevel.SEVERE ) )
@@ -1904,7 +2425,16 @@ class BasicResourcePool implements ResourcePool
                     }
                     else
                     {
-                        try { forceKillAcquires(); }
+                        try
+                        {
+                            forceKillAcquires();
+
+                            // with no client traffic, nothing else would drive the pool back toward
+                            // start, so pools that warm up try again themselves until they are warm.
+                            // other pools, as always, wait for client demand.
+                            if ( validate_start_resources && ! warmup.isWarm() )
+                                scheduleWarmupRetry();
+                        }
                         catch (InterruptedException ie)
                         {
                             if ( logger.isLoggable(MLevel.WARNING) )
@@ -1933,20 +2463,46 @@ class BasicResourcePool implements ResourcePool
                     if (logger.isLoggable( logLevel ))
                         logger.log( logLevel, "An exception occurred while acquiring a poolable resource. Will retry.", e );
 
+                    final long delay = nextRetryDelay();
                     TimerTask doNextAcquire = new TimerTask()
                     {
                         public void run()
-                        { taskRunner.postRunnable( new ScatteredAcquireTask( attempts_remaining - 1, false ) ); }
+                        { acquisitionRunner.postRunnable( new ScatteredAcquireTask( attempts_remaining - 1, false, false, failures + 1, delay ) ); }
                     };
-                    cullAndIdleRefurbishTimer.schedule( doNextAcquire, acq_attempt_delay );
+                    cullAndIdleRefurbishTimer.schedule( doNextAcquire, delay );
                 }
             }
 	    finally
 	    {
+		if (burst)
+		    endBurstAcquire();
 		if (recheck)
 		    recheckResizePool();
 	    }
         }
+
+        private long nextRetryDelay()
+        { return ( acq_retry_policy == null ? acq_attempt_delay : Math.max( 0, acq_retry_policy.retryDelay( failures + 1, last_delay ) ) ); }
+
+        // after a failed round, a new round toward start begins after the retry delay.
+        // every task of a failed round may schedule this, but the recheck accounts for
+        // pending acquires, so only the first to run posts new acquisitions.
+        private void scheduleWarmupRetry()
+        {
+            TimerTask retryWarmup = new TimerTask()
+            {
+                public void run()
+                {
+                    try { recheckResizePool(); }
+                    catch (Exception e)
+                    {
+                        if ( logger.isLoggable( MLevel.WARNING ) )
+                            logger.log( MLevel.WARNING, BasicResourcePool.this + " -- Could not retry acquiring its " + start + " initial resources.", e );
+                    }
+                }
+            };
+            cullAndIdleRefurbishTimer.schedule( retryWarmup, nextRetryDelay() );
+        }
     }
 
     /*
@@ -1997,6 +2553,67 @@ class BasicResourcePool implements ResourcePool
         }
     }
 
+    // should NOT be called from synchronized method, we don't
+    // call sizing_policy while holding this' lock
+    private void resizeBySizingPolicy()
+    {
+        assert !Thread.holdsLock( this );
+
+        SizingStats stats;
+        synchronized ( this )
+        {
+            if ( broken ) return;
+
+            _reclaimUnlockedIdleResources();
+            int msz = managed.size();
+            stats = sizing_stats.sample( min, max, inc, target_pool_size, msz, msz - unused.size(), acquireWaiters.size() );
+        }
+
+        int recommended = sizing_policy.targetPoolSize( stats );
+
+        synchronized ( this )
+        {
+            if ( broken ) return;
+
+            // never shrink away resources that are checked out
+            _reclaimUnlockedIdleResources();
+            int floor = Math.max( min, Math.min( max, managed.size() - unused.size() ) );
+            int new_target = Math.max( Math.min( max, recommended ), floor );
+            if ( new_target != target_pool_size )
+            {
+                if ( logger.isLoggable( MLevel.FINE ) )
+                    logger.fine( this + " -- " + sizing_policy + " resizing target_pool_size from " + target_pool_size + " to " + new_target + ". " + stats );
+                target_pool_size = new_target;
+                _recheckResizePool();
+            }
+        }
+    }
+
+    // this is run by a single-threaded timer, so the SizingPolicy
+    // is never called by multiple threads at the same time
+    class SizingTask extends TimerTask
+    {
+        public void run()
+        {
+            try
+            { resizeBySizingPolicy(); }
+            catch ( ResourceClosedException e ) // one of our async threads died
+            {
+                if ( Debug.DEBUG )
+                {
+                    if ( logger.isLoggable( MLevel.FINE ) )
+                        logger.log( MLevel.FINE, "a resource pool async thread died.", e );
+                }
+                unexpectedBreak();
+            }
+            catch ( Exception e )
+            {
+                if ( logger.isLoggable( MLevel.WARNING ) )
+                    logger.log( MLevel.WARNING, BasicResourcePool.this + " -- An Exception occurred while resizing the pool by " + sizing_policy + ".", e );
+            }
+        }
+    }
+
     // this is run by a single-threaded timer, so we don't have
     // to worry about multiple threads executing the task at the same
     // time
@@ -2025,22 +2642,127 @@ class BasicResourcePool implements ResourcePool
         }
     }
 
+    /*
+     *  A round of idle resource tests, most-idle resource first. Without an idleTestRunner,
+     *  every test is posted to the taskRunner at once. With one, the sweep is "paced":
+     *  its tests are dispatched over the first half of the test period, one per equal slot,
+     *  each at a random point within its slot, so that tests neither crowd the idleTestRunner
+     *  nor fall into lockstep across pools. A resource checked out since the sweep began
+     *  is not tested when its turn comes: it has just been in use, and is not idle.
+     */
+    final class IdleTestSweep
+    {
+        //MT: protected by BasicResourcePool.this' lock
+        final long start_time = System.currentTimeMillis();
+        final List rescs;
+
+        int       next_dispatch = 0;
+        int       incomplete;
+        int       failures      = 0;
+        TimerTask dispatchTask  = null;
+
+        IdleTestSweep( List rescs )
+        {
+            this.rescs      = rescs;
+            this.incomplete = rescs.size();
+        }
+
+        void scheduleNextDispatch()
+        {
+            assert Thread.holdsLock( BasicResourcePool.this );
+
+            long slot = Math.max( 1, check_idle_resources_delay / 2 / rescs.size() );
+            long due  = start_time + next_dispatch * slot + ThreadLocalRandom.current().nextLong( slot );
+            this.dispatchTask = new IdleTestDispatchTask( this );
+            cullAndIdleRefurbishTimer.schedule( dispatchTask, Math.max( 0, due - System.currentTimeMillis() ) );
+        }
+
+        void dispatchNext()
+        {
+            assert Thread.holdsLock( BasicResourcePool.this );
+
+            Object resc = rescs.get( next_dispatch++ );
+
+            _reclaimUnlockedIdleResources();
+            if ( lastCheckinTime( resc ) <= start_time && _isUnused( resc ) && idleCheckResources.add( resc ) )
+                idleTestRunner.postRunnable( new AsyncTestIdleResourceTask( resc, this ) );
+            else
+                testComplete( false );
+
+            if ( next_dispatch < rescs.size() )
+                scheduleNextDispatch();
+            else
+                this.dispatchTask = null;
+        }
+
+        void testComplete( boolean failed )
+        {
+            assert Thread.holdsLock( BasicResourcePool.this );
+
+            if ( failed )
+                ++failures;
+
+            if ( --incomplete == 0 )
+            {
+                last_idle_test_sweep_millis = System.currentTimeMillis() - start_time;
+                if ( idleTestSweep == this )
+                    idleTestSweep = null;
+
+                if ( logger.isLoggable( MLevel.FINE ) )
+                    logger.fine( "Completed a sweep of " + rescs.size() + " idle resource tests in " + last_idle_test_sweep_millis +
+                                 " msecs, with " + failures + " failures. [" + BasicResourcePool.this + "]" );
+            }
+        }
+    }
+
+    // this is run by a single-threaded timer, so
+    // a sweep's dispatches never overlap
+    class IdleTestDispatchTask extends TimerTask
+    {
+        final IdleTestSweep sweep;
+
+        IdleTestDispatchTask( IdleTestSweep sweep )
+        { this.sweep = sweep; }
+
+        public void run()
+        {
+            try
+            {
+                synchronized ( BasicResourcePool.this )
+                {
+                    if (! broken )
+                        sweep.dispatchNext();
+                }
+            }
+            catch ( ResourceClosedException e ) // one of our async threads died
+            {
+                if ( Debug.DEBUG )
+                {
+                    if ( logger.isLoggable( MLevel.FINE ) )
+                        logger.log( MLevel.FINE, "a resource pool async thread died.", e );
+                }
+                unexpectedBreak();
+            }
+        }
+    }
+
     class AsyncTestIdleResourceTask implements Runnable
     {
         // unchanging after ctor
-        Object resc;
+        final Object        resc;
+        final IdleTestSweep sweep;
 
-        // protected by this' lock
-        boolean pending = true;
-        boolean failed;
-
-        AsyncTestIdleResourceTask( Object resc )
-        { this.resc = resc; }
+        AsyncTestIdleResourceTask( Object resc, IdleTestSweep sweep )
+        {
+            this.resc  = resc;
+            this.sweep = sweep;
+        }
 
         public void run()
         {
             assert !Thread.holdsLock( BasicResourcePool.this );
 
+            boolean failed = false;
             try
             {
                 try
@@ -2052,6 +2774,8 @@ class BasicResourcePool implements ResourcePool
                     if ( logger.isLoggable( MLevel.FINE ) )
                         logger.log( MLevel.FINE, "BasicResourcePool: An idle resource is broken and will be purged. [" + resc + ']', e);
 
+                    failed = true;
+
                     synchronized (BasicResourcePool.this)
                     {
                         if ( managed.keySet().contains( resc ) ) //resc might have been culled as expired while we tested
@@ -2070,18 +2794,191 @@ class BasicResourcePool implements ResourcePool
                 synchronized (BasicResourcePool.this)
                 {
                     idleCheckResources.remove( resc );
-                    BasicResourcePool.this.notifyAll();
+                    sweep.testComplete( failed );
+                    _handOffAvailable();
+                    _notifyAvailable();
+                }
+            }
+        }
+    }
+
+    // MT: clients register while holding the pool's lock, and are signalled only while
+    //     the pool's lock is held, so no signal can slip between a client's registration
+    //     and its wait. waiting clients park holding no lock at all, so virtual threads
+    //     don't pin their carriers.
+    //
+    //     we park and unpark Threads directly, rather than awaiting a Condition, because
+    //     signalling a Condition requires its lock. blocking for that lock while holding
+    //     the pool's monitor can deadlock, if the Thread due to take it next is a virtual
+    //     thread with no carrier, because the carriers are pinned entering the monitor.
+    final static class AvailabilitySignal
+    {
+        //MT: thread-safe, lock-free
+        final ConcurrentLinkedQueue waiters = new ConcurrentLinkedQueue();
+
+        void register( AvailabilityWait w )
+        { waiters.add( w ); }
+
+        // wakes the longest-waiting client. clients that stopped waiting
+        // are left in the queue until a signal reaches them, and skipped.
+        void signal()
+        {
+            for ( AvailabilityWait w = (AvailabilityWait) waiters.poll(); w != null; w = (AvailabilityWait) waiters.poll() )
+            {
+                if ( w.claim() )
+                    return;
+            }
+        }
+
+        void signalAll()
+        {
+            for ( AvailabilityWait w = (AvailabilityWait) waiters.poll(); w != null; w = (AvailabilityWait) waiters.poll() )
+                w.claim();
+        }
+    }
+
+    // returned to clients that must await availability outside of the pool's lock
+    final static class AvailabilityWait
+    {
+        final static int WAITING   = 0;
+        final static int SIGNALLED = 1;
+        final static int CANCELLED = 2;
+
+        final Thread        thread;
+        final boolean       acquiring; // false if the client awaits only the idle test of the resource it would take
+        final AtomicInteger state = new AtomicInteger( WAITING );
+
+        AvailabilityWait( Thread thread, boolean acquiring )
+        {
+            this.thread    = thread;
+            this.acquiring = acquiring;
+        }
+
+        // returns false if a signal beat us
+        boolean cancel()
+        { return state.compareAndSet( WAITING, CANCELLED ); }
+
+        boolean claim()
+        {
+            if ( state.compareAndSet( WAITING, SIGNALLED ) )
+            {
+                LockSupport.unpark( thread );
+                return true;
+            }
+            else
+                return false;
+        }
+
+        // returns false if the timeout expired before we were signalled.
+        // a timeout of zero means forever, as with wait().
+        boolean await( long timeout ) throws InterruptedException
+        {
+            long deadline = ( timeout > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( timeout ) : 0 );
+            while ( state.get() == WAITING )
+            {
+                if ( Thread.interrupted() )
+                {
+                    cancel(); // if a signal beat us, our caller passes it on
+                    throw new InterruptedException();
+                }
+                if ( timeout <= 0 )
+                    LockSupport.park( this );
+                else
+                {
+                    long remainingNanos = deadline - System.nanoTime();
+                    if ( remainingNanos <= 0 )
+                        return !cancel(); // a signal that beats the cancel wins
+                    LockSupport.parkNanos( this, remainingNanos );
                 }
             }
+            return true;
         }
     }
 
+    // MT: resc is set while holding both the pool's lock and the waiter's own lock.
+    //     waiting clients hold only the waiter's lock, never the pool's, so that the
+    //     two locks are always acquired in the same order.
+    //
+    //     the waiter's lock is a java.util.concurrent lock rather than a monitor, so
+    //     that virtual threads waiting for a hand-off do not pin their carrier threads.
+    final static class HandoffWaiter
+    {
+        final Thread        thread;
+        final ReentrantLock lock      = new ReentrantLock();
+        final Condition     available = lock.newCondition();
+
+        Object  resc     = null;
+        boolean woken    = false;
+        boolean timedOut = false;
+
+        HandoffWaiter( Thread thread )
+        { this.thread = thread; }
+
+        void handOff( Object resc )
+        {
+            lock.lock();
+            try
+            {
+                this.resc = resc;
+                available.signal();
+            }
+            finally
+            { lock.unlock(); }
+        }
+
+        void wake()
+        {
+            lock.lock();
+            try
+            {
+                this.woken = true;
+                available.signal();
+            }
+            finally
+            { lock.unlock(); }
+        }
+
+        // a timeout of zero means forever, as with wait().
+        void await( long timeout ) throws InterruptedException
+        {
+            lock.lock();
+            try
+            {
+                long remainingNanos = TimeUnit.MILLISECONDS.toNanos( timeout );
+                while ( resc == null && !woken )
+                {
+                    if ( timeout <= 0 )
+                        available.await();
+                    else if ( remainingNanos > 0 )
+                        remainingNanos = available.awaitNanos( remainingNanos );
+                    else
+                    {
+                        timedOut = true;
+                        break;
+                    }
+                }
+            }
+            finally
+            { lock.unlock(); }
+        }
+    }
+
+    // MT: fields are modified while holding the pool's lock, or by the one
+    //     thread that owns the resource on lock-free fast paths, so they are
+    //     volatile
     final static class PunchCard
     {
-        long acquisition_time;
-        long last_checkin_time;
-        long checkout_time;
-        Exception checkoutStackTraceException;
+        volatile long acquisition_time;
+        volatile long last_checkin_time;
+        volatile long checkout_time;
+        volatile Exception checkoutStackTraceException;
+
+        // set as the resource is checked out, claimed back by exactly one checkin, so double checkins
+        // are caught even by checkins that don't take the pool's lock
+        final AtomicBoolean checked_out = new AtomicBoolean( false );
+
+        //MT: protected by the pool's lock
+        boolean unused = false; // true while the resource is in the pool's unused deque
 
         PunchCard()
         {
@@ -29,6 +29,7 @@ public class BasicResourcePoolFactory extends ResourcePoolFactory
     int     inc                           = 3;
     int     retry_attempts                = -1;   //by default, retry acquisitions forever
     int     retry_delay                   = 1000; //1 second
+    AcquireRetryPolicy retry_policy       = null; //by default, every retry waits retry_delay
     long    idle_resource_test_period     = -1;   //milliseconds, by default we don't test idle resources
     long    max_age                       = -1;   //milliseconds, by default resources never expire
     long    max_idle_time                 = -1;   //milliseconds, by default resources never expire
@@ -39,10 +40,20 @@ public class BasicResourcePoolFactory extends ResourcePoolFactory
     boolean break_on_acquisition_failure    = true;
     boolean debug_store_checkout_stacktrace = false;
     boolean force_synchronous_checkins      = false;
+    boolean lock_free_checkouts             = false;
+    boolean fair_checkouts                  = false;
+    boolean burst_acquisition               = false;
+    boolean validate_start_resources        = false;
+
+    SizingPolicy sizing_policy   = null; // by default, pools resize only on demand
+    long         sizing_period   = 5000; //milliseconds
 
     AsynchronousRunner taskRunner;
     boolean            taskRunner_is_external;
 
+    AsynchronousRunner acquisitionTaskRunner; // always external, may be null
+    AsynchronousRunner idleTestTaskRunner;    // always external, may be null
+
     RunnableQueue asyncEventQueue;
     boolean       asyncEventQueue_is_external;
 
@@ -235,6 +246,14 @@ public class BasicResourcePoolFactory extends ResourcePoolFactory
 	throws ResourcePoolException
     { return retry_delay; }
 
+    public synchronized void setAcquisitionRetryPolicy( AcquireRetryPolicy retry_policy )
+	throws ResourcePoolException
+    { this.retry_policy = retry_policy; }
+
+    public synchronized AcquireRetryPolicy getAcquisitionRetryPolicy()
+	throws ResourcePoolException
+    { return retry_policy; }
+
     public synchronized void setIdleResourceTestPeriod( long test_period )
     { this.idle_resource_test_period = test_period; }
 
@@ -305,32 +324,135 @@ public class BasicResourcePoolFactory extends ResourcePoolFactory
 	throws ResourcePoolException
     { return force_synchronous_checkins; }
 
+    public synchronized void setLockFreeCheckouts( boolean lock_free_checkouts )
+	throws ResourcePoolException
+    { this.lock_free_checkouts = lock_free_checkouts; }
+
+    public synchronized boolean getLockFreeCheckouts()
+	throws ResourcePoolException
+    { return lock_free_checkouts; }
+
+    public synchronized void setFairCheckouts( boolean fair_checkouts )
+	throws ResourcePoolException
+    { this.fair_checkouts = fair_checkouts; }
+
+    public synchronized boolean getFairCheckouts()
+	throws ResourcePoolException
+    { return fair_checkouts; }
+
+    public synchronized void setBurstAcquisition( boolean burst_acquisition )
+	throws ResourcePoolException
+    { this.burst_acquisition = burst_acquisition; }
+
+    public synchronized boolean getBurstAcquisition()
+	throws ResourcePoolException
+    { return burst_acquisition; }
+
+    public synchronized void setValidateStartResources( boolean validate_start_resources )
+	throws ResourcePoolException
+    { this.validate_start_resources = validate_start_resources; }
+
+    public synchronized boolean getValidateStartResources()
+	throws ResourcePoolException
+    { return validate_start_resources; }
+
+    public synchronized void setSizingPolicy( SizingPolicy sizing_policy )
+	throws ResourcePoolException
+    { this.sizing_policy = sizing_policy; }
+
+    public synchronized SizingPolicy getSizingPolicy()
+	throws ResourcePoolException
+    { return sizing_policy; }
+
+    public synchronized void setSizingPeriod( long sizing_period )
+	throws ResourcePoolException
+    { this.sizing_period = sizing_period; }
+
+    public synchronized long getSizingPeriod()
+	throws ResourcePoolException
+    { return sizing_period; }
+
+    public synchronized void setAcquisitionTaskRunner( AsynchronousRunner acquisitionTaskRunner )
+    { this.acquisitionTaskRunner = acquisitionTaskRunner; }
+
+    public synchronized AsynchronousRunner getAcquisitionTaskRunner()
+    { return acquisitionTaskRunner; }
+
+    public synchronized void setIdleTestTaskRunner( AsynchronousRunner idleTestTaskRunner )
+    { this.idleTestTaskRunner = idleTestTaskRunner; }
+
+    public synchronized AsynchronousRunner getIdleTestTaskRunner()
+    { return idleTestTaskRunner; }
+
     public synchronized ResourcePool createPool(ResourcePool.Manager mgr)
 	throws ResourcePoolException
     {
 	if (liveChildren == null)
 	    createThreadResources();
 	//System.err.println("Created liveChildren: " + liveChildren);
-	ResourcePool child = new BasicResourcePool( mgr, 
-						    start, 
-						    min, 
-						    max, 
-						    inc, 
-						    retry_attempts, 
-						    retry_delay, 
-						    idle_resource_test_period,
-						    max_age, 
-						    max_idle_time,
-						    excess_max_idle_time,
-						    destroy_overdue_resc_time,
-						    expiration_enforcement_delay,
-						    break_on_acquisition_failure,
-						    debug_store_checkout_stacktrace,
-						    force_synchronous_checkins,
-						    taskRunner,
-						    asyncEventQueue,
-						    timer,
-						    this );
+	ResourcePool child;
+	if ( lock_free_checkouts )
+	{
+	    child = new ConcurrentBagResourcePool( mgr, 
+						   start, 
+						   min, 
+						   max, 
+						   inc, 
+						   retry_attempts, 
+						   retry_delay, 
+						   retry_policy,
+						   idle_resource_test_period,
+						   max_age, 
+						   max_idle_time,
+						   excess_max_idle_time,
+						   destroy_overdue_resc_time,
+						   expiration_enforcement_delay,
+						   break_on_acquisition_failure,
+						   debug_store_checkout_stacktrace,
+						   force_synchronous_checkins,
+						   fair_checkouts,
+						   burst_acquisition,
+						   validate_start_resources,
+						   sizing_policy,
+						   sizing_period,
+						   taskRunner,
+						   acquisitionTaskRunner,
+						   idleTestTaskRunner,
+						   asyncEventQueue,
+						   timer,
+						   this );
+	}
+	else
+	{
+	    child = new BasicResourcePool( mgr, 
+					   start, 
+					   min, 
+					   max, 
+					   inc, 
+					   retry_attempts, 
+					   retry_delay, 
+					   retry_policy,
+					   idle_resource_test_period,
+					   max_age, 
+					   max_idle_time,
+					   excess_max_idle_time,
+					   destroy_overdue_resc_time,
+					   expiration_enforcement_delay,
+					   break_on_acquisition_failure,
+					   debug_store_checkout_stacktrace,
+					   force_synchronous_checkins,
+					   fair_checkouts,
+					   burst_acquisition,
+					   validate_start_resources,
+					   sizing_policy,
+					   sizing_period,
+					   taskRunner,
+					   acquisitionTaskRunner,
+					   idleTestTaskRunner,
+					   asyncEventQueue,
+					   timer,
+					   this );
+	}
 	liveChildren.add( child );
 	return child;
     }
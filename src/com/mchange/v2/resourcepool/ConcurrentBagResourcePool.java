@@ -0,0 +1,304 @@
+package com.mchange.v2.resourcepool;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import com.mchange.v2.async.*;
+import com.mchange.v2.log.*;
+
+/**
+ *  <p>A BasicResourcePool whose ordinary checkouts and checkins proceed without
+ *  acquiring the pool's lock.</p>
+ *
+ *  <p>Resources checked-in to the pool are parked in a lock-free deque (the "bag"),
+ *  most recently checked-in first, from which checkouts claim them by CAS. The
+ *  pool's lock is taken only when the bag is empty, so that the pool may need
+ *  to grow or clients must wait, and by maintenance operations (culls, idle
+ *  tests, shrinks, resets, close), which first reclaim the contents of the bag into
+ *  the ordinary list of unused resources.</p>
+ */
+class ConcurrentBagResourcePool extends BasicResourcePool
+{
+    private final static MLogger logger = MLog.getLogger( ConcurrentBagResourcePool.class );
+
+    // how far into the bag checkouts look for a Thread's preferred resource
+    private final static int PREFERRED_SCAN_DEPTH = 4;
+
+    //MT: thread-safe, lock-free
+    final ConcurrentLinkedDeque bag = new ConcurrentLinkedDeque();
+
+    //MT: thread-safe, counts clients in the locking checkout path, who may need to be notified of checkins
+    final AtomicInteger slow_checkouts = new AtomicInteger();
+
+    /**
+     * @param factory may be null
+     */
+    public ConcurrentBagResourcePool(
+		    Manager                  mgr,
+                    int                      start,
+                    int                      min,
+                    int                      max,
+                    int                      inc,
+                    int                      num_acq_attempts,
+                    int                      acq_attempt_delay,
+                    AcquireRetryPolicy       acq_retry_policy,
+                    long                     check_idle_resources_delay,
+                    long                     max_resource_age,
+                    long                     max_idle_time,
+                    long                     excess_max_idle_time,
+                    long                     destroy_unreturned_resc_time,
+                    long                     expiration_enforcement_delay,
+                    boolean                  break_on_acquisition_failure,
+                    boolean                  debug_store_checkout_exceptions,
+		    boolean                  force_synchronous_checkins,
+		    boolean                  fair_checkouts,
+		    boolean                  burst_acquisition,
+		    boolean                  validate_start_resources,
+		    SizingPolicy             sizing_policy,
+		    long                     sizing_period,
+                    AsynchronousRunner       taskRunner,
+                    AsynchronousRunner       acquisitionRunner,
+                    AsynchronousRunner       idleTestRunner,
+                    RunnableQueue            asyncEventQueue,
+                    Timer                    cullAndIdleRefurbishTimer,
+                    BasicResourcePoolFactory factory)
+    throws ResourcePoolException
+    {
+	super( mgr,
+	       start,
+	       min,
+	       max,
+	       inc,
+	       num_acq_attempts,
+	       acq_attempt_delay,
+	       acq_retry_policy,
+	       check_idle_resources_delay,
+	       max_resource_age,
+	       max_idle_time,
+	       excess_max_idle_time,
+	       destroy_unreturned_resc_time,
+	       expiration_enforcement_delay,
+	       break_on_acquisition_failure,
+	       debug_store_checkout_exceptions,
+	       force_synchronous_checkins,
+	       fair_checkouts,
+	       burst_acquisition,
+	       validate_start_resources,
+	       sizing_policy,
+	       sizing_period,
+	       taskRunner,
+	       acquisitionRunner,
+	       idleTestRunner,
+	       asyncEventQueue,
+	       cullAndIdleRefurbishTimer,
+	       factory );
+    }
+
+    public Object checkoutResource( long timeout )
+	throws TimeoutException, ResourcePoolException, InterruptedException
+    { return checkoutResource( timeout, null ); }
+
+    public Object checkoutResource( long timeout, Object preferred )
+	throws TimeoutException, ResourcePoolException, InterruptedException
+    {
+	// under fair_checkouts, we don't barge ahead of clients that may be waiting
+	Object first;
+	if ( fair_checkouts && slow_checkouts.get() > 0 )
+	    first = null;
+	else
+	    first = ( preferred != null && claimPreferred( preferred ) ? preferred : bag.pollFirst() );
+	for ( Object resc = first; resc != null; resc = bag.pollFirst() )
+	{
+	    PunchCard card = (PunchCard) managed.get( resc );
+	    if ( card == null ) // excluded or removed after it was checked-in, never ours to hand out
+	    {
+		synchronized ( this )
+		{ disposeStray( resc ); }
+		continue;
+	    }
+	    else if ( broken || mightExpire( card ) )
+	    {
+		// the locking path knows how to handle broken pools and expired resources
+		bag.addFirst( resc );
+		break;
+	    }
+
+	    if ( attemptRefurbishResourceOnCheckout( resc ) )
+	    {
+		if ( managed.get( resc ) == card )
+		{
+		    card.checkout_time = System.currentTimeMillis();
+		    card.checked_out.set( true );
+		    if (debug_store_checkout_exceptions)
+			card.checkoutStackTraceException = new Exception("DEBUG STACK TRACE: Overdue resource check-out stack trace.");
+		    if (sizing_stats != null)
+			sizing_stats.checkedOut();
+
+		    if ( canFireEvents() )
+		    {
+			synchronized ( this )
+			{ asyncFireResourceCheckedOut( resc, managed.size(), unused.size() + bag.size(), excluded.size() ); }
+		    }
+		    return resc;
+		}
+		else if (Debug.DEBUG && logger.isLoggable( MLevel.FINER ))
+		    logger.finer("Resource " + resc + " was removed from the pool while it was being checked out " +
+				 " or refurbished for checkout. Will try to find a replacement resource.");
+	    }
+	    else
+	    {
+		if (Debug.DEBUG && logger.isLoggable( MLevel.FINER))
+		    logger.log( MLevel.FINER, "Resource [" + resc + "] could not be refurbished in preparation for checkout. Will try to find a better resource." );
+
+		synchronized ( this )
+		{
+		    removeResource( resc );
+		    ensureMinResources();
+		}
+	    }
+	}
+
+	slow_checkouts.incrementAndGet();
+	try { return super.checkoutResource( timeout, preferred ); }
+	finally { slow_checkouts.decrementAndGet(); }
+    }
+
+    public void checkinResource( Object resc ) throws ResourcePoolException
+    {
+	PunchCard card = (PunchCard) managed.get( resc );
+
+	// unmanaged resources and checkins to broken pools take the locking path, as do double
+	// checkins, which lose the claim to the first checkin, and which the locking path ignores
+	if ( card == null || broken || !card.checked_out.compareAndSet( true, false ) )
+	    super.checkinResource( resc );
+	else
+	{
+	    // when checkins are synchronous, we spare the allocation of a task per checkin
+	    if ( force_synchronous_checkins )
+		unlockedCheckin( resc, card );
+	    else
+		taskRunner.postRunnable( new UnlockedCheckinTask( resc, card ) );
+	}
+    }
+
+    // must be called from synchronized method
+    void _reclaimUnlockedIdleResources()
+    {
+	assert Thread.holdsLock( this );
+
+	// our superclass' constructor may start tasks before our own initialization completes,
+	// but nothing can have been checked-in yet.
+	if ( bag == null ) return;
+
+	Object resc;
+	while ( (resc = bag.pollLast()) != null )
+	{
+	    if ( managed.containsKey( resc ) )
+		_addUnused( resc );
+	    else
+		disposeStray( resc );
+	}
+    }
+
+    // an idle preferred resource was usually checked-in recently, so lies near the head of the bag.
+    // we look no deeper, so that under contention checkouts don't scan the whole bag.
+    private boolean claimPreferred( Object preferred )
+    {
+	Iterator ii = bag.iterator();
+	for ( int i = 0; i < PREFERRED_SCAN_DEPTH && ii.hasNext(); ++i )
+	{
+	    if ( ii.next() == preferred )
+		return bag.removeFirstOccurrence( preferred ); // claims by CAS, and finds it as near the head as we did
+	}
+	return false;
+    }
+
+    // must be called from synchronized method
+    private void disposeStray( Object resc )
+    {
+	assert Thread.holdsLock( this );
+
+	if ( excluded.contains( resc ) )
+	    doCheckinExcluded( resc );
+	else if ( logger.isLoggable( MLevel.FINE ) )
+	    logger.fine("Resource " + resc + " was removed from the pool while it was idle and available for lock-free checkout.");
+    }
+
+    // no need to sync, conservative. the locking path decides for real.
+    private boolean mightExpire( PunchCard card )
+    {
+	if ( max_idle_time <= 0 && excess_max_idle_time <= 0 && max_resource_age <= 0 )
+	    return false;
+
+	long now = System.currentTimeMillis();
+	long idle_age = now - card.last_checkin_time;
+	return
+	    ( max_idle_time > 0 && idle_age > max_idle_time ) ||
+	    ( excess_max_idle_time > 0 && idle_age > excess_max_idle_time ) ||
+	    ( max_resource_age > 0 && now - card.acquisition_time > max_resource_age );
+    }
+
+    class UnlockedCheckinTask implements Runnable
+    {
+	final Object    resc;
+	final PunchCard card;
+
+	UnlockedCheckinTask( Object resc, PunchCard card )
+	{
+	    this.resc = resc;
+	    this.card = card;
+	}
+
+	public void run()
+	{ unlockedCheckin( resc, card ); }
+    }
+
+    private void unlockedCheckin( Object resc, PunchCard card )
+    {
+	boolean resc_okay = attemptRefurbishResourceOnCheckin( resc );
+	if ( resc_okay && managed.get( resc ) == card && !broken )
+	{
+	    if (sizing_stats != null)
+		sizing_stats.checkedIn( card.checkout_time );
+	    card.last_checkin_time = System.currentTimeMillis();
+	    card.checkout_time = -1;
+	    bag.addFirst( resc );
+
+	    // we must check for waiters after we have published the resource, and waiters reclaim
+	    // the bag after they have registered, so no waiter can miss the checkin.
+	    if ( broken )
+	    {
+		// close() may have reclaimed the bag before we filled it
+		if ( bag.removeFirstOccurrence( resc ) )
+		{
+		    synchronized ( this )
+		    { removeResource( resc, true ); }
+		}
+	    }
+	    else if ( slow_checkouts.get() > 0 )
+	    {
+		synchronized ( this )
+		{
+		    _handOffAvailable();
+		    _notifyAvailable();
+		}
+	    }
+	}
+	else
+	{
+	    synchronized ( this )
+	    {
+		card.checkout_time = -1; //so we don't see this as still checked out and log an overdue cxn in removeResource()
+		removeResource( resc, broken );
+		if (! broken )
+		    ensureMinResources();
+	    }
+	}
+
+	if ( canFireEvents() )
+	{
+	    synchronized ( this )
+	    { asyncFireResourceCheckedIn( resc, managed.size(), unused.size() + bag.size(), excluded.size() ); }
+	}
+    }
+}
@@ -1,5 +1,6 @@
 package com.mchange.v2.resourcepool;
 
+import java.util.concurrent.Future;
 import com.mchange.v1.util.ClosableResource;
 
 public interface ResourcePool extends ClosableResource
@@ -15,7 +16,16 @@ public interface ResourcePool extends ClosableResource
     public Object checkoutResource( long timeout )
 	throws TimeoutException, ResourcePoolException, InterruptedException;
 
-    public void checkinResource( Object resc ) 
+    /**
+     * Like {@link #checkoutResource(long)}, but if preferred is currently
+     * available for checkout, it will be checked out in preference to
+     * any other resource. If preferred is null, unknown to the pool, or
+     * not presently available, checkout proceeds as usual.
+     */
+    public Object checkoutResource( long timeout, Object preferred )
+	throws TimeoutException, ResourcePoolException, InterruptedException;
+
+    public void checkinResource( Object resc )
 	throws ResourcePoolException;
 
     public void checkinAll()
@@ -73,6 +83,14 @@ public interface ResourcePool extends ClosableResource
 
     public long getNumFailedIdleTests()
     throws ResourcePoolException;
+
+    /**
+     * The time, in milliseconds, between the start of the most recently
+     * completed round of idle resource tests and the completion of its
+     * last test, or -1 if no round has completed.
+     */
+    public long getLastIdleTestSweepMillis()
+    throws ResourcePoolException;
     
     public int getNumCheckoutWaiters()
     throws ResourcePoolException;
@@ -80,6 +98,23 @@ public interface ResourcePool extends ClosableResource
     public Throwable getLastAcquisitionFailure()
     throws ResourcePoolException;
 
+    /**
+     * Returns a Future that completes once the pool has acquired
+     * its initial ("start") resources. Its get() methods return null.
+     * If a series of acquisition attempts fails before the pool is warm,
+     * Threads then blocked in get() see the failure, while later calls
+     * await the next series. The Future fails if the pool is closed
+     * before it is warm.
+     */
+    public Future getWarmupFuture()
+    throws ResourcePoolException;
+
+    /**
+     * true if the pool has acquired its initial ("start") resources
+     */
+    public boolean isWarm()
+    throws ResourcePoolException;
+
     public Throwable getLastCheckinFailure()
     throws ResourcePoolException;
 
@@ -94,6 +129,14 @@ public interface ResourcePool extends ClosableResource
 
     
 
+    /**
+     * Fails the checkouts of all clients currently waiting for
+     * a resource, with a CannotAcquireResourceException, just as
+     * when a round of acquisition attempts has failed.
+     */
+    public void failWaitingCheckouts()
+	throws ResourcePoolException;
+
     /**
      * Discards all resources managed by the pool
      * and reacquires new resources to populate the
@@ -112,6 +155,11 @@ public interface ResourcePool extends ClosableResource
 
     public interface Manager
     {
+	/**
+	 * A CannotAcquireResourceException ends the current round of
+	 * acquisition attempts at once, without further retries, and
+	 * never breaks the pool.
+	 */
 	public Object acquireResource() throws Exception;
 	public void   refurbishIdleResource(Object resc) throws Exception;
 	public void   refurbishResourceOnCheckout(Object resc) throws Exception;
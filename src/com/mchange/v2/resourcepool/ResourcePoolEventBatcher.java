@@ -0,0 +1,81 @@
+package com.mchange.v2.resourcepool;
+
+import com.mchange.v2.async.RunnableQueue;
+
+/**
+ *  Gathers a pool's events as they occur, and dispatches them to listeners
+ *  in order, in batches. Rather than posting a task to the event queue for
+ *  every checkout and checkin, we post one task when a batch begins, and that
+ *  task dispatches every event that arrives before it runs.
+ */
+final class ResourcePoolEventBatcher
+{
+    final static int ACQUIRED    = 0;
+    final static int CHECKED_IN  = 1;
+    final static int CHECKED_OUT = 2;
+    final static int REMOVED     = 3;
+
+    final static int INITIAL_CAPACITY = 16;
+
+    final ResourcePoolEventSupport rpes;
+    final RunnableQueue            asyncEventQueue;
+
+    final Runnable dispatchTask = new Runnable()
+    {
+	public void run()
+	{ dispatch(); }
+    };
+
+    //MT: protected by this' lock
+    int[]               kinds  = new int[ INITIAL_CAPACITY ];
+    ResourcePoolEvent[] events = new ResourcePoolEvent[ INITIAL_CAPACITY ];
+    int                 count  = 0;
+
+    ResourcePoolEventBatcher( ResourcePoolEventSupport rpes, RunnableQueue asyncEventQueue )
+    {
+	this.rpes            = rpes;
+	this.asyncEventQueue = asyncEventQueue;
+    }
+
+    synchronized void enqueue( int kind, ResourcePoolEvent evt )
+    {
+	if ( count == events.length )
+	{
+	    int[] newKinds = new int[ count * 2 ];
+	    ResourcePoolEvent[] newEvents = new ResourcePoolEvent[ count * 2 ];
+	    System.arraycopy( kinds, 0, newKinds, 0, count );
+	    System.arraycopy( events, 0, newEvents, 0, count );
+	    kinds  = newKinds;
+	    events = newEvents;
+	}
+	kinds[count]  = kind;
+	events[count] = evt;
+
+	// only the first event of a batch needs a dispatch task
+	if ( ++count == 1 )
+	    asyncEventQueue.postRunnable( dispatchTask );
+    }
+
+    // runs only on asyncEventQueue, and so never concurrently with itself.
+    // we take the whole batch, then fire its events without holding this' lock
+    private void dispatch()
+    {
+	int[]               batchKinds;
+	ResourcePoolEvent[] batchEvents;
+	int                 batchCount;
+
+	synchronized ( this )
+	{
+	    batchKinds  = kinds;
+	    batchEvents = events;
+	    batchCount  = count;
+
+	    kinds  = new int[ batchKinds.length ];
+	    events = new ResourcePoolEvent[ batchEvents.length ];
+	    count  = 0;
+	}
+
+	for (int i = 0; i < batchCount; ++i)
+	    rpes.fireEvent( batchKinds[i], batchEvents[i] );
+    }
+}
@@ -7,14 +7,27 @@ public class ResourcePoolEventSupport
     ResourcePool source;
     Set          mlisteners = new HashSet();
 
+    //MT: written only while holding this' lock, read unlocked
+    volatile boolean has_listeners = false;
+
     public ResourcePoolEventSupport(ResourcePool source)
     { this.source = source; }
 
     public synchronized void addResourcePoolListener(ResourcePoolListener mlistener)
-    {mlisteners.add(mlistener);}
+    {
+	mlisteners.add(mlistener);
+	has_listeners = true;
+    }
 
     public synchronized void removeResourcePoolListener(ResourcePoolListener mlistener)
-    {mlisteners.remove(mlistener);}
+    {
+	mlisteners.remove(mlistener);
+	has_listeners = !mlisteners.isEmpty();
+    }
+
+    // no need to sync, lets pools skip preparing events no one will hear
+    public boolean hasListeners()
+    { return has_listeners; }
 
     public synchronized void fireResourceAcquired( Object       resc,
 						   int          pool_size,
@@ -100,6 +113,32 @@ public class ResourcePoolEventSupport
 		    }
 	    }
     }
+
+    // for events prepared in advance and dispatched by a ResourcePoolEventBatcher
+    synchronized void fireEvent( int kind, ResourcePoolEvent evt )
+    {
+	for (Iterator i = mlisteners.iterator(); i.hasNext();)
+	    {
+		ResourcePoolListener rpl = (ResourcePoolListener) i.next();
+		switch ( kind )
+		    {
+		    case ResourcePoolEventBatcher.ACQUIRED:
+			rpl.resourceAcquired(evt);
+			break;
+		    case ResourcePoolEventBatcher.CHECKED_IN:
+			rpl.resourceCheckedIn(evt);
+			break;
+		    case ResourcePoolEventBatcher.CHECKED_OUT:
+			rpl.resourceCheckedOut(evt);
+			break;
+		    case ResourcePoolEventBatcher.REMOVED:
+			rpl.resourceRemoved(evt);
+			break;
+		    default:
+			throw new InternalError("Unknown ResourcePoolEvent kind: " + kind);
+		    }
+	    }
+    }
 }
 
 
@@ -100,6 +100,17 @@ public abstract class ResourcePoolFactory
     public abstract int getAcquisitionRetryDelay()
 	throws ResourcePoolException;
 
+    /**
+     * If non-null, pools will consult this policy for the delay
+     * before each retry of a failed acquisition, rather than always
+     * waiting the acquisition retry delay.
+     */
+    public abstract void setAcquisitionRetryPolicy( AcquireRetryPolicy retry_policy )
+	throws ResourcePoolException;
+
+    public abstract AcquireRetryPolicy getAcquisitionRetryPolicy()
+	throws ResourcePoolException;
+
     public abstract void setIdleResourceTestPeriod( long test_period )
 	throws ResourcePoolException;
 
@@ -154,6 +165,89 @@ public abstract class ResourcePoolFactory
     public abstract boolean getForceSynchronousCheckins()
 	throws ResourcePoolException;
 
+    /**
+     * If true, pools hand out and take back idle resources
+     * without acquiring the pool's lock whenever they can.
+     */
+    public abstract void setLockFreeCheckouts( boolean lock_free_checkouts )
+	throws ResourcePoolException;
+
+    public abstract boolean getLockFreeCheckouts()
+	throws ResourcePoolException;
+
+    /**
+     * If true, clients waiting for resources are served in the order
+     * in which they began waiting, and each available resource is handed
+     * directly to the longest waiting client, waking only that client.
+     */
+    public abstract void setFairCheckouts( boolean fair_checkouts )
+	throws ResourcePoolException;
+
+    public abstract boolean getFairCheckouts()
+	throws ResourcePoolException;
+
+    /**
+     * If non-null, pools will acquire new resources using this
+     * AsynchronousRunner, rather than their general task runner.
+     * The factory does not take ownership of the runner, which must
+     * be closed by the caller.
+     */
+    public abstract void setAcquisitionTaskRunner( AsynchronousRunner acquisitionTaskRunner );
+
+    public abstract AsynchronousRunner getAcquisitionTaskRunner();
+
+    /**
+     * If non-null, pools will test idle resources using this
+     * AsynchronousRunner, rather than their general task runner,
+     * spreading each round of tests over the idle test period,
+     * longest-idle resources first. The factory does not take
+     * ownership of the runner, which must be closed by the caller.
+     */
+    public abstract void setIdleTestTaskRunner( AsynchronousRunner idleTestTaskRunner );
+
+    public abstract AsynchronousRunner getIdleTestTaskRunner();
+
+    /**
+     * If true, when pools grow, clients waiting for resources are
+     * woken once, when the first attempt to acquire every resource in
+     * the expansion has completed, rather than as each resource arrives.
+     */
+    public abstract void setBurstAcquisition( boolean burst_acquisition )
+	throws ResourcePoolException;
+
+    public abstract boolean getBurstAcquisition()
+	throws ResourcePoolException;
+
+    /**
+     * If true, pools will test each resource they acquire, via
+     * {@link ResourcePool.Manager#refurbishIdleResource}, until
+     * their initial ("start") resources have been acquired. Resources
+     * that fail their test count as failed acquisition attempts.
+     */
+    public abstract void setValidateStartResources( boolean validate_start_resources )
+	throws ResourcePoolException;
+
+    public abstract boolean getValidateStartResources()
+	throws ResourcePoolException;
+
+    /**
+     * If non-null, pools will consult this policy every sizingPeriod
+     * milliseconds to choose the size toward which they should grow
+     * or shrink. A stateful policy must not be shared, so the policy
+     * should be reset before each pool is created.
+     */
+    public abstract void setSizingPolicy( SizingPolicy sizing_policy )
+	throws ResourcePoolException;
+
+    public abstract SizingPolicy getSizingPolicy()
+	throws ResourcePoolException;
+
+    public abstract void setSizingPeriod( long sizing_period )
+	throws ResourcePoolException;
+
+    public abstract long getSizingPeriod()
+	throws ResourcePoolException;
+
     public abstract ResourcePool createPool(ResourcePool.Manager mgr)
 	throws ResourcePoolException;
 }
@@ -0,0 +1,25 @@
+package com.mchange.v2.resourcepool;
+
+/**
+ *  <p>Periodically chooses the size toward which a resource pool should grow or shrink,
+ *  from the pool's recent activity.</p>
+ *
+ *  <p>Pools still grow on demand by their increment when clients find no resource available,
+ *  and still cull expired resources. A SizingPolicy adjusts the pool's target size between
+ *  those events, so that a pool may grow ahead of rising load, and shrink as load falls.</p>
+ *
+ *  <p>The pool bounds the target size a policy returns by its min and max, and will never
+ *  shrink below the number of resources currently checked out. Each pool should be given
+ *  its own instance, whose {@link #targetPoolSize} method the pool calls only from its timer
+ *  thread, so implementations may keep state between calls without synchronization.</p>
+ *
+ *  <p>Implementations must have a public no-argument constructor.</p>
+ */
+public interface SizingPolicy
+{
+    /**
+     * @param stats the pool's state now, and its activity since the previous call
+     * @return the size toward which the pool should grow or shrink
+     */
+    public int targetPoolSize( SizingStats stats );
+}
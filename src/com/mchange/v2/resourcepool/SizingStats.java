@@ -0,0 +1,138 @@
+package com.mchange.v2.resourcepool;
+
+/**
+ *  An immutable snapshot of a resource pool's state, and of its activity
+ *  over a sampling period, offered to a {@link SizingPolicy}.
+ */
+public final class SizingStats
+{
+    final int  min;
+    final int  max;
+    final int  inc;
+    final int  target_pool_size;
+    final int  pool_size;
+    final int  busy;
+    final int  waiters;
+
+    final long period_millis;
+    final long checkouts;
+    final long waited_checkouts;
+    final long checkout_wait_millis;
+    final long checkins;
+    final long hold_millis;
+    final long acquisitions;
+    final long acquisition_millis;
+
+    SizingStats( int  min,
+		 int  max,
+		 int  inc,
+		 int  target_pool_size,
+		 int  pool_size,
+		 int  busy,
+		 int  waiters,
+		 long period_millis,
+		 long checkouts,
+		 long waited_checkouts,
+		 long checkout_wait_millis,
+		 long checkins,
+		 long hold_millis,
+		 long acquisitions,
+		 long acquisition_millis )
+    {
+	this.min                  = min;
+	this.max                  = max;
+	this.inc                  = inc;
+	this.target_pool_size     = target_pool_size;
+	this.pool_size            = pool_size;
+	this.busy                 = busy;
+	this.waiters              = waiters;
+	this.period_millis        = period_millis;
+	this.checkouts            = checkouts;
+	this.waited_checkouts     = waited_checkouts;
+	this.checkout_wait_millis = checkout_wait_millis;
+	this.checkins             = checkins;
+	this.hold_millis          = hold_millis;
+	this.acquisitions         = acquisitions;
+	this.acquisition_millis   = acquisition_millis;
+    }
+
+    // pool configuration and state, as of the end of the period
+
+    public int getMinPoolSize()
+    { return min; }
+
+    public int getMaxPoolSize()
+    { return max; }
+
+    public int getAcquireIncrement()
+    { return inc; }
+
+    public int getTargetPoolSize()
+    { return target_pool_size; }
+
+    public int getPoolSize()
+    { return pool_size; }
+
+    public int getNumBusy()
+    { return busy; }
+
+    public int getNumWaiters()
+    { return waiters; }
+
+    // activity over the period
+
+    public long getPeriodMillis()
+    { return period_millis; }
+
+    public long getNumCheckouts()
+    { return checkouts; }
+
+    /** the number of times clients had to wait for a resource to become available */
+    public long getNumWaitedCheckouts()
+    { return waited_checkouts; }
+
+    /** total time clients spent waiting for resources to become available */
+    public long getCheckoutWaitMillis()
+    { return checkout_wait_millis; }
+
+    public long getNumCheckins()
+    { return checkins; }
+
+    /** total time between checkout and checkin of the resources checked in */
+    public long getHoldMillis()
+    { return hold_millis; }
+
+    public long getNumAcquisitions()
+    { return acquisitions; }
+
+    /** total time spent acquiring new resources, including failed attempts */
+    public long getAcquisitionMillis()
+    { return acquisition_millis; }
+
+    // derived statistics
+
+    public float getCheckoutsPerSecond()
+    { return ( period_millis > 0 ? checkouts * 1000f / period_millis : 0f ); }
+
+    public float getAverageHoldMillis()
+    { return ( checkins > 0 ? ((float) hold_millis) / checkins : 0f ); }
+
+    public float getAverageCheckoutWaitMillis()
+    { return ( checkouts > 0 ? ((float) checkout_wait_millis) / checkouts : 0f ); }
+
+    public float getAverageAcquisitionMillis()
+    { return ( acquisitions > 0 ? ((float) acquisition_millis) / acquisitions : 0f ); }
+
+    public float getBusyRatio()
+    { return ( pool_size > 0 ? ((float) busy) / pool_size : 0f ); }
+
+    public String toString()
+    {
+	return
+	    this.getClass().getName() + "[ target_pool_size -> " + target_pool_size + "; pool_size -> " + pool_size +
+	    "; busy -> " + busy + "; waiters -> " + waiters + "; period_millis -> " + period_millis + "; checkouts -> " + checkouts +
+	    "; waited_checkouts -> " + waited_checkouts + "; checkout_wait_millis -> " + checkout_wait_millis +
+	    "; checkins -> " + checkins + "; hold_millis -> " + hold_millis + "; acquisitions -> " + acquisitions +
+	    "; acquisition_millis -> " + acquisition_millis + " ]";
+    }
+}
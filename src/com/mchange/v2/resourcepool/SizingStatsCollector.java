@@ -0,0 +1,67 @@
+package com.mchange.v2.resourcepool;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *  Accumulates a pool's activity between samples by its SizingPolicy.
+ *  Updated from lock-free fast paths, so its counters are atomic.
+ */
+final class SizingStatsCollector
+{
+    //MT: thread-safe
+    final AtomicLong checkouts            = new AtomicLong();
+    final AtomicLong waited_checkouts     = new AtomicLong();
+    final AtomicLong checkout_wait_nanos  = new AtomicLong();
+    final AtomicLong checkins             = new AtomicLong();
+    final AtomicLong hold_millis          = new AtomicLong();
+    final AtomicLong acquisitions         = new AtomicLong();
+    final AtomicLong acquisition_nanos    = new AtomicLong();
+
+    //MT: accessed only by the pool's timer thread
+    long last_sample_time = System.currentTimeMillis();
+
+    void checkedOut()
+    { checkouts.incrementAndGet(); }
+
+    void waited( long nanos )
+    {
+	waited_checkouts.incrementAndGet();
+	checkout_wait_nanos.addAndGet( nanos );
+    }
+
+    void checkedIn( long checkout_time )
+    {
+	checkins.incrementAndGet();
+	hold_millis.addAndGet( Math.max( 0, System.currentTimeMillis() - checkout_time ) );
+    }
+
+    void acquired( long nanos )
+    {
+	acquisitions.incrementAndGet();
+	acquisition_nanos.addAndGet( nanos );
+    }
+
+    // resets the counters
+    SizingStats sample( int min, int max, int inc, int target_pool_size, int pool_size, int busy, int waiters )
+    {
+	long now = System.currentTimeMillis();
+	long period_millis = now - last_sample_time;
+	last_sample_time = now;
+
+	return new SizingStats( min,
+				max,
+				inc,
+				target_pool_size,
+				pool_size,
+				busy,
+				waiters,
+				period_millis,
+				checkouts.getAndSet( 0 ),
+				waited_checkouts.getAndSet( 0 ),
+				checkout_wait_nanos.getAndSet( 0 ) / 1000000,
+				checkins.getAndSet( 0 ),
+				hold_millis.getAndSet( 0 ),
+				acquisitions.getAndSet( 0 ),
+				acquisition_nanos.getAndSet( 0 ) / 1000000 );
+    }
+}
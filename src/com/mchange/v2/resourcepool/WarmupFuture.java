@@ -0,0 +1,112 @@
+package com.mchange.v2.resourcepool;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Completes when a pool has acquired its initial ("start") resources.
+ *  <code>get()</code> returns <code>null</code> once the pool is warm.
+ *  If a round of acquisition attempts fails first, Threads blocked in
+ *  <code>get()</code> see the failure, but the future is not done, and
+ *  later calls await the next round. It fails for good if the pool is
+ *  closed before it is warm. Cannot be cancelled.
+ */
+final class WarmupFuture implements Future
+{
+    //MT: protected by this' lock
+    Round     current      = new Round();
+    Throwable closeFailure = null;
+
+    //MT: volatile, written while holding this' lock
+    volatile boolean warm = false;
+
+    // returns true if this call completed the future
+    synchronized boolean complete()
+    {
+	if ( warm || closeFailure != null )
+	    return false;
+	else
+	{
+	    warm = true;
+	    current.finish( null );
+	    return true;
+	}
+    }
+
+    // releases Threads awaiting the current round with t. later
+    // calls to get() await another round
+    synchronized void fail( Throwable t )
+    {
+	if (! warm && closeFailure == null )
+	{
+	    current.finish( t );
+	    current = new Round();
+	}
+    }
+
+    // the pool will never be warm
+    synchronized void close( Throwable t )
+    {
+	if (! warm && closeFailure == null )
+	{
+	    closeFailure = t;
+	    current.finish( t );
+	}
+    }
+
+    boolean isWarm()
+    { return warm; }
+
+    public boolean cancel( boolean mayInterruptIfRunning )
+    { return false; }
+
+    public boolean isCancelled()
+    { return false; }
+
+    public synchronized boolean isDone()
+    { return warm || closeFailure != null; }
+
+    public Object get() throws InterruptedException, ExecutionException
+    {
+	Round r = round();
+	r.latch.await();
+	return r.report();
+    }
+
+    public Object get( long timeout, TimeUnit unit ) throws InterruptedException, ExecutionException, java.util.concurrent.TimeoutException
+    {
+	Round r = round();
+	if ( r.latch.await( timeout, unit ) )
+	    return r.report();
+	else
+	    throw new java.util.concurrent.TimeoutException( "Pool not yet warm after " + timeout + " " + unit + "." );
+    }
+
+    private synchronized Round round()
+    { return current; }
+
+    private final static class Round
+    {
+	//MT: thread-safe
+	final CountDownLatch latch = new CountDownLatch(1);
+
+	//MT: written only before latch is released, and so may be read unlocked after it has been
+	Throwable failure = null;
+
+	void finish( Throwable t )
+	{
+	    failure = t;
+	    latch.countDown();
+	}
+
+	Object report() throws ExecutionException
+	{
+	    if ( failure != null )
+		throw new ExecutionException( "Pool failed to warm up.", failure );
+	    else
+		return null;
+	}
+    }
+}
@@ -0,0 +1,61 @@
+package com.mchange.v2.c3p0.impl;
+
+import java.util.Timer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.TestCase;
+import com.mchange.v2.async.AsynchronousRunner;
+
+public final class CircuitBreakerJUnitTestCase extends TestCase
+{
+    // runs tasks in the posting Thread, but rejects the first few probes posted by the timer
+    final static class RejectingRunner implements AsynchronousRunner
+    {
+	final AtomicInteger rejections;
+
+	RejectingRunner( int rejections )
+	{ this.rejections = new AtomicInteger( rejections ); }
+
+	public void postRunnable( Runnable r )
+	{
+	    if ( Thread.currentThread().getName().startsWith( "CircuitBreakerTestTimer" ) && rejections.getAndDecrement() > 0 )
+		throw new IllegalStateException( "Rejected, for testing." );
+	    r.run();
+	}
+
+	public void close( boolean skip_remaining_tasks ) {}
+	public void close() {}
+    }
+
+    public void testProbeRescheduledWhenPostingFails() throws Exception
+    {
+	Timer timer = new Timer( "CircuitBreakerTestTimer", true );
+	final CountDownLatch probed = new CountDownLatch( 1 );
+	CircuitBreaker.Probe probe = new CircuitBreaker.Probe()
+	{
+	    public void probe() throws Exception
+	    { probed.countDown(); }
+	};
+	CircuitBreaker.Listener listener = new CircuitBreaker.Listener()
+	{
+	    public void opened() {}
+	};
+	CircuitBreaker breaker = new CircuitBreaker( "test", 1, 20, timer, new RejectingRunner( 2 ), probe, listener );
+	try
+	{
+	    breaker.failure( new Exception( "Failure, for testing." ) );
+	    assertTrue( "Expect a single failure to open a breaker with threshold 1", breaker.isOpen() );
+	    assertTrue( "Expect a probe to run even after posting probes has failed", probed.await( 5, TimeUnit.SECONDS ) );
+	    long deadline = System.currentTimeMillis() + 5000; // the probe closes the breaker just after it returns
+	    while ( breaker.isOpen() && System.currentTimeMillis() < deadline )
+		Thread.sleep( 10 );
+	    assertFalse( "Expect a successful probe to close the breaker", breaker.isOpen() );
+	}
+	finally
+	{
+	    breaker.cancel();
+	    timer.cancel();
+	}
+    }
+}
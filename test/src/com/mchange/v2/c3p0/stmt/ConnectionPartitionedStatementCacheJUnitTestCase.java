@@ -0,0 +1,105 @@
+package com.mchange.v2.c3p0.stmt;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import junit.framework.TestCase;
+import com.mchange.v2.async.ThreadPoolAsynchronousRunner;
+import com.mchange.v2.c3p0.test.junit.MockConnectionWithoutBoundaries;
+
+public final class ConnectionPartitionedStatementCacheJUnitTestCase extends TestCase
+{
+    ThreadPoolAsynchronousRunner runner;
+    Method prepare;
+
+    protected void setUp() throws Exception
+    {
+	runner = new ThreadPoolAsynchronousRunner( 2, true );
+	prepare = Connection.class.getMethod( "prepareStatement", new Class[] { String.class } );
+    }
+
+    protected void tearDown()
+    { runner.close(); }
+
+    public void testGlobalSlotAccounting() throws Exception
+    {
+	ConnectionPartitionedStatementCache cache = new ConnectionPartitionedStatementCache( runner, null, 3, 0 );
+	try
+	{
+	    Connection a = new MockConnectionWithoutBoundaries();
+	    for (int i = 0; i < 3; ++i)
+		checkoutAndCheckin( cache, a, "SELECT a" + i );
+	    assertEquals( "Expect each cached Statement to hold a global slot", 3, cache.global_count.get() );
+
+	    checkoutAndCheckin( cache, a, "SELECT a3" );
+	    assertEquals( "Expect a lone Connection at the global limit to cull its own Statement", 1, cache.getStatistics().getNumEvictions() );
+	    assertEquals( "Expect a culled Statement to give back its slot to its replacement", 3, cache.global_count.get() );
+	    assertEquals( 3, cache.getNumStatements() );
+
+	    cache.closeAll( a );
+	    assertEquals( "Expect Statements closed with their Connection to give back their slots", 0, cache.global_count.get() );
+	    assertEquals( "Expect a closed Connection's partition to go away", 0, cache.partitions.size() );
+
+	    Connection b = new MockConnectionWithoutBoundaries();
+	    checkoutAndCheckin( cache, b, "SELECT b0" );
+	    checkoutAndCheckin( cache, b, "SELECT b1" );
+	    assertEquals( 2, cache.global_count.get() );
+	    cache.close();
+	    assertEquals( "Expect Statements destroyed as the cache closes to give back their slots", 0, cache.global_count.get() );
+	}
+	finally
+	{ cache.close(); }
+    }
+
+    public void testUnlimitedGlobalSlots() throws Exception
+    {
+	ConnectionPartitionedStatementCache cache = new ConnectionPartitionedStatementCache( runner, null, 0, 2 );
+	try
+	{
+	    Connection a = new MockConnectionWithoutBoundaries();
+	    for (int i = 0; i < 3; ++i)
+		checkoutAndCheckin( cache, a, "SELECT a" + i );
+	    assertEquals( "Expect the per-Connection limit alone to cull", 1, cache.getStatistics().getNumEvictions() );
+	    assertEquals( "Expect slots to be counted even with no global limit", 2, cache.global_count.get() );
+	}
+	finally
+	{ cache.close(); }
+    }
+
+    // elder Connections fill the cache, then a late Connection must win slots from them
+    public void testLateConnectionIsNotStarved() throws Exception
+    {
+	ConnectionPartitionedStatementCache cache = new ConnectionPartitionedStatementCache( runner, null, 4, 0 );
+	try
+	{
+	    Connection a = new MockConnectionWithoutBoundaries();
+	    Connection b = new MockConnectionWithoutBoundaries();
+	    for (int i = 0; i < 2; ++i)
+	    {
+		checkoutAndCheckin( cache, a, "SELECT a" + i );
+		checkoutAndCheckin( cache, b, "SELECT b" + i );
+	    }
+	    assertEquals( 4, cache.global_count.get() );
+
+	    Connection late = new MockConnectionWithoutBoundaries();
+	    long deadline = System.currentTimeMillis() + 10000;
+	    while ( cache.getStatistics().getNumHits() == 0 )
+	    {
+		assertTrue( "Expect a late Connection to get cache hits", System.currentTimeMillis() < deadline );
+		checkoutAndCheckin( cache, late, "SELECT late" );
+		assertTrue( "Expect the global limit to hold", cache.global_count.get() <= 4 );
+		Thread.sleep( 10 );
+	    }
+	    assertTrue( "Expect the late Connection's Statement to have displaced an elder's", cache.getStatistics().getNumEvictions() > 0 );
+	    assertEquals( "Expect global slots to match cached Statements", cache.getNumStatements(), cache.global_count.get() );
+	}
+	finally
+	{ cache.close(); }
+    }
+
+    private void checkoutAndCheckin( GooGooStatementCache cache, Connection pcon, String sql ) throws Exception
+    {
+	PreparedStatement ps = (PreparedStatement) cache.checkoutStatement( pcon, prepare, new Object[] { sql } );
+	cache.checkinStatement( pcon, ps );
+    }
+}
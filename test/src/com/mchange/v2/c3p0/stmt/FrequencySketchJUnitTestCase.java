@@ -0,0 +1,140 @@
+package com.mchange.v2.c3p0.stmt;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import junit.framework.TestCase;
+import com.mchange.v2.async.ThreadPoolAsynchronousRunner;
+import com.mchange.v2.c3p0.test.junit.MockConnectionWithoutBoundaries;
+
+public final class FrequencySketchJUnitTestCase extends TestCase
+{
+    public void testIncrementAndFrequency()
+    {
+	FrequencySketch sketch = new FrequencySketch( 16 );
+	assertEquals( "Expect an unseen key to have frequency 0", 0, sketch.frequency( 42 ) );
+	for (int i = 0; i < 5; ++i)
+	    sketch.increment( 42 );
+	assertEquals( "Expect a lone key's frequency to be exact", 5, sketch.frequency( 42 ) );
+	assertEquals( "Expect each increment of an unsaturated key to count as an addition", 5, sketch.additions );
+    }
+
+    public void testSaturation()
+    {
+	FrequencySketch sketch = new FrequencySketch( 16 );
+	for (int i = 0; i < 20; ++i)
+	    sketch.increment( 7 );
+	assertEquals( "Expect counters to saturate at 15", 15, sketch.frequency( 7 ) );
+	assertEquals( "Expect increments of a saturated key not to count as additions", 15, sketch.additions );
+    }
+
+    public void testNeverUnderestimates()
+    {
+	FrequencySketch sketch = new FrequencySketch( 64 ); // sample_size 640, more than we'll add
+	for (int key = 0; key < 100; ++key)
+	    for (int i = 0; i < key % 6; ++i)
+		sketch.increment( key );
+	for (int key = 0; key < 100; ++key)
+	    assertTrue( "Expect no key's frequency to be underestimated", sketch.frequency( key ) >= key % 6 );
+    }
+
+    public void testResetHalvesCountersAndDiscountsOddOnes()
+    {
+	FrequencySketch sketch = new FrequencySketch( 16 );
+	for (int key = 0; key < 30; ++key)
+	    for (int i = 0; i <= key % 3; ++i)
+		sketch.increment( key );
+	assertTrue( "Expect no reset before sample_size additions", sketch.additions < sketch.sample_size );
+
+	long[] before = (long[]) sketch.table.clone();
+	int additions_before = sketch.additions;
+	int odd = 0;
+	for (int i = 0; i < before.length; ++i)
+	    for (int shift = 0; shift < 64; shift += 4)
+		odd += (int) ((before[i] >>> shift) & 1L);
+	assertTrue( "Expect some odd counters, so the discount is tested", odd > 0 );
+
+	sketch.reset();
+
+	for (int i = 0; i < before.length; ++i)
+	    for (int shift = 0; shift < 64; shift += 4)
+		assertEquals( "Expect each counter to be halved",
+			      ((before[i] >>> shift) & 0xfL) >>> 1,
+			      (sketch.table[i] >>> shift) & 0xfL );
+	assertEquals( "Expect additions = (additions >>> 1) - (odd >>> 2)",
+		      (additions_before >>> 1) - (odd >>> 2),
+		      sketch.additions );
+    }
+
+    public void testResetAfterSampleSize()
+    {
+	FrequencySketch sketch = new FrequencySketch( 16 ); // sample_size 160
+	for (int i = 0; i < 8; ++i)
+	    sketch.increment( -1 );
+	int key = 0;
+	int prev;
+	do // until a reset shrinks additions
+	{
+	    prev = sketch.additions;
+	    sketch.increment( key++ );
+	}
+	while ( sketch.additions > prev );
+	assertEquals( "Expect a reset after exactly sample_size additions", sketch.sample_size, 8 + key );
+	int f = sketch.frequency( -1 );
+	assertTrue( "Expect a frequency of 8 to be halved, give or take collisions: " + f, f >= 4 && f <= 7 );
+    }
+
+    public void testAdmits()
+    {
+	FrequencySketch sketch = new FrequencySketch( 16 );
+	for (int i = 0; i < 4; ++i)
+	    sketch.increment( 100 );
+	assertFalse( "Expect a colder candidate not to displace the victim", sketch.admits( 3, 100 ) );
+	assertFalse( "Expect ties to favor the victim", sketch.admits( 4, 100 ) );
+	assertTrue( "Expect a hotter candidate to displace the victim", sketch.admits( 5, 100 ) );
+	assertTrue( "Expect any seen candidate to displace an unseen victim", sketch.admits( 1, 200 ) );
+    }
+
+    // with room for one Statement, a newly prepared one is cached only once it is more popular than the cached one
+    public void testFrequencyAdmissionEvictionDecision() throws Exception
+    {
+	ThreadPoolAsynchronousRunner runner = new ThreadPoolAsynchronousRunner( 1, true );
+	GlobalMaxOnlyStatementCache cache = new GlobalMaxOnlyStatementCache( runner, null, 1 );
+	try
+	{
+	    cache.useFrequencyAdmission( 16 );
+	    Connection pcon = new MockConnectionWithoutBoundaries();
+	    Method prepare = Connection.class.getMethod( "prepareStatement", new Class[] { String.class } );
+
+	    for (int i = 0; i < 5; ++i)
+		checkoutAndCheckin( cache, pcon, prepare, "SELECT hot" );
+	    assertEquals( 1, cache.getNumStatements() );
+
+	    for (int i = 1; i <= 5; ++i)
+	    {
+		checkoutAndCheckin( cache, pcon, prepare, "SELECT cold" );
+		assertEquals( "Expect a candidate seen " + i + " times not to displace one seen 5 times", i, cache.getStatistics().getNumOverloadStatements() );
+		assertEquals( 0, cache.getStatistics().getNumEvictions() );
+	    }
+
+	    checkoutAndCheckin( cache, pcon, prepare, "SELECT cold" );
+	    assertEquals( "Expect a candidate seen 6 times to displace one seen 5 times", 1, cache.getStatistics().getNumEvictions() );
+	    assertEquals( 5, cache.getStatistics().getNumOverloadStatements() );
+	    assertEquals( 1, cache.getNumStatements() );
+
+	    checkoutAndCheckin( cache, pcon, prepare, "SELECT cold" );
+	    assertEquals( "Expect the admitted Statement to be cached", 5, cache.getStatistics().getNumHits() );
+	}
+	finally
+	{
+	    cache.close();
+	    runner.close();
+	}
+    }
+
+    private static void checkoutAndCheckin( GooGooStatementCache cache, Connection pcon, Method prepare, String sql ) throws Exception
+    {
+	PreparedStatement ps = (PreparedStatement) cache.checkoutStatement( pcon, prepare, new Object[] { sql } );
+	cache.checkinStatement( pcon, ps );
+    }
+}
@@ -0,0 +1,88 @@
+package com.mchange.v2.c3p0.test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.sql.*;
+import com.mchange.v2.c3p0.*;
+
+/**
+ *  Measures the heap a single thread allocates per Connection checkout and checkin,
+ *  once the pool has reached a steady state. Checkins are forced synchronous, so that
+ *  all of the work of a cycle happens on the measuring thread, and Connection testing
+ *  and Statement caching are off, so we measure just the pool.
+ *
+ *  <pre>
+ *  java com.mchange.v2.c3p0.test.CheckoutAllocationBenchmark [max-bytes-per-cycle]
+ *  </pre>
+ *
+ *  <p>Exits with a nonzero status if a cycle allocates more than max-bytes-per-cycle
+ *  (default 128). Each checkout still creates the small proxy Connection handed to
+ *  the client, with the listener that detaches it on close. A proxy must never be
+ *  reused once its client has closed it.</p>
+ *
+ *  <p>Requires a JVM whose ThreadMXBean can report allocated bytes (HotSpot does).
+ *  If no jdbcUrl is configured, uses the MockDriver from the junit tests.</p>
+ */
+public final class CheckoutAllocationBenchmark
+{
+    final static int WARMUP_CYCLES   = 200000;
+    final static int MEASURED_CYCLES = 1000000;
+
+    final static long DEFAULT_MAX_BYTES_PER_CYCLE = 128;
+
+    public static void main(String[] argv)
+    {
+        ComboPooledDataSource cpds = null;
+        try
+        {
+            long maxBytesPerCycle = ( argv.length > 0 ? Long.parseLong( argv[0] ) : DEFAULT_MAX_BYTES_PER_CYCLE );
+
+            ThreadMXBean tmxb = ManagementFactory.getThreadMXBean();
+            Method getThreadAllocatedBytes = Class.forName( "com.sun.management.ThreadMXBean" ).getMethod( "getThreadAllocatedBytes", long.class );
+            long tid = Thread.currentThread().getId();
+
+            cpds = new ComboPooledDataSource();
+            if ( cpds.getJdbcUrl() == null )
+            {
+                DriverManager.registerDriver( new com.mchange.v2.c3p0.test.junit.MockDriver() );
+                cpds.setDriverClass( "com.mchange.v2.c3p0.test.junit.MockDriver" );
+                cpds.setJdbcUrl( "test:driver@without-request-boundaries" );
+            }
+            cpds.setForceSynchronousCheckins( true );
+            cpds.setTestConnectionOnCheckout( false );
+            cpds.setTestConnectionOnCheckin( false );
+            cpds.setMaxStatements( 0 );
+            cpds.setMaxStatementsPerConnection( 0 );
+
+            for (int i = 0; i < WARMUP_CYCLES; ++i)
+                cpds.getConnection().close();
+
+            long startBytes = ((Long) getThreadAllocatedBytes.invoke( tmxb, tid )).longValue();
+            long start = System.nanoTime();
+            for (int i = 0; i < MEASURED_CYCLES; ++i)
+                cpds.getConnection().close();
+            long elapsed = System.nanoTime() - start;
+            long bytes = ((Long) getThreadAllocatedBytes.invoke( tmxb, tid )).longValue() - startBytes;
+
+            double bytesPerCycle = ((double) bytes) / MEASURED_CYCLES;
+            System.out.println( MEASURED_CYCLES + " checkout/checkin cycles: " + ( elapsed / MEASURED_CYCLES ) + " nsecs/cycle, " +
+                                String.format( "%.1f", bytesPerCycle ) + " bytes allocated/cycle (max allowed: " + maxBytesPerCycle + ")." );
+            if ( bytesPerCycle > maxBytesPerCycle )
+            {
+                System.err.println( "FAILED: checkout/checkin cycles allocate more than " + maxBytesPerCycle + " bytes." );
+                cpds.close();
+                System.exit( 1 );
+            }
+        }
+        catch (ClassNotFoundException e)
+        { System.err.println( CheckoutAllocationBenchmark.class.getName() + " requires a JVM whose ThreadMXBean reports allocated bytes." ); }
+        catch (Exception e)
+        { e.printStackTrace(); }
+        finally
+        {
+            if (cpds != null)
+                cpds.close();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.mchange.v2.c3p0.test;
+
+import java.lang.reflect.*;
+import java.sql.*;
+import java.util.Random;
+import com.mchange.v2.async.AsynchronousRunner;
+import com.mchange.v2.c3p0.stmt.*;
+
+/**
+ *  Measures the cost of Statement cache checkouts and checkins, including the
+ *  culling of least-recently-used Statements, for caches of various sizes. No
+ *  database is involved: Statements are trivial dynamic proxies, so what is
+ *  measured is the cache's own bookkeeping.
+ *
+ *  <pre>
+ *  java com.mchange.v2.c3p0.test.StatementCacheEvictionBenchmark [maxStatements ...]
+ *  </pre>
+ *
+ *  <p>For each maxStatements (by default 500, 1000, 2000, and 5000), eight
+ *  Connections check out and check in Statements, 90% drawn from a hot set
+ *  that fits in the cache, 10% from a cold set ten times the size of the cache,
+ *  so that the cache is kept full and culls constantly. Each size is run with
+ *  both the <tt>lru</tt> and <tt>tinylfu</tt> statementCacheEvictionPolicy.</p>
+ */
+public final class StatementCacheEvictionBenchmark
+{
+    final static int NUM_CONNECTIONS = 8;
+    final static int WARMUP_OPS      = 1000000;
+    final static int MEASURED_OPS    = 4000000;
+
+    final static int[] DEFAULT_MAX_STATEMENTS = { 500, 1000, 2000, 5000 };
+
+    static int prepares = 0;
+
+    public static void main(String[] argv)
+    {
+        try
+        {
+            int[] maxes = DEFAULT_MAX_STATEMENTS;
+            if ( argv.length > 0 )
+            {
+                maxes = new int[ argv.length ];
+                for (int i = 0; i < argv.length; ++i)
+                    maxes[i] = Integer.parseInt( argv[i] );
+            }
+
+            Connection[] cxns = new Connection[ NUM_CONNECTIONS ];
+            for (int i = 0; i < NUM_CONNECTIONS; ++i)
+                cxns[i] = mockConnection();
+
+            for (int i = 0; i < maxes.length; ++i)
+            {
+                perform( cxns, maxes[i], false );
+                perform( cxns, maxes[i], true );
+            }
+        }
+        catch (Exception e)
+        { e.printStackTrace(); }
+    }
+
+    private static void perform( Connection[] cxns, int max_statements, boolean tinylfu ) throws SQLException
+    {
+        GooGooStatementCache cache = new GlobalMaxOnlyStatementCache( new InlineRunner(), null, max_statements );
+        if ( tinylfu )
+            cache.useFrequencyAdmission( max_statements );
+        try
+        {
+            // Statements are cached per Connection, so each SQL string makes NUM_CONNECTIONS keys
+            int hot  = Math.max( 1, (max_statements * 8) / (10 * NUM_CONNECTIONS) );
+            int cold = Math.max( 1, (max_statements * 10) / NUM_CONNECTIONS );
+
+            String[] sql = new String[ hot + cold ];
+            for (int i = 0; i < sql.length; ++i)
+                sql[i] = "SELECT * FROM t WHERE k = " + i;
+
+            Random r = new Random( max_statements );
+            run( cache, cxns, sql, hot, r, WARMUP_OPS );
+
+            int startPrepares = prepares;
+            long start = System.nanoTime();
+            run( cache, cxns, sql, hot, r, MEASURED_OPS );
+            long elapsed = System.nanoTime() - start;
+
+            float hit_ratio = 1f - ((float) ( prepares - startPrepares )) / MEASURED_OPS;
+            System.out.println( "maxStatements " + max_statements + ( tinylfu ? ", tinylfu" : ", lru" ) + ": " + ( elapsed / MEASURED_OPS ) + " nsecs per checkout/checkin, " +
+                                String.format( "%.1f", hit_ratio * 100 ) + "% hits, " + cache.getNumStatements() + " statements cached." );
+        }
+        finally
+        { cache.close(); }
+    }
+
+    private static void run( GooGooStatementCache cache, Connection[] cxns, String[] sql, int hot, Random r, int ops ) throws SQLException
+    {
+        for (int i = 0; i < ops; ++i)
+        {
+            Connection c = cxns[ r.nextInt( cxns.length ) ];
+            String s = ( r.nextInt( 10 ) != 0 ? sql[ r.nextInt( hot ) ] : sql[ hot + r.nextInt( sql.length - hot ) ] );
+            Object ps = cache.checkoutStatement( c, false, s, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY,
+                                                 GooGooStatementCache.DRIVER_DEFAULT, GooGooStatementCache.DRIVER_DEFAULT, null, null );
+            cache.checkinStatement( c, ps );
+        }
+    }
+
+    // Statements and Connections that do nothing, and are equal only to themselves
+    private static Connection mockConnection()
+    {
+        final InvocationHandler stmtHandler = new InvocationHandler()
+        {
+            public Object invoke( Object proxy, Method m, Object[] args )
+            {
+                String name = m.getName();
+                if ( name.equals("equals") )
+                    return Boolean.valueOf( proxy == args[0] );
+                else if ( name.equals("hashCode") )
+                    return Integer.valueOf( System.identityHashCode( proxy ) );
+                else if ( name.equals("toString") )
+                    return "MockPreparedStatement@" + Integer.toHexString( System.identityHashCode( proxy ) );
+                else if ( m.getReturnType() == boolean.class )
+                    return Boolean.FALSE;
+                else if ( m.getReturnType() == int.class )
+                    return Integer.valueOf( 0 );
+                else
+                    return null;
+            }
+        };
+        InvocationHandler cxnHandler = new InvocationHandler()
+        {
+            public Object invoke( Object proxy, Method m, Object[] args ) throws Throwable
+            {
+                String name = m.getName();
+                if ( name.equals("prepareStatement") )
+                {
+                    ++prepares;
+                    return Proxy.newProxyInstance( StatementCacheEvictionBenchmark.class.getClassLoader(), new Class[] { PreparedStatement.class }, stmtHandler );
+                }
+                else
+                    return stmtHandler.invoke( proxy, m, args );
+            }
+        };
+        return (Connection) Proxy.newProxyInstance( StatementCacheEvictionBenchmark.class.getClassLoader(), new Class[] { Connection.class }, cxnHandler );
+    }
+
+    // prepares and destroys Statements in the calling Thread, so measurements don't include handoffs
+    private static final class InlineRunner implements AsynchronousRunner
+    {
+        public void postRunnable( Runnable r ) { r.run(); }
+        public void close( boolean skip_remaining_tasks ) {}
+        public void close() {}
+    }
+}
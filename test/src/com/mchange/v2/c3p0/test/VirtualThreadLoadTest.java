@@ -0,0 +1,167 @@
+package com.mchange.v2.c3p0.test;
+
+import java.lang.reflect.Method;
+import java.sql.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import com.mchange.v2.c3p0.*;
+
+/**
+ *  Checks Connections in and out of a small pool from many virtual threads,
+ *  testing each on checkout and preparing a cached Statement on each checkout.
+ *  Requires a JVM that supports virtual threads (Java 21+). To see whether
+ *  waiting clients pin their carrier threads, run with
+ *  <tt>-Djdk.tracePinnedThreads=full</tt>, e.g.
+ *
+ *  <pre>
+ *  java -Djdk.tracePinnedThreads=full -Dc3p0.statementCacheLockFreePrepare=true com.mchange.v2.c3p0.test.VirtualThreadLoadTest
+ *  </pre>
+ *
+ *  <p>Under Java 21, <tt>jdk.tracePinnedThreads</tt> reports only threads that park
+ *  while pinned, not threads blocked entering a monitor or in <tt>Object.wait()</tt>,
+ *  which also pin their carriers. So, the test also counts carrier threads while it
+ *  runs. The virtual thread scheduler adds carriers beyond its parallelism to make up
+ *  for carriers pinned in <tt>Object.wait()</tt>, so if the count ever exceeds both the
+ *  parallelism and the count after a warm-up round (whose class loading may add a
+ *  carrier), the test fails. The trace will still show virtual threads parked while
+ *  holding a Connection proxy's own lock, which the proxy holds while the driver
+ *  prepares a Statement.</p>
+ *
+ *  <p>Set <tt>c3p0.fairCheckouts</tt> or <tt>c3p0.lockFreeCheckouts</tt> to exercise
+ *  the other checkout paths. Without <tt>c3p0.statementCacheLockFreePrepare</tt>, clients
+ *  that miss the Statement cache wait on its monitor, pinning their carriers, and the
+ *  test fails.</p>
+ *
+ *  <p>If no jdbcUrl is configured, uses the MockDriver from the junit tests, with a
+ *  slow prepare, so that clients pile up on cache misses.</p>
+ */
+public final class VirtualThreadLoadTest
+{
+    final static int NUM_VIRTUAL_THREADS   = 10000;
+    final static int ITERATIONS_PER_THREAD = 10;
+    final static int MAX_POOL_SIZE         = 20;
+    final static int MAX_STATEMENTS        = 100;
+    final static int NUM_DISTINCT_SQL      = 10;
+    final static long MOCK_PREPARE_DELAY   = 5;  //msecs
+    final static long CARRIER_SAMPLE_DELAY = 5;  //msecs
+
+    public static void main(String[] argv)
+    {
+        ComboPooledDataSource cpds = null;
+        boolean pinned = false;
+        try
+        {
+            Method startVirtualThread = Thread.class.getMethod( "startVirtualThread", Runnable.class );
+
+            cpds = new ComboPooledDataSource();
+            if ( cpds.getJdbcUrl() == null )
+            {
+                DriverManager.registerDriver( new com.mchange.v2.c3p0.test.junit.MockDriver() );
+                cpds.setDriverClass( "com.mchange.v2.c3p0.test.junit.MockDriver" );
+                cpds.setJdbcUrl( "test:driver@without-request-boundaries" );
+                com.mchange.v2.c3p0.test.junit.MockDriver.prepareDelayMillis = MOCK_PREPARE_DELAY;
+            }
+            cpds.setMaxPoolSize( MAX_POOL_SIZE );
+            cpds.setTestConnectionOnCheckout( true );
+            cpds.setMaxStatements( MAX_STATEMENTS );
+
+            final ComboPooledDataSource ds = cpds;
+            final AtomicInteger failures = new AtomicInteger();
+            Runnable churn = new Runnable()
+            {
+                public void run()
+                {
+                    for (int i = 0; i < ITERATIONS_PER_THREAD; ++i)
+                    {
+                        try
+                        {
+                            Connection con = ds.getConnection();
+                            try
+                            {
+                                // misses prepare, hits check out cached Statements
+                                PreparedStatement ps = con.prepareStatement( "SELECT " + (i % NUM_DISTINCT_SQL) );
+                                try { Thread.sleep(1); }
+                                finally { ps.close(); }
+                            }
+                            finally { con.close(); }
+                        }
+                        catch (Exception e)
+                        {
+                            if (failures.incrementAndGet() == 1)
+                                e.printStackTrace();
+                        }
+                    }
+                }
+            };
+
+            // a warm-up round, so that carriers added while classes load aren't taken for pinned carriers
+            Thread warmup = (Thread) startVirtualThread.invoke( null, churn );
+            warmup.join();
+
+            final int parallelism = Integer.getInteger( "jdk.virtualThreadScheduler.parallelism", Runtime.getRuntime().availableProcessors() ).intValue();
+            final int allowedCarriers = Math.max( parallelism, countCarrierThreads() );
+            final AtomicInteger maxCarriers = new AtomicInteger();
+            Thread sampler = new Thread( "VirtualThreadLoadTest-carrier-sampler" )
+            {
+                public void run()
+                {
+                    try
+                    {
+                        while (true)
+                        {
+                            int count = countCarrierThreads();
+                            if ( count > maxCarriers.get() )
+                                maxCarriers.set( count );
+                            Thread.sleep( CARRIER_SAMPLE_DELAY );
+                        }
+                    }
+                    catch (InterruptedException e)
+                    { /* done sampling */ }
+                }
+            };
+            sampler.setDaemon( true );
+            sampler.start();
+
+            long start = System.currentTimeMillis();
+            Thread[] threads = new Thread[NUM_VIRTUAL_THREADS];
+            for (int i = 0; i < NUM_VIRTUAL_THREADS; ++i)
+                threads[i] = (Thread) startVirtualThread.invoke( null, churn );
+            for (int i = 0; i < NUM_VIRTUAL_THREADS; ++i)
+                threads[i].join();
+            long elapsed = System.currentTimeMillis() - start;
+            sampler.interrupt();
+            sampler.join();
+
+            System.out.println( NUM_VIRTUAL_THREADS + " virtual threads x " + ITERATIONS_PER_THREAD + " checkouts from a pool of max " + MAX_POOL_SIZE +
+                                " Connections, testing on checkout and preparing Statements, took " + elapsed + " msecs, with " + failures.get() + " failures." );
+            System.out.println( "numConnections: " + cpds.getNumConnectionsDefaultUser() + "; numBusyConnections: " + cpds.getNumBusyConnectionsDefaultUser() );
+            System.out.println( "max carrier threads: " + maxCarriers.get() + "; scheduler parallelism: " + parallelism + "; carrier threads after warm-up: " + allowedCarriers );
+            if ( maxCarriers.get() > allowedCarriers )
+            {
+                System.err.println( "FAILED: the scheduler added carrier threads under load, so some virtual threads pinned their carriers in Object.wait()." );
+                pinned = true;
+            }
+        }
+        catch (NoSuchMethodException e)
+        { System.err.println( VirtualThreadLoadTest.class.getName() + " requires a JVM that supports virtual threads." ); }
+        catch (Exception e)
+        { e.printStackTrace(); }
+        finally
+        {
+            if (cpds != null)
+                cpds.close();
+        }
+        if ( pinned )
+            System.exit(1);
+    }
+
+    private static int countCarrierThreads()
+    {
+        int out = 0;
+        for ( Thread t : Thread.getAllStackTraces().keySet() )
+        {
+            if ( "jdk.internal.misc.CarrierThread".equals( t.getClass().getName() ) )
+                ++out;
+        }
+        return out;
+    }
+}
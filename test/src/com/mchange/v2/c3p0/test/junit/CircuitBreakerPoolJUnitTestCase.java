@@ -0,0 +1,87 @@
+package com.mchange.v2.c3p0.test.junit;
+
+import java.sql.*;
+
+import junit.framework.*;
+import com.mchange.v2.c3p0.*;
+
+public final class CircuitBreakerPoolJUnitTestCase extends TestCase {
+
+  private final static int THRESHOLD    = 3;
+  private final static int PROBE_PERIOD = 200;
+
+  private ComboPooledDataSource cpds;
+
+  protected void setUp() throws Exception {
+    DriverManager.registerDriver(new MockDriver());
+    cpds = new ComboPooledDataSource();
+    cpds.setDriverClass("com.mchange.v2.c3p0.test.junit.MockDriver"); // loads the jdbc driver
+    cpds.setJdbcUrl("test:driver@without-request-boundaries");
+    cpds.setInitialPoolSize(0);
+    cpds.setMinPoolSize(0);
+    cpds.setAcquireIncrement(1);
+    cpds.setAcquireRetryAttempts(1000);
+    cpds.setAcquireRetryDelay(10);
+    cpds.setCheckoutTimeout(10000);
+    cpds.setCircuitBreakerThreshold(THRESHOLD);
+    cpds.setCircuitBreakerProbePeriod(PROBE_PERIOD);
+  }
+
+  protected void tearDown() {
+    MockDriver.failConnections = false;
+    cpds.close();
+  }
+
+  public void testOpensProbesAndCloses() throws Exception {
+    MockDriver.failConnections = true;
+    MockDriver.connectAttempts.set(0);
+
+    // a waiting client is released when the breaker opens, well before checkoutTimeout
+    long start = System.currentTimeMillis();
+    try {
+      cpds.getConnection().close();
+      fail("Expected a checkout to fail while the database is down.");
+    } catch (CircuitBreakerOpenException expected) {
+    }
+    assertTrue("Expect the waiting client to be released promptly", System.currentTimeMillis() - start < 5000);
+    int attempts = MockDriver.connectAttempts.get();
+    assertTrue("Expect the breaker to open after " + THRESHOLD + " failures, not " + attempts, attempts >= THRESHOLD && attempts <= THRESHOLD + 2);
+
+    // while open, checkouts fail fast, and only probes, one at a time, touch the driver
+    MockDriver.connectAttempts.set(0);
+    long window = 1000;
+    long end = System.currentTimeMillis() + window;
+    while (System.currentTimeMillis() < end) {
+      long checkout = System.currentTimeMillis();
+      try {
+        cpds.getConnection().close();
+        fail("Expected checkouts to fail while the breaker is open.");
+      } catch (CircuitBreakerOpenException expected) {
+      }
+      assertTrue("Expect checkouts to fail fast while the breaker is open", System.currentTimeMillis() - checkout < 1000);
+      Thread.sleep(20);
+    }
+    attempts = MockDriver.connectAttempts.get();
+    assertTrue("Expect the breaker to probe while open", attempts >= 1);
+    assertTrue("Expect no more than one probe per period, saw " + attempts, attempts <= window / PROBE_PERIOD + 1);
+
+    // a successful probe closes the breaker
+    MockDriver.failConnections = false;
+    checkoutOnceClosed();
+  }
+
+  private void checkoutOnceClosed() throws Exception {
+    long deadline = System.currentTimeMillis() + 10000;
+    while (true) {
+      try {
+        Connection con = cpds.getConnection();
+        con.close();
+        return;
+      } catch (SQLException e) {
+        if (System.currentTimeMillis() > deadline)
+          throw e;
+        Thread.sleep(50);
+      }
+    }
+  }
+}
@@ -19,6 +19,7 @@ public final class MarshallUnmarshallDataSourcesJUnitTestCase extends C3P0JUnitT
                                     "lastCheckoutFailureDefaultUser",
                                     "lastConnectionTestFailureDefaultUser",
                                     "lastIdleTestFailureDefaultUser",
+                                    "lastIdleTestSweepMillisDefaultUser",
 									"logWriter",
 									"numBusyConnections",
 									"numBusyConnectionsAllUsers",
@@ -47,6 +48,16 @@ public final class MarshallUnmarshallDataSourcesJUnitTestCase extends C3P0JUnitT
                                     "statementCacheNumDeferredCloseThreads",
                                     "statementCacheNumStatementsAllUsers",
                                     "statementCacheNumStatementsDefaultUser",
+                                    "statementCacheNumHitsAllUsers",
+                                    "statementCacheNumHitsDefaultUser",
+                                    "statementCacheNumMissesAllUsers",
+                                    "statementCacheNumMissesDefaultUser",
+                                    "statementCacheNumEvictionsAllUsers",
+                                    "statementCacheNumEvictionsDefaultUser",
+                                    "statementCacheNumOverloadStatementsAllUsers",
+                                    "statementCacheNumOverloadStatementsDefaultUser",
+                                    "statementCacheNumDeferredClosesAllUsers",
+                                    "statementCacheNumDeferredClosesDefaultUser",
 				    "statementDestroyerNumActiveThreads",
 				    "statementDestroyerNumConnectionsWithDeferredDestroyStatementsAllUsers",
 				    "statementDestroyerNumConnectionsWithDeferredDestroyStatementsDefaultUser",
@@ -64,7 +75,9 @@ public final class MarshallUnmarshallDataSourcesJUnitTestCase extends C3P0JUnitT
                                     "threadPoolStackTraces",
                                     "threadPoolStatus",
                                     "upTimeMillisDefaultUser",
-				    "vetoableChangeListeners"
+				    "vetoableChangeListeners",
+                                    "warmDefaultUser",
+                                    "warmupFutureDefaultUser"
                                     } );
 
     public void testSerializationRoundTrip()
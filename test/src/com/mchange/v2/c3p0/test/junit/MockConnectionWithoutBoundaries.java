@@ -182,8 +182,15 @@ public class MockConnectionWithoutBoundaries implements Connection {
 
   @Override
   public PreparedStatement prepareStatement(String sql) throws SQLException {
-
-    return null;
+    long delay = MockDriver.prepareDelayMillis;
+    if (delay > 0) {
+      try {
+        Thread.sleep(delay);
+      } catch (InterruptedException e) {
+        throw new SQLException("Interrupted while preparing a Statement.", e);
+      }
+    }
+    return MockPreparedStatement.create(this);
   }
 
   @Override
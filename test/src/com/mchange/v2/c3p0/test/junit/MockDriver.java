@@ -10,6 +10,13 @@ public class MockDriver implements Driver {
   public static final AtomicInteger beginRequestCount = new AtomicInteger(0);
   public static final AtomicInteger endRequestCount = new AtomicInteger(0);
 
+  // while true, every attempt to connect fails
+  public static volatile boolean failConnections = false;
+  public static final AtomicInteger connectAttempts = new AtomicInteger(0);
+
+  // if positive, how long preparing a Statement takes, so that clients pile up on cache misses
+  public static volatile long prepareDelayMillis = 0;
+
   @Override
   public boolean acceptsURL(String url) throws SQLException {
     return true;
@@ -17,6 +24,10 @@ public class MockDriver implements Driver {
 
   @Override
   public Connection connect(String url, Properties info) throws SQLException {
+    connectAttempts.incrementAndGet();
+    if (failConnections) {
+      throw new SQLException("MockDriver is failing all Connections.", "08001");
+    }
     if (url.contains("with-request-boundaries")) {
       return new MockConnectionWithBoundaries();
     } else {
@@ -0,0 +1,63 @@
+package com.mchange.v2.c3p0.test.junit;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+
+/**
+ *  A PreparedStatement that does nothing, for caching by the pool. Methods
+ *  return zero, false, or null, except that getConnection() returns the
+ *  parent Connection, and isClosed() is true after close().
+ */
+public final class MockPreparedStatement implements InvocationHandler {
+
+  private final Connection parent;
+  private volatile boolean closed = false;
+
+  private MockPreparedStatement(Connection parent) {
+    this.parent = parent;
+  }
+
+  public static PreparedStatement create(Connection parent) {
+    return (PreparedStatement) Proxy.newProxyInstance(MockPreparedStatement.class.getClassLoader(),
+                                                      new Class[] { PreparedStatement.class },
+                                                      new MockPreparedStatement(parent));
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) {
+    String name = method.getName();
+    if (name.equals("close")) {
+      closed = true;
+      return null;
+    }
+    if (name.equals("isClosed"))
+      return closed;
+    if (name.equals("getConnection"))
+      return parent;
+    if (name.equals("equals"))
+      return proxy == args[0];
+    if (name.equals("hashCode"))
+      return System.identityHashCode(proxy);
+    if (name.equals("toString"))
+      return "MockPreparedStatement@" + Integer.toHexString(System.identityHashCode(proxy));
+
+    Class rt = method.getReturnType();
+    if (rt == boolean.class)
+      return false;
+    if (rt == int.class)
+      return 0;
+    if (rt == long.class)
+      return 0L;
+    if (rt == short.class)
+      return (short) 0;
+    if (rt == byte.class)
+      return (byte) 0;
+    if (rt == float.class)
+      return 0f;
+    if (rt == double.class)
+      return 0d;
+    return null;
+  }
+}
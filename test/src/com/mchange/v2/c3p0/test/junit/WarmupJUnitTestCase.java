@@ -0,0 +1,77 @@
+package com.mchange.v2.c3p0.test.junit;
+
+import java.sql.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.*;
+import com.mchange.v2.c3p0.*;
+
+public final class WarmupJUnitTestCase extends TestCase {
+
+  private ComboPooledDataSource cpds;
+
+  protected void setUp() throws Exception {
+    DriverManager.registerDriver(new MockDriver());
+    cpds = new ComboPooledDataSource();
+    cpds.setDriverClass("com.mchange.v2.c3p0.test.junit.MockDriver"); // loads the jdbc driver
+    cpds.setJdbcUrl("test:driver@without-request-boundaries");
+    cpds.setInitialPoolSize(3);
+    cpds.setMinPoolSize(3);
+    cpds.setAcquireIncrement(3);
+    cpds.setAcquireRetryAttempts(2);
+    cpds.setAcquireRetryDelay(10);
+    cpds.setWarmupMode("background");
+  }
+
+  protected void tearDown() {
+    MockDriver.failConnections = false;
+    cpds.close();
+  }
+
+  public void testWarmsAfterFailedRound() throws Exception {
+    MockDriver.failConnections = true;
+    Future warmup = cpds.getWarmupFutureDefaultUser();
+    try {
+      warmup.get(10, TimeUnit.SECONDS);
+      fail("Expected a client waiting for warmup to see the failed round of acquisition attempts.");
+    } catch (ExecutionException expected) {
+    }
+    assertFalse("Expect the pool not to be warm after a failed round", cpds.isWarmDefaultUser());
+    assertFalse("Expect warmup not to be done after a failed round", warmup.isDone());
+
+    MockDriver.failConnections = false;
+    awaitWarmupOnceRecovered(warmup);
+    assertTrue("Expect the pool to be warm once it fills, with no client checkouts", cpds.isWarmDefaultUser());
+    assertTrue("Expect warmup to be done once the pool fills", warmup.isDone());
+  }
+
+  // clients waiting when a round of acquisition attempts that began before the
+  // driver recovered fails may see that round's failure, so we retry for a while.
+  // we never check out a Connection, the pool must retry on its own.
+  private void awaitWarmupOnceRecovered(Future warmup) throws Exception {
+    long deadline = System.currentTimeMillis() + 10000;
+    while (true) {
+      try {
+        assertNull("Expect warmup to complete once the pool fills", warmup.get(10, TimeUnit.SECONDS));
+        return;
+      } catch (ExecutionException e) {
+        if (System.currentTimeMillis() > deadline)
+          throw e;
+      }
+    }
+  }
+
+  public void testCloseFailsWarmup() throws Exception {
+    MockDriver.failConnections = true;
+    Future warmup = cpds.getWarmupFutureDefaultUser();
+    cpds.close();
+    try {
+      warmup.get(10, TimeUnit.SECONDS);
+      fail("Expected warmup to fail once the pool is closed.");
+    } catch (ExecutionException expected) {
+    }
+    assertTrue("Expect warmup to be done once the pool is closed", warmup.isDone());
+  }
+}
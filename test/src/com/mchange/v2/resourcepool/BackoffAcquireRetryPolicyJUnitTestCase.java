@@ -0,0 +1,78 @@
+package com.mchange.v2.resourcepool;
+
+import junit.framework.TestCase;
+
+public final class BackoffAcquireRetryPolicyJUnitTestCase extends TestCase
+{
+    final static int SAMPLES = 1000;
+
+    public void testNoJitterDoublesToMax()
+    {
+	BackoffAcquireRetryPolicy policy = new BackoffAcquireRetryPolicy( 100, 1000, BackoffAcquireRetryPolicy.NO_JITTER );
+	long[] expected = { 100, 200, 400, 800, 1000, 1000 };
+	long last = 0;
+	for (int i = 0; i < expected.length; ++i)
+	{
+	    long delay = policy.retryDelay( i + 1, last );
+	    assertEquals( "Expect the delay after " + (i + 1) + " failures to double from the base, up to the max", expected[i], delay );
+	    last = delay;
+	}
+	assertEquals( "Expect the max delay after very many failures", 1000, policy.retryDelay( Integer.MAX_VALUE, 1000 ) );
+    }
+
+    public void testFullJitterWithinBackedOffDelay()
+    {
+	BackoffAcquireRetryPolicy policy = new BackoffAcquireRetryPolicy( 100, 1000, BackoffAcquireRetryPolicy.FULL_JITTER );
+	long[] backedOff = { 100, 200, 400, 800, 1000, 1000 };
+	for (int i = 0; i < backedOff.length; ++i)
+	{
+	    long max_seen = 0;
+	    for (int j = 0; j < SAMPLES; ++j)
+	    {
+		long delay = policy.retryDelay( i + 1, 0 );
+		assertTrue( "Expect full jitter to wait between 0 and " + backedOff[i] + " msecs, not " + delay, delay >= 0 && delay <= backedOff[i] );
+		max_seen = Math.max( max_seen, delay );
+	    }
+	    assertTrue( "Expect full jitter to spread delays up toward the backed-off delay", max_seen > backedOff[i] / 2 );
+	}
+    }
+
+    public void testDecorrelatedJitterWithinBaseAndMax()
+    {
+	BackoffAcquireRetryPolicy policy = new BackoffAcquireRetryPolicy( 100, 1000, BackoffAcquireRetryPolicy.DECORRELATED_JITTER );
+	long last = 0;
+	boolean grew = false;
+	for (int i = 0; i < SAMPLES; ++i)
+	{
+	    long delay = policy.retryDelay( i + 1, last );
+	    long high = Math.min( 1000, 3 * ( last > 0 ? last : 100 ) );
+	    assertTrue( "Expect decorrelated jitter to wait between 100 and " + high + " msecs, not " + delay, delay >= 100 && delay <= high );
+	    grew = grew || delay > 500;
+	    last = delay;
+	}
+	assertTrue( "Expect decorrelated delays to grow toward the max", grew );
+    }
+
+    public void testDecorrelatedJitterWithoutMaxIsFixed()
+    {
+	BackoffAcquireRetryPolicy policy = new BackoffAcquireRetryPolicy( 100, 0, BackoffAcquireRetryPolicy.DECORRELATED_JITTER );
+	long last = 0;
+	for (int i = 0; i < SAMPLES; ++i)
+	{
+	    long delay = policy.retryDelay( i + 1, last );
+	    assertEquals( "Expect decorrelated jitter with a max no greater than the base to wait the base delay", 100, delay );
+	    last = delay;
+	}
+    }
+
+    public void testUnknownJitter()
+    {
+	try
+	{
+	    new BackoffAcquireRetryPolicy( 100, 1000, 3 );
+	    fail( "Expected an unknown jitter to be rejected." );
+	}
+	catch ( IllegalArgumentException expected )
+	{}
+    }
+}
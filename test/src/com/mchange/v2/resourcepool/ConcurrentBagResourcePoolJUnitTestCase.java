@@ -0,0 +1,94 @@
+package com.mchange.v2.resourcepool;
+
+import java.util.Iterator;
+import java.util.Timer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+import com.mchange.v2.async.ThreadPoolAsynchronousRunner;
+
+public final class ConcurrentBagResourcePoolJUnitTestCase extends TestCase
+{
+    ThreadPoolAsynchronousRunner runner;
+    Timer timer;
+    ConcurrentBagResourcePool pool;
+
+    protected void setUp() throws Exception
+    {
+	runner = new ThreadPoolAsynchronousRunner( 1, true );
+	timer = new Timer( true );
+
+	BasicResourcePoolFactory fact = BasicResourcePoolFactory.createNoEventSupportInstance( runner, timer );
+	fact.setMin( 1 );
+	fact.setMax( 1 );
+	fact.setLockFreeCheckouts( true );
+	pool = (ConcurrentBagResourcePool) fact.createPool( new ObjectManager() );
+    }
+
+    protected void tearDown() throws Exception
+    {
+	pool.close();
+	runner.close();
+	timer.cancel();
+    }
+
+    public void testDoubleCheckinIsIgnored() throws Exception
+    {
+	Object resc = pool.checkoutResource( 10000 );
+
+	// hold the task runner, so that the first checkin's task is still pending as the second checkin arrives
+	final CountDownLatch held = new CountDownLatch( 1 );
+	runner.postRunnable( new Runnable()
+	{
+	    public void run()
+	    {
+		try { held.await(); }
+		catch ( InterruptedException e ) {}
+	    }
+	} );
+	pool.checkinResource( resc );
+	pool.checkinResource( resc );
+	held.countDown();
+	awaitTasks();
+
+	assertEquals( "Expect a resource checked-in twice to sit in the bag once", 1, occurrencesInBag( resc ) );
+
+	Object first = pool.checkoutResource( 10000 );
+	assertSame( resc, first );
+	assertEquals( "Expect no second copy of a double-checked-in resource to remain available", 0, occurrencesInBag( resc ) );
+	pool.checkinResource( first );
+	awaitTasks();
+	assertEquals( "Expect an ordinary checkin after a double checkin to succeed", 1, occurrencesInBag( resc ) );
+    }
+
+    private void awaitTasks() throws InterruptedException
+    {
+	final CountDownLatch done = new CountDownLatch( 1 );
+	runner.postRunnable( new Runnable()
+	{
+	    public void run()
+	    { done.countDown(); }
+	} );
+	assertTrue( "Expect posted tasks to complete", done.await( 10, TimeUnit.SECONDS ) );
+    }
+
+    private int occurrencesInBag( Object resc )
+    {
+	int count = 0;
+	for ( Iterator ii = pool.bag.iterator(); ii.hasNext(); )
+	{
+	    if ( ii.next() == resc )
+		++count;
+	}
+	return count;
+    }
+
+    static class ObjectManager implements ResourcePool.Manager
+    {
+	public Object acquireResource()                             { return new Object(); }
+	public void   refurbishIdleResource( Object resc )          {}
+	public void   refurbishResourceOnCheckout( Object resc )    {}
+	public void   refurbishResourceOnCheckin( Object resc )     {}
+	public void   destroyResource( Object resc, boolean co )    {}
+    }
+}